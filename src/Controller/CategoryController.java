@@ -1,20 +1,39 @@
 package Controller;
 
+import Event.CategoryChanged;
 import Model.Category;
 import Repository.CategoryRepository;
+import Support.EventBus;
 import Support.Router;
+import Support.SearchIndex;
 import View.Dashboard.CategoryDetailsPanel;
 import View.Dashboard.CategoryFormPanel;
+import View.Layout.LoadingLayout;
 import View.NavigatePanel;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import javax.swing.JOptionPane;
 
 /**
  * Controller class for managing categories.
  */
 public class CategoryController {
+    // Shared by every controller so each panel filters the same index, loaded on the first search
+    private static final SearchIndex<Category> SEARCH_INDEX = new SearchIndex<>(
+        Category::getId,
+        Category::getName,
+        Comparator.comparing(Category::getName).thenComparingInt(Category::getId),
+        () -> new CategoryRepository().getAllCategories()
+    );
+    
+    static {
+        EventBus.subscribe(CategoryChanged.class, event -> SEARCH_INDEX.refresh(event.getIds(), ids -> {
+            CategoryRepository repository = new CategoryRepository();
+            return ids.stream().map(repository::getCategoryById).flatMap(Optional::stream).toList();
+        }));
+    }
+    
     private final CategoryRepository categoryRepository;
     
     /**
@@ -33,6 +52,35 @@ public class CategoryController {
         return categoryRepository.getAllCategories();
     }
     
+    /**
+     * Search for categories by name through the in-memory search index.
+     * An empty search term returns every category.
+     * 
+     * @param searchTerm The search term
+     * @return List of categories matching the search term, ordered by name
+     */
+    public List<Category> searchCategories(String searchTerm) {
+        return SEARCH_INDEX.search(searchTerm);
+    }
+    
+    /**
+     * Reload the category search index from the database.
+     * 
+     * @return The number of categories indexed
+     */
+    public int rebuildSearchIndex() {
+        return SEARCH_INDEX.rebuild();
+    }
+    
+    /**
+     * Compare the category search index with the database.
+     * 
+     * @return The differences found, empty when the index is up to date
+     */
+    public List<String> verifySearchIndex() {
+        return SEARCH_INDEX.verify();
+    }
+    
     /**
      * Create a new category.
      * 
@@ -119,7 +167,7 @@ public class CategoryController {
     }
     
     /**
-     * Show category details panel.
+     * Show category details panel, once the category has been read off the EDT.
      *
      * @param params Route parameters
      * @return The category details panel
@@ -127,17 +175,11 @@ public class CategoryController {
     public NavigatePanel show(Map<String, String> params) {
         int categoryId = Integer.parseInt(params.get("id"));
 
-        Optional<Category> categoryOpt = getCategoryById(categoryId);
-        if (categoryOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Category not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-
-        return new CategoryDetailsPanel(categoryOpt.get());
+        return new LoadingLayout<>(() -> getCategoryById(categoryId), CategoryDetailsPanel::new, "Category not found");
     }
     
     /**
-     * Show category edit form.
+     * Show category edit form, once the category has been read off the EDT.
      * 
      * @param params Route parameters
      * @return The category form panel
@@ -145,12 +187,6 @@ public class CategoryController {
     public NavigatePanel edit(Map<String, String> params) {
         int categoryId = Integer.parseInt(params.get("id"));
         
-        Optional<Category> categoryOpt = getCategoryById(categoryId);
-        if (categoryOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Category not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-        
-        return new CategoryFormPanel(categoryOpt.get());
+        return new LoadingLayout<>(() -> getCategoryById(categoryId), CategoryFormPanel::new, "Category not found");
     }
 } 
\ No newline at end of file
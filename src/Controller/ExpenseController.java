@@ -4,19 +4,21 @@ import Model.Expense;
 import Model.ExpenseWithStaff;
 import Model.Staff;
 import Repository.ExpenseRepository;
+import Repository.Page;
 import Repository.StaffRepository;
 import Support.FileUtils;
 import View.Dashboard.ExpenseDetailPanel;
 import View.Dashboard.ExpenseFormPanel;
-import View.Dashboard.ExpensePanel;
+import View.Layout.LoadingLayout;
 import View.NavigatePanel;
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.WeekFields;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import javax.swing.*;
 
 /**
  * Controller for managing expense operations.
@@ -46,33 +48,14 @@ public class ExpenseController {
         // Extract the ID parameter
         int expenseId = Integer.parseInt(params.get("id"));
 
-        try {
-            // Get the expense to edit
-            Optional<Expense> expenseOpt = this.getExpenseById(expenseId);
-            if (expenseOpt.isEmpty()) {
-                JOptionPane.showMessageDialog(null, "Expense not found", "Error", JOptionPane.ERROR_MESSAGE);
-                return new NavigatePanel(); // Return empty panel or navigate back
-            }
-
-            return new ExpenseFormPanel(expenseOpt.get());
-        } catch (IllegalArgumentException ex) {
-            Logger.getLogger(ExpensePanel.class.getName()).log(Level.SEVERE, "Error opening expense edit form", ex);
-            JOptionPane.showMessageDialog(null, "Error opening expense edit form: " + ex.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel(); // Return empty panel or navigate back
-        }
+        // The expense is read off the EDT; an invalid ID is reported as a failed load
+        return new LoadingLayout<>(() -> this.getExpenseById(expenseId), ExpenseFormPanel::new, "Expense not found");
     }
 
     public NavigatePanel show(Map<String, String> params) {
         int expenseId = Integer.parseInt(params.get("id"));
 
-        Optional<Expense> expenseOpt = this.getExpenseById(expenseId);
-        if (expenseOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Expense not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-
-        return new ExpenseDetailPanel(expenseOpt.get());
+        return new LoadingLayout<>(() -> this.getExpenseById(expenseId), ExpenseDetailPanel::new, "Expense not found");
     }
 
     /**
@@ -117,10 +100,8 @@ public class ExpenseController {
                 throw new IllegalArgumentException("Staff not found");
             }
 
-            // Filter all expenses by staff ID
-            return expenseRepository.getAllExpenses().stream()
-                .filter(expense -> expense.getStaffId() == staffId)
-                .collect(Collectors.toList());
+            // Read only this staff member's expenses from the index
+            return expenseRepository.getExpensesByStaffId(staffId);
         } catch (Exception ex) {
             LOGGER.log(Level.SEVERE, "Error getting expenses by staff ID", ex);
             return new ArrayList<>();
@@ -177,85 +158,67 @@ public class ExpenseController {
         return expenseRepository.getAllExpensesWithStaff();
     }
 
-    public List<ExpenseWithStaff> filterExpense(String searchTerm, String duration) {
-        List<ExpenseWithStaff> expenses;
-
-        if (searchTerm != null && !searchTerm.isEmpty()) {
-            expenses = expenseRepository.searchExpensesWithStaff(searchTerm);
-        } else {
-            expenses = expenseRepository.getAllExpensesWithStaff();
-        }
-
-        if (duration != null && !duration.equals("All")) {
-            expenses = filterByDuration(expenses, duration);
-        }
-
-        return expenses;
+    /**
+     * Gets the next page of expenses with staff information, newest first.
+     *
+     * @param after The last expense already shown, or null for the first page
+     * @return The page of expenses
+     */
+    public Page<ExpenseWithStaff> getExpensesWithStaffPage(ExpenseWithStaff after) {
+        return expenseRepository.getExpensesWithStaffPage(after, Page.DEFAULT_SIZE);
     }
 
-    private List<ExpenseWithStaff> filterByDuration(List<ExpenseWithStaff> expenses, String duration) {
-        List<ExpenseWithStaff> filteredExpenses = new ArrayList<>();
-        Calendar calendar = Calendar.getInstance();
-        java.util.Date today = calendar.getTime();
+    /**
+     * Filters expenses by search term and duration in a single query.
+     * The duration becomes a range of local days passed to the database as epoch milliseconds.
+     *
+     * @param searchTerm Text the expense or staff name must contain, or null or empty for any
+     * @param duration One of "All", "This Week", "Last Week", "This Month", "Last Month" or "This Year"
+     * @return The matching expenses, newest first
+     */
+    public List<ExpenseWithStaff> filterExpense(String searchTerm, String duration) {
+        LocalDate today = LocalDate.now();
+        LocalDate startOfWeek = today.with(WeekFields.of(Locale.getDefault()).dayOfWeek(), 1);
+        LocalDate start;
+        LocalDate end;
 
-        switch (duration) {
+        switch (duration == null ? "All" : duration) {
             case "This Week":
-                calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
-                java.util.Date startOfWeek = calendar.getTime();
-                calendar.add(Calendar.DAY_OF_WEEK, 7);
-                java.util.Date endOfWeek = calendar.getTime();
-                filteredExpenses = filterByDateRange(expenses, startOfWeek, endOfWeek);
+                start = startOfWeek;
+                end = startOfWeek.plusWeeks(1);
                 break;
             case "Last Week":
-                calendar.add(Calendar.WEEK_OF_YEAR, -1);
-                calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
-                java.util.Date startOfLastWeek = calendar.getTime();
-                calendar.add(Calendar.DAY_OF_WEEK, 7);
-                java.util.Date endOfLastWeek = calendar.getTime();
-                filteredExpenses = filterByDateRange(expenses, startOfLastWeek, endOfLastWeek);
+                start = startOfWeek.minusWeeks(1);
+                end = startOfWeek;
                 break;
             case "This Month":
-                calendar.set(Calendar.DAY_OF_MONTH, 1);
-                java.util.Date startOfMonth = calendar.getTime();
-                calendar.add(Calendar.MONTH, 1);
-                java.util.Date endOfMonth = calendar.getTime();
-                filteredExpenses = filterByDateRange(expenses, startOfMonth, endOfMonth);
+                start = today.withDayOfMonth(1);
+                end = start.plusMonths(1);
                 break;
             case "Last Month":
-                calendar.add(Calendar.MONTH, -1);
-                calendar.set(Calendar.DAY_OF_MONTH, 1);
-                java.util.Date startOfLastMonth = calendar.getTime();
-                calendar.add(Calendar.MONTH, 1);
-                java.util.Date endOfLastMonth = calendar.getTime();
-                filteredExpenses = filterByDateRange(expenses, startOfLastMonth, endOfLastMonth);
+                end = today.withDayOfMonth(1);
+                start = end.minusMonths(1);
                 break;
             case "This Year":
-                calendar.set(Calendar.DAY_OF_YEAR, 1);
-                java.util.Date startOfYear = calendar.getTime();
-                calendar.add(Calendar.YEAR, 1);
-                java.util.Date endOfYear = calendar.getTime();
-                filteredExpenses = filterByDateRange(expenses, startOfYear, endOfYear);
+                start = today.withDayOfYear(1);
+                end = start.plusYears(1);
                 break;
             default:
-                filteredExpenses = expenses;
+                start = null;
+                end = null;
                 break;
         }
 
-        return filteredExpenses;
+        return expenseRepository.findExpensesWithStaff(searchTerm, 0, startOfDay(start), startOfDay(end));
     }
 
-    private List<ExpenseWithStaff> filterByDateRange(List<ExpenseWithStaff> expenses, java.util.Date startDate, java.util.Date endDate) {
-        List<ExpenseWithStaff> filteredExpenses = new ArrayList<>();
-        for (ExpenseWithStaff expenseWithStaff : expenses) {
-            java.util.Date expenseDate = expenseWithStaff.getExpense().getDate();
-            if (expenseDate.compareTo(startDate) >= 0 && expenseDate.compareTo(endDate) < 0) {
-                filteredExpenses.add(expenseWithStaff);
-            }
+    private Date startOfDay(LocalDate day) {
+        if (day == null) {
+            return null;
         }
-        return filteredExpenses;
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
     }
 
-
     /**
      * Gets an expense with staff information by expense ID.
      * 
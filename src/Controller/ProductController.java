@@ -1,22 +1,53 @@
 package Controller;
 
+import Event.CategoryChanged;
+import Event.ChangeEvent.Change;
+import Event.ProductChanged;
+import Model.Category;
 import Model.Product;
 import Model.ProductWithCategory;
+import Repository.CachingProductRepository;
+import Repository.Page;
+import Repository.ProductCatalogCache;
 import Repository.ProductRepository;
+import Repository.ProductRepository.ProductSort;
+import Support.EventBus;
 import Support.Router;
+import Support.SearchIndex;
 import View.Dashboard.ProductDetailsPanel;
 import View.Dashboard.ProductFormPanel;
+import View.Layout.LoadingLayout;
 import View.NavigatePanel;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import javax.swing.JOptionPane;
 
 /**
  * Controller class for managing products.
  */
 public class ProductController {
+    // Shared by every controller so each panel filters the same index, loaded on the first search
+    private static final SearchIndex<ProductWithCategory> SEARCH_INDEX = new SearchIndex<>(
+        ProductWithCategory::getProductId,
+        ProductWithCategory::getProductName,
+        Comparator.comparing(ProductWithCategory::getProductName).thenComparingInt(ProductWithCategory::getProductId),
+        () -> new ProductRepository().getAllProductsWithCategories()
+    );
+    
+    static {
+        // Re-read written products past the cache; a category write changes the category shown on its products
+        EventBus.subscribe(ProductChanged.class, event ->
+            SEARCH_INDEX.refresh(event.getIds(), new ProductRepository()::getProductsWithCategoriesByIds));
+        EventBus.subscribe(CategoryChanged.class, event -> {
+            if (event.getChange() != Change.CREATED) {
+                SEARCH_INDEX.invalidate();
+            }
+        });
+    }
+    
     private final ProductRepository productRepository;
     private final CategoryController categoryController;
     
@@ -24,7 +55,7 @@ public class ProductController {
      * Constructor for ProductController.
      */
     public ProductController() {
-        this.productRepository = new ProductRepository();
+        this.productRepository = new CachingProductRepository();
         this.categoryController = new CategoryController();
     }
     
@@ -37,6 +68,41 @@ public class ProductController {
         return productRepository.getAllProductsWithCategories();
     }
     
+    /**
+     * Get the next page of products with their categories, ordered by name.
+     * 
+     * @param after The last product already shown, or null for the first page
+     * @return The page of products
+     */
+    public Page<ProductWithCategory> getProductsWithCategoriesPage(ProductWithCategory after) {
+        return productRepository.getProductsWithCategoriesPage(after, Page.DEFAULT_SIZE);
+    }
+    
+    /**
+     * Count the products, or those of one category.
+     * 
+     * @param categoryId The category to count, or null for every product
+     * @return The number of products
+     */
+    public int countProducts(Integer categoryId) {
+        return productRepository.countProducts(categoryId);
+    }
+    
+    /**
+     * Get the products with their categories at a range of positions in the product list.
+     * 
+     * @param categoryId Only products of this category, or null for every product
+     * @param sort The column to order by, or null to order by name
+     * @param ascending Whether to order the sort column ascending
+     * @param offset The position of the first product
+     * @param limit The maximum number of products
+     * @return The products in the range
+     */
+    public List<ProductWithCategory> getProductsWithCategoriesRange(Integer categoryId, ProductSort sort,
+                                                                    boolean ascending, int offset, int limit) {
+        return productRepository.getProductsWithCategoriesRange(categoryId, sort, ascending, offset, limit);
+    }
+    
     /**
      * Get all products.
      * 
@@ -88,6 +154,20 @@ public class ProductController {
         return productRepository.getProductWithCategoryById(productId);
     }
     
+    /**
+     * Get the products with the given IDs, with their categories.
+     * 
+     * @param productIds The product IDs
+     * @return The products that exist, in no particular order
+     */
+    public List<ProductWithCategory> getProductsWithCategoriesByIds(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        
+        return productRepository.getProductsWithCategoriesByIds(productIds);
+    }
+    
     /**
      * Create a new product.
      * 
@@ -116,7 +196,8 @@ public class ProductController {
         }
         
         // Check if the category exists
-        if (categoryController.getCategoryById(categoryId).isEmpty()) {
+        Optional<Category> category = categoryController.getCategoryById(categoryId);
+        if (category.isEmpty()) {
             throw new IllegalArgumentException("Category not found");
         }
         
@@ -155,7 +236,8 @@ public class ProductController {
         }
         
         // Check if the category exists
-        if (categoryController.getCategoryById(product.getCategoryId()).isEmpty()) {
+        Optional<Category> category = categoryController.getCategoryById(product.getCategoryId());
+        if (category.isEmpty()) {
             throw new IllegalArgumentException("Category not found");
         }
         
@@ -188,17 +270,41 @@ public class ProductController {
     }
     
     /**
-     * Search for products by name.
+     * Search for products by name through the in-memory search index.
+     * An empty search term returns every product.
      * 
      * @param searchTerm The search term
-     * @return List of products matching the search term
+     * @return List of products matching the search term, ordered by name
      */
     public List<ProductWithCategory> searchProducts(String searchTerm) {
-        if (searchTerm == null) {
-            return getAllProductsWithCategories();
-        }
-        
-        return productRepository.searchProducts(searchTerm.trim());
+        return SEARCH_INDEX.search(searchTerm);
+    }
+    
+    /**
+     * Reload the product search index from the database.
+     * 
+     * @return The number of products indexed
+     */
+    public int rebuildSearchIndex() {
+        return SEARCH_INDEX.rebuild();
+    }
+    
+    /**
+     * Compare the product search index with the database.
+     * 
+     * @return The differences found, empty when the index is up to date
+     */
+    public List<String> verifySearchIndex() {
+        return SEARCH_INDEX.verify();
+    }
+    
+    /**
+     * Get the hit and miss counts of the product catalog cache.
+     * 
+     * @return The cache statistics
+     */
+    public ProductCatalogCache.Stats getCatalogCacheStats() {
+        return ProductCatalogCache.shared().getStats();
     }
     
     /**
@@ -226,7 +332,7 @@ public class ProductController {
     }
     
     /**
-     * Show product details panel.
+     * Show product details panel, once the product has been read off the EDT.
      * 
      * @param params Route parameters
      * @return The product details panel
@@ -234,17 +340,11 @@ public class ProductController {
     public NavigatePanel show(Map<String, String> params) {
         int productId = Integer.parseInt(params.get("id"));
         
-        Optional<ProductWithCategory> productOpt = getProductWithCategoryById(productId);
-        if (productOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Product not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-        
-        return new ProductDetailsPanel(productOpt.get());
+        return new LoadingLayout<>(() -> getProductWithCategoryById(productId), ProductDetailsPanel::new, "Product not found");
     }
     
     /**
-     * Show product edit form.
+     * Show product edit form, once the product has been read off the EDT.
      * 
      * @param params Route parameters
      * @return The product form panel
@@ -252,12 +352,6 @@ public class ProductController {
     public NavigatePanel edit(Map<String, String> params) {
         int productId = Integer.parseInt(params.get("id"));
         
-        Optional<Product> productOpt = getProductById(productId);
-        if (productOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Product not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-        
-        return new ProductFormPanel(productOpt.get());
+        return new LoadingLayout<>(() -> getProductById(productId), ProductFormPanel::new, "Product not found");
     }
 } 
\ No newline at end of file
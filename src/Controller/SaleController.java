@@ -1,15 +1,21 @@
 package Controller;
 
+import Exception.DatabaseException;
+import Exception.InsufficientStockException;
 import Model.*;
+import Repository.CachingProductRepository;
+import Repository.Page;
 import Repository.SaleRepository;
+import Repository.SaleRepository.SaleSort;
 import Repository.ProductRepository;
 import Support.SessionManager;
 import View.Dashboard.SaleDetailsPanel;
 import View.Dashboard.SaleFormPanel;
+import View.Layout.LoadingLayout;
 import View.NavigatePanel;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
-import javax.swing.JOptionPane;
 
 /**
  * Controller class for managing sales.
@@ -23,7 +29,7 @@ public class SaleController {
      */
     public SaleController() {
         this.saleRepository = new SaleRepository();
-        this.productRepository = new ProductRepository();
+        this.productRepository = new CachingProductRepository();
     }
     
     /**
@@ -34,6 +40,41 @@ public class SaleController {
     public List<SaleWithStaff> getAllSalesWithStaff() {
         return saleRepository.getAllSalesWithStaff();
     }
+    
+    /**
+     * Get the next page of sales with staff information, newest first.
+     *
+     * @param after The last sale already shown, or null for the first page
+     * @return The page of sales
+     */
+    public Page<SaleWithStaff> getSalesWithStaffPage(SaleWithStaff after) {
+        return saleRepository.getSalesWithStaffPage(after, Page.DEFAULT_SIZE);
+    }
+    
+    /**
+     * Count the sales, or those made by the staff matching a search term.
+     * 
+     * @param searchTerm The search term, or null for every sale
+     * @return The number of sales
+     */
+    public int countSales(String searchTerm) {
+        return saleRepository.countSales(searchTerm);
+    }
+    
+    /**
+     * Get the sales with staff information at a range of positions in the sales list.
+     * 
+     * @param searchTerm Only sales by the staff matching this search term, or null for every sale
+     * @param sort The column to order by, or null for newest first
+     * @param ascending Whether to order the sort column ascending
+     * @param offset The position of the first sale
+     * @param limit The maximum number of sales
+     * @return The sales in the range
+     */
+    public List<SaleWithStaff> getSalesWithStaffRange(String searchTerm, SaleSort sort, boolean ascending,
+                                                      int offset, int limit) {
+        return saleRepository.getSalesWithStaffRange(searchTerm, sort, ascending, offset, limit);
+    }
     /**
      * Get a sale by ID.
      * 
@@ -79,17 +120,21 @@ public class SaleController {
     
     /**
      * Create a new sale.
+     * The cart's products are read in one query to price the sale and check stock; the stock is taken
+     * again conditionally when the sale is written, so a concurrent sale cannot oversell a product.
      * 
      * @param saleItems List of maps containing product IDs and quantities
-     * @return The ID of the created sale, or -1 if creation failed
+     * @return The ID of the created sale
+     * @throws InsufficientStockException If a product does not have enough stock
+     * @throws DatabaseException If the sale could not be written
      */
     public int createSale(List<Map<String, Object>> saleItems) {
         if (saleItems == null || saleItems.isEmpty()) {
             throw new IllegalArgumentException("Sale must have at least one item");
         }
         
-        // Calculate total
-        BigDecimal total = BigDecimal.ZERO;
+        // Validate the lines and add up the quantity asked of each product
+        Map<Integer, Integer> requested = new LinkedHashMap<>();
         for (Map<String, Object> item : saleItems) {
             int productId = (int) item.get("productId");
             int quantity = (int) item.get("quantity");
@@ -102,15 +147,26 @@ public class SaleController {
                 throw new IllegalArgumentException("Quantity must be greater than zero");
             }
             
-            // Get product to check if it exists and has enough stock
-            Optional<Product> productOpt = productRepository.getProductById(productId);
-            if (productOpt.isEmpty()) {
-                throw new IllegalArgumentException("Product not found: " + productId);
+            requested.merge(productId, quantity, Integer::sum);
+        }
+        
+        // Get every product in the cart at once
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : productRepository.getProductsByIds(requested.keySet())) {
+            products.put(product.getId(), product);
+        }
+        
+        // Check that each product exists and has enough stock, and calculate the total
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> line : requested.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found: " + line.getKey());
             }
             
-            Product product = productOpt.get();
+            int quantity = line.getValue();
             if (product.getStockQuantity() < quantity) {
-                throw new IllegalArgumentException("Not enough stock for product: " + product.getName());
+                throw new InsufficientStockException(product.getId(), product.getName(), quantity, product.getStockQuantity());
             }
             
             // Add to total
@@ -159,7 +215,7 @@ public class SaleController {
 
     
     /**
-     * Show sale details panel.
+     * Show sale details panel, once the sale and its items have been read off the EDT.
      * 
      * @param params Route parameters
      * @return The sale details panel
@@ -167,13 +223,7 @@ public class SaleController {
     public NavigatePanel show(Map<String, String> params) {
         int saleId = Integer.parseInt(params.get("id"));
         
-        Optional<SaleWithDetails> saleOpt = getSaleWithDetails(saleId);
-        if (saleOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Sale not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-        
-        return new SaleDetailsPanel(saleOpt.get());
+        return new LoadingLayout<>(() -> getSaleWithDetails(saleId), SaleDetailsPanel::new, "Sale not found");
     }
     
     /**
@@ -186,57 +236,37 @@ public class SaleController {
     }
     
     /**
-     * Get the total amount of all sales within a date range.
+     * Get the count, total, average, minimum and maximum of the sales within a date range.
      *
-     * @param startDate Start date of the range
-     * @param endDate End date of the range
-     * @return The total sales amount
+     * @param startDate Start date of the range, inclusive
+     * @param endDate End date of the range, inclusive
+     * @return The sales summary
      */
-    public BigDecimal getTotalSalesAmount(Date startDate, Date endDate) {
-        BigDecimal total = BigDecimal.ZERO;
-        return this.saleRepository.getAllSales()
-                .stream()
-                .filter(sale -> {
-                    if (startDate != null && endDate != null) {
-                        return sale.getDate().after(startDate) && sale.getDate().before(endDate);
-                    }
-                    if (startDate != null) {
-                        return sale.getDate().after(startDate);
-                    }
-                    if (endDate != null) {
-                        return sale.getDate().before(endDate);
-                    }
-
-                    return true;
-                })
-                .reduce(total, (acc, sale) -> acc.add(sale.getTotal()), BigDecimal::add);
+    public SaleSummary getSalesSummary(Date startDate, Date endDate) {
+        return this.saleRepository.aggregate(startDate, endDate);
     }
-    
+
     /**
-     * Get the total count of sales within a date range.
+     * Get the number of sales, revenue and items sold on a range of days, from the daily rollup.
      *
-     * @param startDate Start date of the range
-     * @param endDate End date of the range
-     * @return The total number of sales
+     * @param firstDay The first day of the range, inclusive
+     * @param lastDay The last day of the range, inclusive
+     * @return The sales totals
      */
-    public int getTotalSalesCount(Date startDate, Date endDate) {
-        int count = 0;
+    public SalesTotals getSalesTotals(LocalDate firstDay, LocalDate lastDay) {
+        if (firstDay.isAfter(lastDay)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
 
-        return this.saleRepository.getAllSales()
-                .stream()
-                .filter(sale -> {
-                    if (startDate != null && endDate != null) {
-                        return sale.getDate().after(startDate) && sale.getDate().before(endDate);
-                    }
-                    if (startDate != null) {
-                        return sale.getDate().after(startDate);
-                    }
-                    if (endDate != null) {
-                        return sale.getDate().before(endDate);
-                    }
+        return this.saleRepository.getSalesTotals(firstDay, lastDay);
+    }
 
-                    return true;
-                })
-                .reduce(count, (acc, sale) -> acc + 1, Integer::sum);
+    /**
+     * Recompute the daily sales rollup from the sales.
+     *
+     * @return The number of rollup rows written
+     */
+    public int rebuildDailyRollup() {
+        return this.saleRepository.rebuildDailyRollup();
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,19 +1,39 @@
 package Controller;
 
+import Event.StaffChanged;
 import Exception.ValidateException;
 import Model.Staff;
+import Model.StaffExpenseSummary;
 import Model.StaffWithExpenses;
+import Repository.Page;
 import Repository.StaffRepository;
+import Support.EventBus;
+import Support.SearchIndex;
 import Support.SessionManager;
 import View.*;
 import View.Dashboard.StaffDetailsPanel;
 import View.Dashboard.StaffFormPanel;
+import View.Layout.LoadingLayout;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import javax.swing.*;
 
 public class StaffController {
+    // Shared by every controller so each panel filters the same index, loaded on the first search
+    private static final SearchIndex<Staff> SEARCH_INDEX = new SearchIndex<>(
+            Staff::getId,
+            staff -> SearchIndex.text(staff.getName(), staff.getPosition(), staff.getUserName(), staff.getRole()),
+            Comparator.comparingInt(Staff::getId),
+            () -> new StaffRepository().getAllStaff());
+
+    static {
+        EventBus.subscribe(StaffChanged.class, event -> SEARCH_INDEX.refresh(event.getIds(), ids -> {
+            StaffRepository repository = new StaffRepository();
+            return ids.stream().map(repository::getStaffById).flatMap(Optional::stream).toList();
+        }));
+    }
+
     private final StaffRepository staffRepository;
 
     public StaffController() {
@@ -23,31 +43,35 @@ public class StaffController {
     public NavigatePanel show(Map<String, String> parameters) {
         int staffId = Integer.parseInt(parameters.get("id"));
 
-        Optional<Staff> staffOpt = staffRepository.getStaffById(staffId);
-        if (staffOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Staff not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-
-        return new StaffDetailsPanel(staffOpt.get());
+        return new LoadingLayout<>(() -> staffRepository.getStaffById(staffId), StaffDetailsPanel::new, "Staff not found");
     }
 
     public NavigatePanel edit(Map<String, String> parameters) {
         int staffId = Integer.parseInt(parameters.get("id"));
 
-        Optional<Staff> staffOpt = staffRepository.getStaffById(staffId);
-        if (staffOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Staff not found", "Error", JOptionPane.ERROR_MESSAGE);
-            return new NavigatePanel();
-        }
-
-        return new StaffFormPanel(staffOpt.get());
+        return new LoadingLayout<>(() -> staffRepository.getStaffById(staffId), StaffFormPanel::new, "Staff not found");
     }
 
     public List<Staff> getAllStaff() {
         return staffRepository.getAllStaff();
     }
 
+    public List<Staff> searchStaff(String searchTerm) {
+        return SEARCH_INDEX.search(searchTerm);
+    }
+
+    public int rebuildSearchIndex() {
+        return SEARCH_INDEX.rebuild();
+    }
+
+    public List<String> verifySearchIndex() {
+        return SEARCH_INDEX.verify();
+    }
+
+    public Page<Staff> getStaffPage(Staff after) {
+        return staffRepository.getStaffPage(after, Page.DEFAULT_SIZE);
+    }
+
     public Optional<Staff> getStaffById(int id) {
         return staffRepository.getStaffById(id);
     }
@@ -186,4 +210,8 @@ public class StaffController {
     public List<StaffWithExpenses> getAllStaffWithExpenses() {
         return staffRepository.getAllStaffWithExpenses();
     }
+
+    public List<StaffExpenseSummary> getStaffExpenseSummaries() {
+        return staffRepository.getStaffExpenseSummaries();
+    }
 }
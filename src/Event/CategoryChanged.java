@@ -0,0 +1,13 @@
+package Event;
+
+import java.util.Collection;
+
+/**
+ * Published after categories were created, updated or deleted.
+ * Products show their category's name, so an update or delete also changes them.
+ */
+public class CategoryChanged extends ChangeEvent {
+    public CategoryChanged(Change change, Collection<Integer> ids) {
+        super(change, ids);
+    }
+}
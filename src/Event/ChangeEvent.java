@@ -0,0 +1,57 @@
+package Event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Base class of the events published after rows of one table were committed.
+ * An event carries what happened and the keys of the rows it happened to, so subscribers can
+ * patch those rows rather than reload everything.
+ */
+public abstract class ChangeEvent {
+    /**
+     * What happened to the rows.
+     */
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Change change;
+    private final Set<Integer> ids;
+
+    /**
+     * Constructor for ChangeEvent.
+     *
+     * @param change What happened to the rows
+     * @param ids The IDs of the rows
+     */
+    protected ChangeEvent(Change change, Collection<Integer> ids) {
+        this.change = change;
+        this.ids = Set.copyOf(ids);
+    }
+
+    /**
+     * Get what happened to the rows.
+     *
+     * @return The change
+     */
+    public Change getChange() {
+        return change;
+    }
+
+    /**
+     * Get the IDs of the changed rows.
+     *
+     * @return The IDs, never empty
+     */
+    public Set<Integer> getIds() {
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + change + " " + ids + "}";
+    }
+}
@@ -0,0 +1,12 @@
+package Event;
+
+import java.util.Collection;
+
+/**
+ * Published after expenses were created, updated or deleted.
+ */
+public class ExpenseChanged extends ChangeEvent {
+    public ExpenseChanged(Change change, Collection<Integer> ids) {
+        super(change, ids);
+    }
+}
@@ -0,0 +1,13 @@
+package Event;
+
+import java.util.Collection;
+
+/**
+ * Published after products were created, updated or deleted.
+ * Stock taken or returned by a sale is an update.
+ */
+public class ProductChanged extends ChangeEvent {
+    public ProductChanged(Change change, Collection<Integer> ids) {
+        super(change, ids);
+    }
+}
@@ -0,0 +1,27 @@
+package Event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published after sales were created or deleted.
+ * It also carries the products whose stock the sales took or returned; those are announced
+ * separately as a {@link ProductChanged} update.
+ */
+public class SaleChanged extends ChangeEvent {
+    private final Set<Integer> productIds;
+
+    public SaleChanged(Change change, Collection<Integer> ids, Collection<Integer> productIds) {
+        super(change, ids);
+        this.productIds = Set.copyOf(productIds);
+    }
+
+    /**
+     * Get the IDs of the products sold in the changed sales.
+     *
+     * @return The product IDs
+     */
+    public Set<Integer> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,12 @@
+package Event;
+
+import java.util.Collection;
+
+/**
+ * Published after staff were created, updated or deleted.
+ */
+public class StaffChanged extends ChangeEvent {
+    public StaffChanged(Change change, Collection<Integer> ids) {
+        super(change, ids);
+    }
+}
@@ -0,0 +1,30 @@
+package Exception;
+
+import java.sql.SQLException;
+
+/**
+ * Unchecked wrapper for a failed database operation, thrown by the {@code unsafe*} methods of {@code Support.DB}.
+ */
+public class DatabaseException extends RuntimeException {
+    public DatabaseException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * Get the SQLState reported by the driver.
+     *
+     * @return The SQLState, or null if the driver did not report one
+     */
+    public String getSqlState() {
+        return ((SQLException) getCause()).getSQLState();
+    }
+
+    /**
+     * Get the vendor error code reported by the driver.
+     *
+     * @return The error code
+     */
+    public int getErrorCode() {
+        return ((SQLException) getCause()).getErrorCode();
+    }
+}
@@ -0,0 +1,40 @@
+package Exception;
+
+/**
+ * Thrown when a sale asks for more of a product than is in stock.
+ * It is an {@link IllegalArgumentException}, so callers that already report invalid sales handle it unchanged.
+ */
+public class InsufficientStockException extends IllegalArgumentException {
+    private final int productId;
+    private final int requested;
+    private final int available;
+
+    public InsufficientStockException(int productId, String productName, int requested, int available) {
+        super("Not enough stock for product: " + productName + " (requested " + requested + ", available " + available + ")");
+        this.productId = productId;
+        this.requested = requested;
+        this.available = available;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    /**
+     * Get the quantity the sale asked for.
+     *
+     * @return The requested quantity
+     */
+    public int getRequested() {
+        return requested;
+    }
+
+    /**
+     * Get the stock left when the sale was checked.
+     *
+     * @return The available quantity
+     */
+    public int getAvailable() {
+        return available;
+    }
+}
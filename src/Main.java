@@ -3,8 +3,11 @@ import Controller.ExpenseController;
 import Controller.ProductController;
 import Controller.SaleController;
 import Controller.StaffController;
+import Repository.ProductCatalogCache;
 import Support.DB;
 import Support.MigrationManager;
+import Support.QueryMetrics;
+import Support.QueryPlanAudit;
 import Support.Router;
 import View.Dashboard.CategoryFormPanel;
 import View.Dashboard.CategoryPanel;
@@ -24,8 +27,8 @@ import View.NavigatePanel;
 
 import java.awt.*;
 import java.io.File;
-import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import javax.swing.*;
 
 public class Main {
@@ -113,19 +116,47 @@ public class Main {
             return false; // Exit if driver not found
         }
 
-        // Initialize the DB connection with SQLite
-        DB.initialize(
-                "jdbc:sqlite:" + DB_FILE_PATH,  // SQLite connection string
-                "",  // SQLite doesn't require username
-                ""   // SQLite doesn't require password
-        );
-
         try {
-            Connection conn = DB.getInstance().getConnection();
-            System.out.println("Database connection successful. Database file is ready.");
-
-            MigrationManager migrationManager = new MigrationManager(conn);
-            migrationManager.migrate();
+            // Initialize the DB connection pool with SQLite, tuned by the -Dapp.db.profile preset
+            DB.initialize(
+                    "jdbc:sqlite:" + DB_FILE_PATH,  // SQLite connection string
+                    "",  // SQLite doesn't require username
+                    ""   // SQLite doesn't require password
+            );
+
+            System.out.println("Database profile: " + DB.getProfile().describe());
+
+            DB.execute(conn -> {
+                System.out.println("Database connection successful. Database file is ready.");
+
+                MigrationManager migrationManager = new MigrationManager(conn);
+                migrationManager.migrate();
+                return null;
+            });
+
+            // Repair the dashboard totals on request, e.g. after sales were edited outside the application
+            if (Boolean.getBoolean("app.db.rebuildSalesRollup")) {
+                int rows = new SaleController().rebuildDailyRollup();
+                System.out.println("Sales daily rollup rebuilt with " + rows + " rows");
+            }
+
+            // Release pooled connections when the application exits, dumping query metrics and plans if requested
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (Boolean.getBoolean(QueryPlanAudit.AUDIT_PROPERTY)) {
+                    QueryPlanAudit.dump(System.out);
+                }
+                // Check that the search indexes kept up with the session's writes
+                if (Boolean.getBoolean("app.search.verify")) {
+                    reportSearchIndex("product", new ProductController().verifySearchIndex());
+                    reportSearchIndex("category", new CategoryController().verifySearchIndex());
+                    reportSearchIndex("staff", new StaffController().verifySearchIndex());
+                }
+                DB.shutdown();
+                if (Boolean.getBoolean("app.db.dumpMetrics")) {
+                    QueryMetrics.dump(System.out);
+                    System.out.println(ProductCatalogCache.shared().getStats());
+                }
+            }, "db-shutdown"));
 
             return true;
         } catch (SQLException e) {
@@ -139,4 +170,19 @@ public class Main {
             return false;
         }
     }
+
+    /**
+     * Prints the differences a search index has with the database.
+     *
+     * @param name The name of the indexed items
+     * @param problems The differences found by the verification
+     */
+    private static void reportSearchIndex(String name, List<String> problems) {
+        if (problems.isEmpty()) {
+            System.out.println("Search index for " + name + " is up to date");
+            return;
+        }
+        System.out.println("Search index for " + name + " has " + problems.size() + " problems:");
+        problems.forEach(problem -> System.out.println("  " + problem));
+    }
 }
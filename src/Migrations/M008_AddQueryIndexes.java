@@ -0,0 +1,51 @@
+package Migrations;
+
+import Support.Migration;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration to add the secondary indexes used by the repository queries, then refresh the planner statistics.
+ * staff.username and category.CatName are already indexed by their UNIQUE constraints.
+ */
+public class M008_AddQueryIndexes implements Migration {
+
+    @Override
+    public String getName() {
+        return "008_add_query_indexes";
+    }
+
+    @Override
+    public void up(Connection conn) throws SQLException {
+        String[] indexes = {
+                // Sales lists and keyset pages: ORDER BY Date DESC, ID DESC (ID is the rowid, stored in every index)
+                "CREATE INDEX IF NOT EXISTS idx_sales_date ON sales (Date)",
+                // Sales of one staff member, and staff deletes clearing the SID of their sales
+                "CREATE INDEX IF NOT EXISTS idx_sales_sid ON sales (SID)",
+                // Sale lines of a product, and product deletes checking whether it has been sold
+                "CREATE INDEX IF NOT EXISTS idx_sale_details_pid ON sale_details (PID)",
+                // Expenses of one staff member, already in id order since the rowid follows staff_id
+                "CREATE INDEX IF NOT EXISTS idx_expenses_staff_id ON expenses (staff_id)",
+                // Expense date ranges across all staff
+                "CREATE INDEX IF NOT EXISTS idx_expenses_date ON expenses (date)",
+                // Products of one category ordered by name
+                "CREATE INDEX IF NOT EXISTS idx_product_catid_pname ON product (CatID, PName)",
+                // Product lists and keyset pages: ORDER BY PName, PID
+                "CREATE INDEX IF NOT EXISTS idx_product_pname ON product (PName)",
+                // Staff by role
+                "CREATE INDEX IF NOT EXISTS idx_staff_role ON staff (role)"
+        };
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : indexes) {
+                stmt.execute(sql);
+            }
+
+            // Give the query planner row counts for the new indexes
+            stmt.execute("ANALYZE");
+
+            System.out.println("Query indexes created successfully");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package Migrations;
+
+import Support.Migration;
+import Support.Timestamps;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Migration to store sale and expense timestamps as INTEGER epoch milliseconds.
+ * The sales table is rebuilt because its TEXT column would turn integers back into text; expenses.date has
+ * numeric affinity, so its text rows are rewritten in place. Legacy text is parsed with {@link Timestamps}.
+ */
+public class M009_StoreTimestampsAsEpochMillis implements Migration {
+
+    @Override
+    public String getName() {
+        return "009_store_timestamps_as_epoch_millis";
+    }
+
+    @Override
+    public void up(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE sales_new (" +
+                    "ID INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "Date INTEGER NOT NULL," +  // Epoch milliseconds
+                    "Total REAL NOT NULL," +
+                    "SID INTEGER," +
+                    "FOREIGN KEY (SID) REFERENCES staff(ID) ON DELETE SET NULL" +
+                    ")");
+            stmt.execute("INSERT INTO sales_new (ID, Date, Total, SID) SELECT ID, Date, Total, SID FROM sales");
+            convertTextTimestamps(conn, "sales_new", "ID", "Date");
+
+            stmt.execute("DROP TABLE sales");
+            stmt.execute("ALTER TABLE sales_new RENAME TO sales");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_date ON sales (Date)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_sid ON sales (SID)");
+
+            convertTextTimestamps(conn, "expenses", "id", "date");
+
+            stmt.execute("ANALYZE");
+            conn.commit();
+
+            System.out.println("Sale and expense timestamps converted to epoch milliseconds");
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Rewrite every text value of a timestamp column as epoch milliseconds.
+     * Values are read before any update so the scan never sees rows it has already rewritten.
+     */
+    private void convertTextTimestamps(Connection conn, String table, String idColumn, String dateColumn)
+            throws SQLException {
+        Map<Integer, Long> converted = new LinkedHashMap<>();
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery(
+                     "SELECT " + idColumn + ", " + dateColumn + " FROM " + table
+                             + " WHERE typeof(" + dateColumn + ") = 'text'")) {
+            while (rs.next()) {
+                converted.put(rs.getInt(1), Timestamps.parseLegacy(rs.getString(2)));
+            }
+        }
+
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE " + table + " SET " + dateColumn + " = ? WHERE " + idColumn + " = ?")) {
+            for (Map.Entry<Integer, Long> entry : converted.entrySet()) {
+                update.setLong(1, entry.getValue());
+                update.setInt(2, entry.getKey());
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package Migrations;
+
+import Repository.DailySalesRollup;
+import Support.Migration;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration to create the sales_daily_rollup table read by the sales dashboard, filled from the existing sales.
+ * The primary key (Day, SID) makes a date range a single index range, and WITHOUT ROWID keeps the rows in it.
+ */
+public class M011_CreateSalesDailyRollupTable implements Migration {
+
+    @Override
+    public String getName() {
+        return "011_create_sales_daily_rollup_table";
+    }
+
+    @Override
+    public void up(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS sales_daily_rollup (" +
+                    "Day INTEGER NOT NULL," +  // Local day number, days since 1970-01-01
+                    "SID INTEGER NOT NULL," +  // Staff ID, 0 for sales without staff
+                    "SaleCount INTEGER NOT NULL," +
+                    "Revenue REAL NOT NULL," +
+                    "ItemCount INTEGER NOT NULL," +
+                    "PRIMARY KEY (Day, SID)" +
+                    ") WITHOUT ROWID");
+
+            int rows = DailySalesRollup.rebuild(conn);
+            conn.commit();
+
+            System.out.println("Sales daily rollup table created with " + rows + " rows");
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
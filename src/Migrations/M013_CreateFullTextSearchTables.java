@@ -0,0 +1,69 @@
+package Migrations;
+
+import Support.Migration;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration to add FTS5 full-text indexes for the expense and sale searches.
+ * expenses_fts indexes expense names and descriptions, staff_fts staff names and usernames. Both are
+ * external-content tables keyed by the source rowid, so they store only the index; triggers keep them in
+ * step with every insert, update and delete.
+ * The prefix option indexes 2- and 3-character prefixes so the prefix queries typed into the search
+ * fields stay index lookups.
+ */
+public class M013_CreateFullTextSearchTables implements Migration {
+
+    @Override
+    public String getName() {
+        return "013_create_full_text_search_tables";
+    }
+
+    @Override
+    public void up(Connection conn) throws SQLException {
+        String[] statements = {
+                "CREATE VIRTUAL TABLE IF NOT EXISTS expenses_fts USING fts5(" +
+                        "name, description, content='expenses', content_rowid='id', prefix='2 3')",
+                "CREATE TRIGGER IF NOT EXISTS expenses_fts_insert AFTER INSERT ON expenses BEGIN " +
+                        "INSERT INTO expenses_fts (rowid, name, description) VALUES (new.id, new.name, new.description); " +
+                        "END",
+                "CREATE TRIGGER IF NOT EXISTS expenses_fts_delete AFTER DELETE ON expenses BEGIN " +
+                        "INSERT INTO expenses_fts (expenses_fts, rowid, name, description) " +
+                        "VALUES ('delete', old.id, old.name, old.description); " +
+                        "END",
+                "CREATE TRIGGER IF NOT EXISTS expenses_fts_update AFTER UPDATE OF name, description ON expenses BEGIN " +
+                        "INSERT INTO expenses_fts (expenses_fts, rowid, name, description) " +
+                        "VALUES ('delete', old.id, old.name, old.description); " +
+                        "INSERT INTO expenses_fts (rowid, name, description) VALUES (new.id, new.name, new.description); " +
+                        "END",
+
+                "CREATE VIRTUAL TABLE IF NOT EXISTS staff_fts USING fts5(" +
+                        "name, username, content='staff', content_rowid='id', prefix='2 3')",
+                "CREATE TRIGGER IF NOT EXISTS staff_fts_insert AFTER INSERT ON staff BEGIN " +
+                        "INSERT INTO staff_fts (rowid, name, username) VALUES (new.id, new.name, new.username); " +
+                        "END",
+                "CREATE TRIGGER IF NOT EXISTS staff_fts_delete AFTER DELETE ON staff BEGIN " +
+                        "INSERT INTO staff_fts (staff_fts, rowid, name, username) " +
+                        "VALUES ('delete', old.id, old.name, old.username); " +
+                        "END",
+                "CREATE TRIGGER IF NOT EXISTS staff_fts_update AFTER UPDATE OF name, username ON staff BEGIN " +
+                        "INSERT INTO staff_fts (staff_fts, rowid, name, username) " +
+                        "VALUES ('delete', old.id, old.name, old.username); " +
+                        "INSERT INTO staff_fts (rowid, name, username) VALUES (new.id, new.name, new.username); " +
+                        "END",
+
+                // Index the rows that already exist
+                "INSERT INTO expenses_fts (expenses_fts) VALUES ('rebuild')",
+                "INSERT INTO staff_fts (staff_fts) VALUES ('rebuild')"
+        };
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+
+            System.out.println("Full-text search tables created successfully");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package Migrations;
+
+import Support.Migration;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration to index sales by (Total, ID), so the sales list sorted by total finds a position from the
+ * index alone, as it does by date through the covering (Date, ID, Total) index.
+ */
+public class M014_AddSalesTotalIndex implements Migration {
+
+    @Override
+    public String getName() {
+        return "014_add_sales_total_index";
+    }
+
+    @Override
+    public void up(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_total_id ON sales (Total, ID)");
+            stmt.execute("ANALYZE sales");
+
+            System.out.println("Sales total index created successfully");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package Model;
+
+import java.math.BigDecimal;
+
+/**
+ * Model class representing the aggregate figures of the sales in a date range.
+ */
+public class SaleSummary {
+    private final int count;
+    private final BigDecimal total;
+    private final BigDecimal average;
+    private final BigDecimal minimum;
+    private final BigDecimal maximum;
+
+    /**
+     * Constructor for SaleSummary.
+     *
+     * @param count The number of sales
+     * @param total The sum of the sale totals
+     * @param average The average sale total
+     * @param minimum The smallest sale total
+     * @param maximum The largest sale total
+     */
+    public SaleSummary(int count, BigDecimal total, BigDecimal average, BigDecimal minimum, BigDecimal maximum) {
+        this.count = count;
+        this.total = total;
+        this.average = average;
+        this.minimum = minimum;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Get the number of sales.
+     *
+     * @return The number of sales
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of the sale totals.
+     *
+     * @return The total amount, zero when there are no sales
+     */
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the average sale total.
+     *
+     * @return The average amount, zero when there are no sales
+     */
+    public BigDecimal getAverage() {
+        return average;
+    }
+
+    /**
+     * Get the smallest sale total.
+     *
+     * @return The smallest amount, zero when there are no sales
+     */
+    public BigDecimal getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Get the largest sale total.
+     *
+     * @return The largest amount, zero when there are no sales
+     */
+    public BigDecimal getMaximum() {
+        return maximum;
+    }
+
+    @Override
+    public String toString() {
+        return "SaleSummary{" +
+                "count=" + count +
+                ", total=" + total +
+                ", average=" + average +
+                ", minimum=" + minimum +
+                ", maximum=" + maximum +
+                '}';
+    }
+}
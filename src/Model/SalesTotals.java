@@ -0,0 +1,74 @@
+package Model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Model class representing the sales totals of a range of days, as kept by the daily sales rollup.
+ */
+public class SalesTotals {
+    private final int saleCount;
+    private final BigDecimal revenue;
+    private final int itemCount;
+
+    /**
+     * Constructor for SalesTotals.
+     *
+     * @param saleCount The number of sales
+     * @param revenue The sum of the sale totals
+     * @param itemCount The number of items sold
+     */
+    public SalesTotals(int saleCount, BigDecimal revenue, int itemCount) {
+        this.saleCount = saleCount;
+        this.revenue = revenue;
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Get the number of sales.
+     *
+     * @return The number of sales
+     */
+    public int getSaleCount() {
+        return saleCount;
+    }
+
+    /**
+     * Get the sum of the sale totals.
+     *
+     * @return The revenue, zero when there are no sales
+     */
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Get the number of items sold.
+     *
+     * @return The number of items
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Get the average sale total.
+     *
+     * @return The average amount, zero when there are no sales
+     */
+    public BigDecimal getAverage() {
+        if (saleCount == 0) {
+            return revenue;
+        }
+        return revenue.divide(BigDecimal.valueOf(saleCount), 2, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public String toString() {
+        return "SalesTotals{" +
+                "saleCount=" + saleCount +
+                ", revenue=" + revenue +
+                ", itemCount=" + itemCount +
+                '}';
+    }
+}
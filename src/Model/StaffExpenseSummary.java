@@ -0,0 +1,27 @@
+package Model;
+
+import java.math.BigDecimal;
+
+public class StaffExpenseSummary {
+    private final Staff staff;
+    private final int expenseCount;
+    private final BigDecimal totalExpenseAmount;
+
+    public StaffExpenseSummary(Staff staff, int expenseCount, BigDecimal totalExpenseAmount) {
+        this.staff = staff;
+        this.expenseCount = expenseCount;
+        this.totalExpenseAmount = totalExpenseAmount;
+    }
+
+    public Staff getStaff() {
+        return staff;
+    }
+
+    public int getExpenseCount() {
+        return expenseCount;
+    }
+
+    public BigDecimal getTotalExpenseAmount() {
+        return totalExpenseAmount;
+    }
+}
@@ -0,0 +1,94 @@
+package Repository;
+
+import Model.Product;
+import Model.ProductWithCategory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Product repository that serves catalog reads from the shared {@link ProductCatalogCache}.
+ * Lookups by ID and the full catalog read through the cache; pages, searches and per-category lists still go
+ * to the database. Writes go straight to the database; the cache drops what they changed when their
+ * change events are published on commit.
+ */
+public class CachingProductRepository extends ProductRepository {
+    private final ProductCatalogCache cache;
+
+    /**
+     * Constructor for CachingProductRepository, using the shared cache.
+     */
+    public CachingProductRepository() {
+        this(ProductCatalogCache.shared());
+    }
+
+    /**
+     * Constructor for CachingProductRepository.
+     *
+     * @param cache The cache to read through
+     */
+    public CachingProductRepository(ProductCatalogCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public List<ProductWithCategory> getAllProductsWithCategories() {
+        Optional<List<ProductWithCategory>> cached = cache.getCatalog();
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        long generation = cache.generation();
+        List<ProductWithCategory> products = super.getAllProductsWithCategories();
+        cache.putCatalog(products, generation);
+        return products;
+    }
+
+    @Override
+    public Optional<Product> getProductById(int productId) {
+        return getProductWithCategoryById(productId).map(ProductWithCategory::getProduct);
+    }
+
+    @Override
+    public Optional<ProductWithCategory> getProductWithCategoryById(int productId) {
+        Optional<ProductWithCategory> cached = cache.get(productId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        long generation = cache.generation();
+        Optional<ProductWithCategory> product = super.getProductWithCategoryById(productId);
+        product.ifPresent(p -> cache.putAll(List.of(p), generation));
+        return product;
+    }
+
+    @Override
+    public List<Product> getProductsByIds(Collection<Integer> productIds) {
+        List<Product> products = new ArrayList<>();
+        for (ProductWithCategory product : getProductsWithCategoriesByIds(productIds)) {
+            products.add(product.getProduct());
+        }
+        return products;
+    }
+
+    @Override
+    public List<ProductWithCategory> getProductsWithCategoriesByIds(Collection<Integer> productIds) {
+        Map<Integer, ProductWithCategory> cached = cache.getAll(productIds);
+        List<ProductWithCategory> products = new ArrayList<>(cached.values());
+
+        // Read only the misses, in one query
+        Set<Integer> missing = new LinkedHashSet<>(productIds);
+        missing.removeAll(cached.keySet());
+        if (!missing.isEmpty()) {
+            long generation = cache.generation();
+            List<ProductWithCategory> loaded = super.getProductsWithCategoriesByIds(missing);
+            cache.putAll(loaded, generation);
+            products.addAll(loaded);
+        }
+        return products;
+    }
+}
@@ -1,18 +1,23 @@
 package Repository;
 
+import Event.CategoryChanged;
+import Event.ChangeEvent.Change;
 import Model.Category;
+import Support.Async;
 import Support.DB;
+import Support.EventBus;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repository class for handling database operations related to categories.
  */
 public class CategoryRepository {
+    private final AsyncView asyncView = new AsyncView();
 
     /**
      * Get all categories from the database.
@@ -20,22 +25,13 @@ public class CategoryRepository {
      * @return List of categories
      */
     public List<Category> getAllCategories() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<Category> categories = new ArrayList<>();
-                Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery("SELECT CatID, CatName FROM category ORDER BY CatName");
-                
-                while (rs.next()) {
-                    categories.add(
-                        new Category(
-                            rs.getInt("CatID"),
-                            rs.getString("CatName")
-                        )
-                    );
-                }
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT CatID, CatName FROM category ORDER BY CatName"
+                );
                 
-                return categories;
+                return Mappers.CATEGORY.list(stmt.executeQuery());
             }
         );
     }
@@ -47,24 +43,14 @@ public class CategoryRepository {
      * @return Optional containing the category if found, empty otherwise
      */
     public Optional<Category> getCategoryById(int categoryId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT CatID, CatName FROM category WHERE CatID = ?"
                 );
                 stmt.setInt(1, categoryId);
-                ResultSet rs = stmt.executeQuery();
-                
-                if (!rs.next()) {
-                    return Optional.empty();
-                }
                 
-                return Optional.of(
-                    new Category(
-                        rs.getInt("CatID"),
-                        rs.getString("CatName")
-                    )
-                );
+                return Mappers.CATEGORY.first(stmt.executeQuery());
             }
         );
     }
@@ -76,7 +62,7 @@ public class CategoryRepository {
      * @return The created category
      */
     public Category createCategory(String name) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "INSERT INTO category (CatName) VALUES (?)",
@@ -88,8 +74,10 @@ public class CategoryRepository {
                 
                 ResultSet generatedKeys = stmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
+                    int categoryId = generatedKeys.getInt(1);
+                    EventBus.publishAfterCommit(new CategoryChanged(Change.CREATED, List.of(categoryId)));
                     return new Category(
-                        generatedKeys.getInt(1),
+                        categoryId,
                         name
                     );
                 } else {
@@ -106,7 +94,7 @@ public class CategoryRepository {
      * @return True if the update was successful, false otherwise
      */
     public boolean updateCategory(Category category) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "UPDATE category SET CatName = ? WHERE CatID = ?"
@@ -114,30 +102,55 @@ public class CategoryRepository {
                 stmt.setString(1, category.getName());
                 stmt.setInt(2, category.getId());
                 
-                return stmt.executeUpdate() > 0;
+                return published(stmt.executeUpdate() > 0, Change.UPDATED, category.getId());
             }
         );
     }
     
     /**
-     * Delete a category.
+     * Delete a category. Its products are kept without a category, in the same transaction.
      * 
      * @param categoryId The ID of the category to delete
      * @return True if the deletion was successful, false otherwise
      */
     public boolean deleteCategory(int categoryId) {
-        return DB.unsafeExecute(
+        return DB.unsafeTransaction(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "DELETE FROM category WHERE CatID = ?"
                 );
                 stmt.setInt(1, categoryId);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+                
+                // Foreign keys are not enforced, so the products are not cleared by ON DELETE SET NULL
+                PreparedStatement clearProducts = connection.prepareStatement(
+                    "UPDATE product SET CatID = NULL WHERE CatID = ?"
+                );
+                clearProducts.setInt(1, categoryId);
+                clearProducts.executeUpdate();
                 
-                return stmt.executeUpdate() > 0;
+                return published(true, Change.DELETED, categoryId);
             }
         );
     }
     
+    /**
+     * Announce a category write once it commits, if it changed a row.
+     * 
+     * @param changed Whether the write changed the category
+     * @param change What happened to it
+     * @param categoryId The category ID
+     * @return Whether the write changed the category
+     */
+    private static boolean published(boolean changed, Change change, int categoryId) {
+        if (changed) {
+            EventBus.publishAfterCommit(new CategoryChanged(change, List.of(categoryId)));
+        }
+        return changed;
+    }
+    
     /**
      * Check if a category with the given name exists.
      * 
@@ -145,7 +158,7 @@ public class CategoryRepository {
      * @return True if a category with the name exists, false otherwise
      */
     public boolean categoryNameExists(String name) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT COUNT(*) FROM category WHERE CatName = ?"
@@ -158,4 +171,31 @@ public class CategoryRepository {
             }
         );
     }
-} 
\ No newline at end of file
+
+    /**
+     * Get the asynchronous view of this repository.
+     * 
+     * @return Query methods that run on virtual threads and return futures
+     */
+    public AsyncView async() {
+        return asyncView;
+    }
+
+    /**
+     * Asynchronous versions of the query methods, run on virtual threads through {@link Async}.
+     * Writes are not included; they already queue on the database writer thread.
+     */
+    public final class AsyncView {
+        public CompletableFuture<List<Category>> getAllCategories() {
+            return Async.supply(() -> CategoryRepository.this.getAllCategories());
+        }
+
+        public CompletableFuture<Optional<Category>> getCategoryById(int categoryId) {
+            return Async.supply(() -> CategoryRepository.this.getCategoryById(categoryId));
+        }
+
+        public CompletableFuture<Boolean> categoryNameExists(String name) {
+            return Async.supply(() -> CategoryRepository.this.categoryNameExists(name));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package Repository;
+
+import Support.Timestamps;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the sales_daily_rollup table: one row per local day and staff member with the number of sales,
+ * their revenue and the number of items sold. Sales without staff are counted under staff 0.
+ * Every method works on the caller's connection, so the rollup changes commit or roll back with the sale
+ * that caused them.
+ */
+public final class DailySalesRollup {
+    private DailySalesRollup() {
+    }
+
+    /**
+     * Get the rollup day of a date, the day number of its local date in the system time zone.
+     *
+     * @param date The date
+     * @return Days since 1970-01-01
+     */
+    public static long day(Date date) {
+        return day(Timestamps.toEpochMillis(date));
+    }
+
+    /**
+     * Get the rollup day of a local date.
+     *
+     * @param date The local date
+     * @return Days since 1970-01-01
+     */
+    public static long day(LocalDate date) {
+        return date.toEpochDay();
+    }
+
+    /**
+     * Add a sale to the rollup.
+     *
+     * @param conn The connection of the transaction writing the sale
+     * @param date The sale date
+     * @param staffId The staff ID, or 0 for none
+     * @param total The sale total
+     * @param items The number of items sold
+     * @throws SQLException If the rollup cannot be updated
+     */
+    public static void add(Connection conn, Date date, int staffId, BigDecimal total, int items) throws SQLException {
+        apply(conn, day(date), staffId, 1, total, items);
+    }
+
+    /**
+     * Remove a sale from the rollup, dropping the day's row once it has no sales left.
+     *
+     * @param conn The connection of the transaction deleting the sale
+     * @param date The sale date
+     * @param staffId The staff ID, or 0 for none
+     * @param total The sale total
+     * @param items The number of items sold
+     * @throws SQLException If the rollup cannot be updated
+     */
+    public static void remove(Connection conn, Date date, int staffId, BigDecimal total, int items) throws SQLException {
+        long day = day(date);
+        apply(conn, day, staffId, -1, total.negate(), -items);
+
+        PreparedStatement stmt = conn.prepareStatement(
+            "DELETE FROM sales_daily_rollup WHERE Day = ? AND SID = ? AND SaleCount <= 0"
+        );
+        stmt.setLong(1, day);
+        stmt.setInt(2, staffId);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Move a staff member's rollup rows to staff 0, where sales without staff are counted. Called when the
+     * staff member is deleted, after the SID of their sales has been cleared.
+     *
+     * @param conn The connection of the transaction deleting the staff member
+     * @param staffId The staff ID
+     * @throws SQLException If the rollup cannot be updated
+     */
+    public static void detachStaff(Connection conn, int staffId) throws SQLException {
+        PreparedStatement move = conn.prepareStatement(
+            "INSERT INTO sales_daily_rollup (Day, SID, SaleCount, Revenue, ItemCount) " +
+            "SELECT Day, 0, SaleCount, Revenue, ItemCount FROM sales_daily_rollup WHERE SID = ? " +
+            "ON CONFLICT (Day, SID) DO UPDATE SET " +
+            "SaleCount = SaleCount + excluded.SaleCount, " +
+            "Revenue = Revenue + excluded.Revenue, " +
+            "ItemCount = ItemCount + excluded.ItemCount"
+        );
+        move.setInt(1, staffId);
+        move.executeUpdate();
+
+        PreparedStatement delete = conn.prepareStatement("DELETE FROM sales_daily_rollup WHERE SID = ?");
+        delete.setInt(1, staffId);
+        delete.executeUpdate();
+    }
+
+    /**
+     * Recompute the whole rollup from the sales and sale_details tables.
+     * Days are computed here rather than in SQL so they follow the same time zone as {@link #add}.
+     *
+     * @param conn The connection, which should be in a transaction
+     * @return The number of rollup rows written
+     * @throws SQLException If the rollup cannot be rebuilt
+     */
+    public static int rebuild(Connection conn) throws SQLException {
+        Map<List<Long>, Totals> rollup = new LinkedHashMap<>();
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery(
+                 "SELECT s.Date, COALESCE(s.SID, 0), s.Total, " +
+                 "COALESCE((SELECT SUM(sd.Qty) FROM sale_details sd WHERE sd.ID = s.ID), 0) " +
+                 "FROM sales s"
+             )) {
+            while (rs.next()) {
+                long day = day(rs.getLong(1));
+                Totals totals = rollup.computeIfAbsent(List.of(day, rs.getLong(2)), key -> new Totals());
+                totals.sales++;
+                totals.revenue = totals.revenue.add(rs.getBigDecimal(3));
+                totals.items += rs.getLong(4);
+            }
+        }
+
+        try (Statement clear = conn.createStatement()) {
+            clear.executeUpdate("DELETE FROM sales_daily_rollup");
+        }
+
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO sales_daily_rollup (Day, SID, SaleCount, Revenue, ItemCount) VALUES (?, ?, ?, ?, ?)"
+        )) {
+            for (Map.Entry<List<Long>, Totals> entry : rollup.entrySet()) {
+                insert.setLong(1, entry.getKey().get(0));
+                insert.setLong(2, entry.getKey().get(1));
+                insert.setLong(3, entry.getValue().sales);
+                insert.setBigDecimal(4, entry.getValue().revenue);
+                insert.setLong(5, entry.getValue().items);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        return rollup.size();
+    }
+
+    private static long day(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    private static void apply(Connection conn, long day, int staffId, int sales, BigDecimal revenue, int items)
+            throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+            "INSERT INTO sales_daily_rollup (Day, SID, SaleCount, Revenue, ItemCount) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (Day, SID) DO UPDATE SET " +
+            "SaleCount = SaleCount + excluded.SaleCount, " +
+            "Revenue = Revenue + excluded.Revenue, " +
+            "ItemCount = ItemCount + excluded.ItemCount"
+        );
+        stmt.setLong(1, day);
+        stmt.setInt(2, staffId);
+        stmt.setInt(3, sales);
+        stmt.setBigDecimal(4, revenue);
+        stmt.setInt(5, items);
+        stmt.executeUpdate();
+    }
+
+    private static final class Totals {
+        private long sales;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long items;
+    }
+}
@@ -1,82 +1,106 @@
 package Repository;
 
+import Event.ChangeEvent.Change;
+import Event.ExpenseChanged;
 import Model.Expense;
 import Model.ExpenseWithStaff;
-import Model.Staff;
+import Support.Async;
 import Support.DB;
-import java.sql.*;
+import Support.EventBus;
+import Support.Timestamps;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class ExpenseRepository {
+    /**
+     * Expense ids matching a full-text query, each with its best bm25 score (lower is better): expenses whose
+     * name or description match, and every expense of staff whose name or username match.
+     */
+    private static final String FULL_TEXT_HITS =
+            "SELECT id, MIN(score) as score FROM ("
+                    + "SELECT rowid as id, bm25(expenses_fts) as score FROM expenses_fts WHERE expenses_fts MATCH ? "
+                    + "UNION ALL "
+                    + "SELECT x.id, bm25(staff_fts) FROM staff_fts JOIN expenses x ON x.staff_id = staff_fts.rowid "
+                    + "WHERE staff_fts MATCH ?"
+                    + ") GROUP BY id";
+
+    private final AsyncView asyncView = new AsyncView();
 
     public ExpenseRepository() {}
 
     public Optional<Expense> getExpenseById(int expenseId) {
-        return DB.unsafeExecute(connection -> {
-            var stmt = connection.prepareStatement("SELECT * FROM expenses WHERE id = ?");
+        return DB.unsafeRead(connection -> {
+            PreparedStatement stmt = connection.prepareStatement("SELECT * FROM expenses WHERE id = ?");
             stmt.setInt(1, expenseId);
-            var rs = stmt.executeQuery();
 
-            if (!rs.next()) {
-                return Optional.empty();
-            }
-
-            return Optional.of(
-                    new Expense(
-                            rs.getInt("id"),
-                            rs.getDate("date"),
-                            rs.getString("name"),
-                            rs.getString("description"),
-                            rs.getBigDecimal("amount"),
-                            rs.getString("picture"),
-                            rs.getInt("staff_id")));
+            return Mappers.EXPENSE.first(stmt.executeQuery());
         });
     }
 
     public List<Expense> getAllExpenses() {
-        return DB.unsafeExecute(connection -> {
-            List<Expense> expenseList = new ArrayList<Expense>();
-            Statement stmt = connection.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT * FROM expenses");
-
-            while (rs.next()) {
-                expenseList.add(
-                        new Expense(
-                                rs.getInt("id"),
-                                rs.getDate("date"),
-                                rs.getString("name"),
-                                rs.getString("description"),
-                                rs.getBigDecimal("amount"),
-                                rs.getString("picture"),
-                                rs.getInt("staff_id")));
-            }
+        return DB.unsafeRead(connection -> {
+            PreparedStatement stmt = connection.prepareStatement("SELECT * FROM expenses");
+
+            return Mappers.EXPENSE.list(stmt.executeQuery());
+        });
+    }
 
-            return expenseList;
+    /**
+     * Get the expenses of one staff member, newest first, from the (staff_id, date) index.
+     *
+     * @param staffId The staff ID
+     * @return The staff member's expenses
+     */
+    public List<Expense> getExpensesByStaffId(int staffId) {
+        return DB.unsafeRead(connection -> {
+            PreparedStatement stmt =
+                    connection.prepareStatement(
+                            "SELECT * FROM expenses WHERE staff_id = ? ORDER BY date DESC, id DESC");
+            stmt.setInt(1, staffId);
+
+            return Mappers.EXPENSE.list(stmt.executeQuery());
         });
     }
 
+    /**
+     * Stream all expenses without loading them into memory.
+     * The stream holds a database connection until it is closed, so use it with try-with-resources.
+     */
+    public Stream<Expense> streamAllExpenses() {
+        return DB.unsafeStream("SELECT * FROM expenses", null, Mappers.EXPENSE);
+    }
+
     public boolean addExpense(String name, String description, double amount, int staffId) {
-        return DB.unsafeExecute(connection -> {
+        return DB.unsafeWrite(connection -> {
             PreparedStatement stmt =
                     connection.prepareStatement(
-                            "INSERT INTO expenses (name, date, description, amount, staff_id) VALUES (?, ?, ?, ?, ?)");
-            java.sql.Date date = new java.sql.Date(System.currentTimeMillis());
+                            "INSERT INTO expenses (name, date, description, amount, staff_id) VALUES (?, ?, ?, ?, ?)",
+                            Statement.RETURN_GENERATED_KEYS);
             stmt.setString(1, name);
-            stmt.setDate(2, date);
+            Timestamps.bind(stmt, 2, new Date());
             stmt.setString(3, description);
             stmt.setDouble(4, amount);
             stmt.setInt(5, staffId);
 
             int rowsAffected = stmt.executeUpdate();
+            ResultSet generatedKeys = stmt.getGeneratedKeys();
+            if (rowsAffected > 0 && generatedKeys.next()) {
+                EventBus.publishAfterCommit(new ExpenseChanged(Change.CREATED, List.of(generatedKeys.getInt(1))));
+            }
             return rowsAffected > 0;
         });
     }
 
     public boolean updateExpense(
             int expenseId, String name, String description, double amount, int staffId) {
-        return DB.unsafeExecute(connection -> {
+        return DB.unsafeWrite(connection -> {
             PreparedStatement stmt =
                     connection.prepareStatement(
                             "UPDATE expenses SET name = ?, description = ?, amount = ?, staff_id = ? WHERE id = ?");
@@ -87,23 +111,30 @@ public class ExpenseRepository {
             stmt.setInt(5, expenseId);
 
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            return published(rowsAffected > 0, Change.UPDATED, expenseId);
         });
     }
 
     public boolean deleteExpense(int expenseId) {
-        return DB.unsafeExecute(connection -> {
+        return DB.unsafeWrite(connection -> {
             PreparedStatement stmt =
                     connection.prepareStatement("DELETE FROM expenses WHERE id = ?");
             stmt.setInt(1, expenseId);
 
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            return published(rowsAffected > 0, Change.DELETED, expenseId);
         });
     }
 
+    private static boolean published(boolean changed, Change change, int expenseId) {
+        if (changed) {
+            EventBus.publishAfterCommit(new ExpenseChanged(change, List.of(expenseId)));
+        }
+        return changed;
+    }
+
     public Optional<ExpenseWithStaff> getExpenseWithStaffById(int expenseId) {
-        return DB.unsafeExecute(connection -> {
+        return DB.unsafeRead(connection -> {
             PreparedStatement stmt =
                     connection.prepareStatement(
                             "SELECT e.*, s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role "
@@ -111,115 +142,152 @@ public class ExpenseRepository {
                                     + "JOIN staff s ON e.staff_id = s.id "
                                     + "WHERE e.id = ?");
             stmt.setInt(1, expenseId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (!rs.next()) {
-                return Optional.empty();
-            }
 
-            Expense expense =
-                    new Expense(
-                            rs.getInt("id"),
-                            rs.getDate("date"),
-                            rs.getString("name"),
-                            rs.getString("description"),
-                            rs.getBigDecimal("amount"),
-                            rs.getString("picture"),
-                            rs.getInt("staff_id"));
-
-            Staff staff =
-                    new Staff(
-                            rs.getInt("s_id"),
-                            rs.getString("staff_name"),
-                            rs.getString("position"),
-                            rs.getString("username"),
-                            rs.getString("password"),
-                            rs.getString("role"));
-
-            return Optional.of(new ExpenseWithStaff(expense, staff));
+            return Mappers.EXPENSE_WITH_STAFF.first(stmt.executeQuery());
         });
     }
 
     public List<ExpenseWithStaff> searchExpensesWithStaff(String searchTerm) {
-        return DB.unsafeExecute(connection -> {
-            List<ExpenseWithStaff> results = new ArrayList<ExpenseWithStaff>();
-
-            PreparedStatement stmt =
-                    connection.prepareStatement(
-                            "SELECT e.*, s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role "
-                                    + "FROM expenses e "
-                                    + "JOIN staff s ON e.staff_id = s.id "
-                                    + "WHERE e.name LIKE ? OR s.name LIKE ?");
-
-            String likeParam = "%" + searchTerm + "%";
-
-            stmt.setString(1, likeParam);
-
-            stmt.setString(2, likeParam);
-
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Expense expense =
-                        new Expense(
-                                rs.getInt("id"),
-                                rs.getDate("date"),
-                                rs.getString("name"),
-                                rs.getString("description"),
-                                rs.getBigDecimal("amount"),
-                                rs.getString("picture"),
-                                rs.getInt("staff_id"));
-
-                Staff staff =
-                        new Staff(
-                                rs.getInt("s_id"),
-                                rs.getString("staff_name"),
-                                rs.getString("position"),
-                                rs.getString("username"),
-                                rs.getString("password"),
-                                rs.getString("role"));
+        return findExpensesWithStaff(searchTerm, 0, null, null);
+    }
 
-                results.add(new ExpenseWithStaff(expense, staff));
+    /**
+     * Find expenses with their staff, filtering in SQL on the criteria that are given.
+     * A date range is answered from the date index, or from the (staff_id, date) index together with a staff ID.
+     * A search term is looked up in the full-text indexes: every word must prefix a word of the expense name
+     * or description, or of the staff member's name or username. Matches are ranked by bm25 relevance,
+     * then newest first; without a search term expenses are listed newest first.
+     *
+     * @param searchTerm Words to search for, or null or empty for any
+     * @param staffId The staff ID, or 0 for any staff
+     * @param from Only expenses at or after this date, or null for no lower bound
+     * @param to Only expenses before this date, or null for no upper bound
+     * @return The matching expenses
+     */
+    public List<ExpenseWithStaff> findExpensesWithStaff(String searchTerm, int staffId, Date from, Date to) {
+        String match = FullTextQuery.prefixMatch(searchTerm);
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (match != null) {
+            params.add(match);
+            params.add(match);
+        }
+        if (from != null) {
+            conditions.add("e.date >= ?");
+            params.add(Timestamps.toEpochMillis(from));
+        }
+        if (to != null) {
+            conditions.add("e.date < ?");
+            params.add(Timestamps.toEpochMillis(to));
+        }
+        if (staffId > 0) {
+            conditions.add("e.staff_id = ?");
+            params.add(staffId);
+        }
+
+        String sql = "SELECT e.*, s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role "
+                + (match == null ? "FROM expenses e " : "FROM (" + FULL_TEXT_HITS + ") hits JOIN expenses e ON e.id = hits.id ")
+                + "JOIN staff s ON e.staff_id = s.id "
+                + (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ")
+                + (match == null ? "ORDER BY " : "ORDER BY hits.score, ")
+                + "e.date DESC, e.id DESC";
+
+        return DB.unsafeRead(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(sql);
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
             }
 
-            return results;
+            return Mappers.EXPENSE_WITH_STAFF.list(stmt.executeQuery());
         });
     }
 
     public List<ExpenseWithStaff> getAllExpensesWithStaff() {
-        return DB.unsafeExecute(connection -> {
-            List<ExpenseWithStaff> expensesWithStaff = new ArrayList<ExpenseWithStaff>();
-            Statement stmt = connection.createStatement();
-            ResultSet rs =
-                    stmt.executeQuery(
+        return DB.unsafeRead(connection -> {
+            PreparedStatement stmt =
+                    connection.prepareStatement(
                             "SELECT e.*, s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role "
                                     + "FROM expenses e "
                                     + "JOIN staff s ON e.staff_id = s.id");
 
-            while (rs.next()) {
-                Expense expense =
-                        new Expense(
-                                rs.getInt("id"),
-                                rs.getDate("date"),
-                                rs.getString("name"),
-                                rs.getString("description"),
-                                rs.getBigDecimal("amount"),
-                                rs.getString("picture"),
-                                rs.getInt("staff_id"));
-
-                Staff staff =
-                        new Staff(
-                                rs.getInt("s_id"),
-                                rs.getString("staff_name"),
-                                rs.getString("position"),
-                                rs.getString("username"),
-                                rs.getString("password"),
-                                rs.getString("role"));
-
-                expensesWithStaff.add(new ExpenseWithStaff(expense, staff));
-            }
+            return Mappers.EXPENSE_WITH_STAFF.list(stmt.executeQuery());
+        });
+    }
 
-            return expensesWithStaff;
+    /**
+     * Stream all expenses with their staff without loading them into memory.
+     * The stream holds a database connection until it is closed, so use it with try-with-resources.
+     */
+    public Stream<ExpenseWithStaff> streamAllExpensesWithStaff() {
+        return DB.unsafeStream(
+                "SELECT e.*, s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role "
+                        + "FROM expenses e "
+                        + "JOIN staff s ON e.staff_id = s.id",
+                null,
+                Mappers.EXPENSE_WITH_STAFF);
+    }
+
+    /**
+     * Get one page of expenses with their staff, newest first.
+     *
+     * @param after The last expense of the previous page, or null for the first page
+     * @param size The maximum number of expenses in the page
+     * @return The page of expenses
+     */
+    public Page<ExpenseWithStaff> getExpensesWithStaffPage(ExpenseWithStaff after, int size) {
+        return DB.unsafeRead(connection -> {
+            PreparedStatement stmt =
+                    connection.prepareStatement(
+                            "SELECT e.*, s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role "
+                                    + "FROM expenses e "
+                                    + "JOIN staff s ON e.staff_id = s.id "
+                                    + "WHERE e.id < ? "
+                                    + "ORDER BY e.id DESC "
+                                    + "LIMIT ?");
+            stmt.setInt(1, after == null ? Integer.MAX_VALUE : after.getExpense().getId());
+            stmt.setInt(2, size + 1);
+
+            return Page.of(Mappers.EXPENSE_WITH_STAFF.list(stmt.executeQuery()), size);
         });
     }
+
+    /**
+     * Get the asynchronous view of this repository.
+     * 
+     * @return Query methods that run on virtual threads and return futures
+     */
+    public AsyncView async() {
+        return asyncView;
+    }
+
+    /**
+     * Asynchronous versions of the query methods, run on virtual threads through {@link Async}.
+     * Writes are not included; they already queue on the database writer thread.
+     */
+    public final class AsyncView {
+        public CompletableFuture<Optional<Expense>> getExpenseById(int expenseId) {
+            return Async.supply(() -> ExpenseRepository.this.getExpenseById(expenseId));
+        }
+
+        public CompletableFuture<List<Expense>> getAllExpenses() {
+            return Async.supply(() -> ExpenseRepository.this.getAllExpenses());
+        }
+
+        public CompletableFuture<Optional<ExpenseWithStaff>> getExpenseWithStaffById(int expenseId) {
+            return Async.supply(() -> ExpenseRepository.this.getExpenseWithStaffById(expenseId));
+        }
+
+        public CompletableFuture<List<ExpenseWithStaff>> searchExpensesWithStaff(String searchTerm) {
+            return Async.supply(() -> ExpenseRepository.this.searchExpensesWithStaff(searchTerm));
+        }
+
+        public CompletableFuture<List<ExpenseWithStaff>> findExpensesWithStaff(
+                String searchTerm, int staffId, Date from, Date to) {
+            return Async.supply(() -> ExpenseRepository.this.findExpensesWithStaff(searchTerm, staffId, from, to));
+        }
+
+        public CompletableFuture<List<ExpenseWithStaff>> getAllExpensesWithStaff() {
+            return Async.supply(() -> ExpenseRepository.this.getAllExpensesWithStaff());
+        }
+    }
 }
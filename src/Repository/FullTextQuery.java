@@ -0,0 +1,35 @@
+package Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds FTS5 MATCH expressions from text typed into a search field.
+ * The text is split into words the way the unicode61 tokenizer splits them, and each word becomes a quoted
+ * prefix query, so "cof mach" finds "Coffee machine" and punctuation in the input is never read as FTS syntax.
+ */
+final class FullTextQuery {
+    private FullTextQuery() {
+    }
+
+    /**
+     * Build a query matching rows that contain every word of the text as a word prefix.
+     *
+     * @param text The search text
+     * @return The MATCH expression, or null if the text has no words
+     */
+    static String prefixMatch(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                terms.add("\"" + word + "\"*");
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" ", terms);
+    }
+}
@@ -0,0 +1,264 @@
+package Repository;
+
+import Model.*;
+import Repository.RowMapper.Columns;
+import Support.Timestamps;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Shared row mappers for the models, used by every repository.
+ * Each mapper expects the column labels of the queries in this package; composites read
+ * the joined staff columns under the aliases used by those queries.
+ */
+public final class Mappers {
+    /**
+     * Maps PID, PName, Sqty, Price, Image and CatID.
+     */
+    public static final RowMapper<Product> PRODUCT = rs -> {
+        Columns columns = Columns.of(rs);
+        int id = columns.index("PID");
+        int name = columns.index("PName");
+        int stock = columns.index("Sqty");
+        int price = columns.index("Price");
+        int image = columns.index("Image");
+        int categoryId = columns.index("CatID");
+
+        return row -> new Product(
+            row.getInt(id),
+            row.getString(name),
+            row.getInt(stock),
+            row.getBigDecimal(price),
+            row.getString(image),
+            row.getInt(categoryId)
+        );
+    };
+
+    /**
+     * Maps CatID and CatName.
+     */
+    public static final RowMapper<Category> CATEGORY = rs -> {
+        Columns columns = Columns.of(rs);
+        int id = columns.index("CatID");
+        int name = columns.index("CatName");
+
+        return row -> new Category(row.getInt(id), row.getString(name));
+    };
+
+    /**
+     * Maps a product with the CatName of its category, or no category when CatID is not set.
+     */
+    public static final RowMapper<ProductWithCategory> PRODUCT_WITH_CATEGORY = rs -> {
+        RowMapper.Row<Product> product = PRODUCT.bind(rs);
+        Columns columns = Columns.of(rs);
+        int categoryName = columns.index("CatName");
+
+        return row -> {
+            Product mapped = product.map(row);
+            Category category = mapped.getCategoryId() > 0
+                ? new Category(mapped.getCategoryId(), row.getString(categoryName))
+                : null;
+            return new ProductWithCategory(mapped, category);
+        };
+    };
+
+    /**
+     * Maps id, name, position, username, password and role.
+     */
+    public static final RowMapper<Staff> STAFF = staff("id", "name");
+
+    /**
+     * Maps staff joined with another table, selected as s_id and staff_name plus the other staff columns.
+     */
+    public static final RowMapper<Staff> JOINED_STAFF = staff("s_id", "staff_name");
+
+    /**
+     * Maps id, date, name, description, amount, picture and staff_id.
+     */
+    public static final RowMapper<Expense> EXPENSE = rs -> {
+        Columns columns = Columns.of(rs);
+        int id = columns.index("id");
+        int date = columns.index("date");
+        int name = columns.index("name");
+        int description = columns.index("description");
+        int amount = columns.index("amount");
+        int picture = columns.index("picture");
+        int staffId = columns.index("staff_id");
+
+        return row -> new Expense(
+            row.getInt(id),
+            Timestamps.read(row, date),
+            row.getString(name),
+            row.getString(description),
+            row.getBigDecimal(amount),
+            row.getString(picture),
+            row.getInt(staffId)
+        );
+    };
+
+    /**
+     * Maps an expense joined with its staff, selected as s_id and staff_name plus the other staff columns.
+     */
+    public static final RowMapper<ExpenseWithStaff> EXPENSE_WITH_STAFF = rs -> {
+        RowMapper.Row<Expense> expense = EXPENSE.bind(rs);
+        RowMapper.Row<Staff> staff = JOINED_STAFF.bind(rs);
+
+        return row -> new ExpenseWithStaff(expense.map(row), staff.map(row));
+    };
+
+    /**
+     * Maps staff, selected as s_id and staff_name plus the other staff columns, with their ExpenseCount and ExpenseTotal.
+     */
+    public static final RowMapper<StaffExpenseSummary> STAFF_EXPENSE_SUMMARY = rs -> {
+        RowMapper.Row<Staff> staff = JOINED_STAFF.bind(rs);
+        Columns columns = Columns.of(rs);
+        int expenseCount = columns.index("ExpenseCount");
+        int expenseTotal = columns.index("ExpenseTotal");
+
+        return row -> new StaffExpenseSummary(staff.map(row), row.getInt(expenseCount), amount(row, expenseTotal));
+    };
+
+    /**
+     * Maps ID, Date, Total and SID.
+     */
+    public static final RowMapper<Sale> SALE = rs -> {
+        Columns columns = Columns.of(rs);
+        int id = columns.index("ID");
+        int date = columns.index("Date");
+        int total = columns.index("Total");
+        int staffId = columns.index("SID");
+
+        return row -> new Sale(
+            row.getInt(id),
+            Timestamps.read(row, date),
+            row.getBigDecimal(total),
+            row.getInt(staffId)
+        );
+    };
+
+    /**
+     * Maps a sale joined with its staff (Name, Position, UserName, Password, Role), or no staff when SID is not set.
+     */
+    public static final RowMapper<SaleWithStaff> SALE_WITH_STAFF = rs -> {
+        RowMapper.Row<Sale> sale = SALE.bind(rs);
+        Columns columns = Columns.of(rs);
+        int name = columns.index("Name");
+        int position = columns.index("Position");
+        int userName = columns.index("UserName");
+        int password = columns.index("Password");
+        int role = columns.index("Role");
+
+        return row -> {
+            Sale mapped = sale.map(row);
+            Staff staff = null;
+            if (mapped.getStaffId() > 0) {
+                staff = new Staff(
+                    mapped.getStaffId(),
+                    row.getString(name),
+                    row.getString(position),
+                    row.getString(userName),
+                    row.getString(password),
+                    row.getString(role)
+                );
+            }
+            return new SaleWithStaff(mapped, staff);
+        };
+    };
+
+    /**
+     * Maps the SaleCount, TotalAmount, AverageAmount, MinimumAmount and MaximumAmount of a sales aggregate.
+     * Amounts are summed as REAL by SQLite, so they are rounded back to cents.
+     */
+    public static final RowMapper<SaleSummary> SALE_SUMMARY = rs -> {
+        Columns columns = Columns.of(rs);
+        int count = columns.index("SaleCount");
+        int total = columns.index("TotalAmount");
+        int average = columns.index("AverageAmount");
+        int minimum = columns.index("MinimumAmount");
+        int maximum = columns.index("MaximumAmount");
+
+        return row -> new SaleSummary(
+            row.getInt(count),
+            amount(row, total),
+            amount(row, average),
+            amount(row, minimum),
+            amount(row, maximum)
+        );
+    };
+
+    /**
+     * Maps the SaleCount, Revenue and ItemCount summed from the daily sales rollup.
+     */
+    public static final RowMapper<SalesTotals> SALES_TOTALS = rs -> {
+        Columns columns = Columns.of(rs);
+        int saleCount = columns.index("SaleCount");
+        int revenue = columns.index("Revenue");
+        int itemCount = columns.index("ItemCount");
+
+        return row -> new SalesTotals(row.getInt(saleCount), amount(row, revenue), row.getInt(itemCount));
+    };
+
+    /**
+     * Maps a sale line (ID, PID, Qty) with its product's PName, Price, Image and CatID.
+     */
+    public static final RowMapper<SaleDetailWithProduct> SALE_DETAIL_WITH_PRODUCT = rs -> {
+        Columns columns = Columns.of(rs);
+        int saleId = columns.index("ID");
+        int productId = columns.index("PID");
+        int quantity = columns.index("Qty");
+        int name = columns.index("PName");
+        int price = columns.index("Price");
+        int image = columns.index("Image");
+        int categoryId = columns.index("CatID");
+
+        return row -> {
+            SaleDetail saleDetail = new SaleDetail(row.getInt(saleId), row.getInt(productId), row.getInt(quantity));
+            Product product = new Product(
+                row.getInt(productId),
+                row.getString(name),
+                0, // Stock quantity not needed here
+                row.getBigDecimal(price),
+                row.getString(image),
+                row.getInt(categoryId)
+            );
+            return new SaleDetailWithProduct(saleDetail, product);
+        };
+    };
+
+    private Mappers() {
+    }
+
+    /**
+     * Read an aggregated amount rounded to cents, or zero when it is NULL.
+     */
+    private static BigDecimal amount(ResultSet rs, int column) throws SQLException {
+        BigDecimal value = rs.getBigDecimal(column);
+        return value == null ? BigDecimal.ZERO.setScale(2) : value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Staff mapper reading the id and name from the given labels.
+     */
+    private static RowMapper<Staff> staff(String idLabel, String nameLabel) {
+        return rs -> {
+            Columns columns = Columns.of(rs);
+            int id = columns.index(idLabel);
+            int name = columns.index(nameLabel);
+            int position = columns.index("position");
+            int userName = columns.index("username");
+            int password = columns.index("password");
+            int role = columns.index("role");
+
+            return row -> new Staff(
+                row.getInt(id),
+                row.getString(name),
+                row.getString(position),
+                row.getString(userName),
+                row.getString(password),
+                row.getString(role)
+            );
+        };
+    }
+}
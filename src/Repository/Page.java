@@ -0,0 +1,72 @@
+package Repository;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query.
+ * The next page is requested with the last item of this one as the cursor, so a page costs the same
+ * however far into the table it is.
+ *
+ * @param <T> The item type
+ */
+public final class Page<T> {
+    /**
+     * Page size used by the list panels.
+     */
+    public static final int DEFAULT_SIZE = 200;
+
+    private final List<T> items;
+    private final boolean hasMore;
+
+    private Page(List<T> items, boolean hasMore) {
+        this.items = items;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Build a page from rows fetched with a limit of {@code size + 1}; the extra row only signals
+     * that another page exists and is dropped.
+     *
+     * @param fetched The fetched rows
+     * @param size The page size
+     * @return The page
+     */
+    static <T> Page<T> of(List<T> fetched, int size) {
+        if (fetched.size() > size) {
+            return new Page<>(List.copyOf(fetched.subList(0, size)), true);
+        }
+        return new Page<>(List.copyOf(fetched), false);
+    }
+
+    /**
+     * Build a page holding every item of an unpaginated result, such as a search.
+     *
+     * @param items The items
+     * @return A page with no page after it
+     */
+    public static <T> Page<T> all(List<T> items) {
+        return new Page<>(List.copyOf(items), false);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Check whether rows remain after this page.
+     *
+     * @return True if another page can be requested
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Get the cursor for the next page.
+     *
+     * @return The last item of this page, or null if the page is empty
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
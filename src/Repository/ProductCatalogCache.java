@@ -0,0 +1,322 @@
+package Repository;
+
+import Event.CategoryChanged;
+import Event.ChangeEvent.Change;
+import Event.ProductChanged;
+import Model.Category;
+import Model.Product;
+import Model.ProductWithCategory;
+import Support.EventBus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory cache of the product catalog, shared by every {@link CachingProductRepository}.
+ * Products are kept by ID in least-recently-used order, alongside the full catalog list, and every entry
+ * expires after a time to live so writes made outside the application are picked up eventually.
+ * The shared cache listens for product and category change events, so every committed write through a
+ * repository invalidates the entries it changes, whichever repository made it.
+ * <p>
+ * The models are mutable, so products are copied on the way in and out. Each invalidation bumps a
+ * generation number; a value loaded before an invalidation is not stored, so a read racing a write
+ * cannot put the old row back.
+ */
+public final class ProductCatalogCache {
+    public static final int DEFAULT_MAX_SIZE = 2000;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private static final ProductCatalogCache SHARED = new ProductCatalogCache(DEFAULT_MAX_SIZE, DEFAULT_TTL);
+
+    static {
+        EventBus.subscribe(ProductChanged.class, event -> SHARED.invalidate(event.getIds()));
+        // Cached products carry their category
+        EventBus.subscribe(CategoryChanged.class, event -> {
+            if (event.getChange() != Change.CREATED) {
+                SHARED.invalidateAll();
+            }
+        });
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, Entry<ProductWithCategory>> products;
+    private Entry<List<ProductWithCategory>> catalog;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Create an empty cache.
+     *
+     * @param maxSize The maximum number of products kept by ID
+     * @param ttl How long an entry is served before it is read again
+     */
+    public ProductCatalogCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.products = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry<ProductWithCategory>> eldest) {
+                if (size() <= ProductCatalogCache.this.maxSize) {
+                    return false;
+                }
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get the cache shared by the application.
+     *
+     * @return The shared cache
+     */
+    public static ProductCatalogCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the current generation, to be passed back when storing what is loaded next.
+     *
+     * @return The generation
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Get a cached product.
+     *
+     * @param productId The product ID
+     * @return A copy of the product, or empty on a miss
+     */
+    synchronized Optional<ProductWithCategory> get(int productId) {
+        Entry<ProductWithCategory> entry = products.get(productId);
+        if (entry != null && expired(entry)) {
+            products.remove(productId);
+            expirations.increment();
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(copy(entry.value));
+    }
+
+    /**
+     * Get the cached products among the given IDs, counting a hit or miss for each.
+     *
+     * @param productIds The product IDs
+     * @return Copies of the cached products by ID; the IDs not present are misses
+     */
+    synchronized Map<Integer, ProductWithCategory> getAll(Collection<Integer> productIds) {
+        Map<Integer, ProductWithCategory> found = new HashMap<>();
+        for (int productId : productIds) {
+            if (!found.containsKey(productId)) {
+                get(productId).ifPresent(product -> found.put(productId, product));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Store loaded products, unless the cache was invalidated since the load started.
+     *
+     * @param loaded The products read from the database
+     * @param loadedGeneration The generation read before the load
+     */
+    synchronized void putAll(Collection<ProductWithCategory> loaded, long loadedGeneration) {
+        if (loadedGeneration != generation) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (ProductWithCategory product : loaded) {
+            products.put(product.getProductId(), new Entry<>(copy(product), now));
+        }
+    }
+
+    /**
+     * Get the cached catalog of every product with its category.
+     *
+     * @return Copies of the products in catalog order, or empty on a miss
+     */
+    synchronized Optional<List<ProductWithCategory>> getCatalog() {
+        if (catalog != null && expired(catalog)) {
+            catalog = null;
+            expirations.increment();
+        }
+
+        if (catalog == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(copy(catalog.value));
+    }
+
+    /**
+     * Store the loaded catalog and each of its products, unless the cache was invalidated since the load started.
+     *
+     * @param loaded The catalog read from the database
+     * @param loadedGeneration The generation read before the load
+     */
+    synchronized void putCatalog(List<ProductWithCategory> loaded, long loadedGeneration) {
+        if (loadedGeneration != generation) {
+            return;
+        }
+        catalog = new Entry<>(copy(loaded), System.nanoTime());
+        putAll(loaded, loadedGeneration);
+    }
+
+    /**
+     * Drop the given products, and the catalog that lists them, after they were written.
+     *
+     * @param productIds The IDs of the changed products
+     */
+    public synchronized void invalidate(Collection<Integer> productIds) {
+        generation++;
+        invalidations.increment();
+        catalog = null;
+        productIds.forEach(products::remove);
+    }
+
+    /**
+     * Drop every entry, after a write that changes products in bulk.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.increment();
+        catalog = null;
+        products.clear();
+    }
+
+    /**
+     * Get a snapshot of the cache counters.
+     *
+     * @return The cache statistics
+     */
+    public synchronized Stats getStats() {
+        return new Stats(
+                products.size(),
+                maxSize,
+                hits.sum(),
+                misses.sum(),
+                evictions.sum(),
+                expirations.sum(),
+                invalidations.sum()
+        );
+    }
+
+    private boolean expired(Entry<?> entry) {
+        return System.nanoTime() - entry.loadedAt > ttlNanos;
+    }
+
+    private static List<ProductWithCategory> copy(List<ProductWithCategory> products) {
+        List<ProductWithCategory> copies = new ArrayList<>(products.size());
+        for (ProductWithCategory product : products) {
+            copies.add(copy(product));
+        }
+        return copies;
+    }
+
+    private static ProductWithCategory copy(ProductWithCategory product) {
+        Product p = product.getProduct();
+        Category c = product.getCategory();
+        return new ProductWithCategory(
+                new Product(p.getId(), p.getName(), p.getStockQuantity(), p.getPrice(), p.getImagePath(), p.getCategoryId()),
+                c == null ? null : new Category(c.getId(), c.getName())
+        );
+    }
+
+    /**
+     * A cached value and when it was loaded.
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Point-in-time cache statistics.
+     */
+    public static class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+
+        Stats(int size, int maxSize, long hits, long misses, long evictions, long expirations, long invalidations) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getExpirations() {
+            return expirations;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        /**
+         * Get the share of lookups served from the cache.
+         *
+         * @return The hit rate between 0 and 1, or 0 before any lookup
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "product cache: %d/%d products, %d hits, %d misses (%.1f%% hit rate), %d evictions, %d expirations, %d invalidations",
+                    size, maxSize, hits, misses, getHitRate() * 100, evictions, expirations, invalidations
+            );
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package Repository;
 
-import Model.Category;
+import Event.ChangeEvent.Change;
+import Event.ProductChanged;
 import Model.Product;
 import Model.ProductWithCategory;
+import Support.Async;
 import Support.DB;
+import Support.EventBus;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repository class for handling database operations related to products.
  */
 public class ProductRepository {
     private final CategoryRepository categoryRepository;
+    private final AsyncView asyncView = new AsyncView();
     
     /**
      * Constructor for ProductRepository.
@@ -31,35 +40,138 @@ public class ProductRepository {
      * @return List of products with categories
      */
     public List<ProductWithCategory> getAllProductsWithCategories() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<ProductWithCategory> products = new ArrayList<>();
-                Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(
+                PreparedStatement stmt = connection.prepareStatement(
                     "SELECT p.PID, p.PName, p.Sqty, p.Price, p.Image, p.CatID, c.CatName " +
                     "FROM product p " +
                     "LEFT JOIN category c ON p.CatID = c.CatID " +
                     "ORDER BY p.PName"
                 );
                 
-                while (rs.next()) {
-                    int categoryId = rs.getInt("CatID");
-                    Category category = categoryId > 0 ? 
-                        new Category(categoryId, rs.getString("CatName")) : null;
-                    
-                    Product product = new Product(
-                        rs.getInt("PID"),
-                        rs.getString("PName"),
-                        rs.getInt("Sqty"),
-                        rs.getBigDecimal("Price"),
-                        rs.getString("Image"),
-                        categoryId
+                return Mappers.PRODUCT_WITH_CATEGORY.list(stmt.executeQuery());
+            }
+        );
+    }
+    
+    /**
+     * Get one page of products with their categories, ordered by name.
+     * Products with the same name are ordered by ID so every product appears on exactly one page.
+     * 
+     * @param after The last product of the previous page, or null for the first page
+     * @param size The maximum number of products in the page
+     * @return The page of products
+     */
+    public Page<ProductWithCategory> getProductsWithCategoriesPage(ProductWithCategory after, int size) {
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt;
+                if (after == null) {
+                    stmt = connection.prepareStatement(
+                        "SELECT p.PID, p.PName, p.Sqty, p.Price, p.Image, p.CatID, c.CatName " +
+                        "FROM product p " +
+                        "LEFT JOIN category c ON p.CatID = c.CatID " +
+                        "ORDER BY p.PName, p.PID " +
+                        "LIMIT ?"
                     );
-                    
-                    products.add(new ProductWithCategory(product, category));
+                    stmt.setInt(1, size + 1);
+                } else {
+                    stmt = connection.prepareStatement(
+                        "SELECT p.PID, p.PName, p.Sqty, p.Price, p.Image, p.CatID, c.CatName " +
+                        "FROM product p " +
+                        "LEFT JOIN category c ON p.CatID = c.CatID " +
+                        "WHERE (p.PName, p.PID) > (?, ?) " +
+                        "ORDER BY p.PName, p.PID " +
+                        "LIMIT ?"
+                    );
+                    stmt.setString(1, after.getProduct().getName());
+                    stmt.setInt(2, after.getProduct().getId());
+                    stmt.setInt(3, size + 1);
+                }
+                
+                return Page.of(Mappers.PRODUCT_WITH_CATEGORY.list(stmt.executeQuery()), size);
+            }
+        );
+    }
+    
+    /**
+     * Columns the product list can be ordered by. Ties are broken by ID, so every position holds one product.
+     */
+    public enum ProductSort {
+        ID("p.PID"),
+        NAME("p.PName"),
+        PRICE("p.Price"),
+        STOCK("p.Sqty"),
+        CATEGORY("c.CatName");
+        
+        private final String column;
+        
+        ProductSort(String column) {
+            this.column = column;
+        }
+    }
+    
+    /**
+     * Count the products, or those of one category.
+     * 
+     * @param categoryId The category to count, or null for every product
+     * @return The number of products
+     */
+    public int countProducts(Integer categoryId) {
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt;
+                if (categoryId == null) {
+                    stmt = connection.prepareStatement("SELECT COUNT(*) FROM product");
+                } else {
+                    stmt = connection.prepareStatement("SELECT COUNT(*) FROM product WHERE CatID = ?");
+                    stmt.setInt(1, categoryId);
+                }
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                
+                return rs.getInt(1);
+            }
+        );
+    }
+    
+    /**
+     * Get the products with their categories at a range of positions in the product list, for a list that is
+     * scrolled rather than paged through.
+     * 
+     * @param categoryId Only products of this category, or null for every product
+     * @param sort The column to order by, or null to order by name
+     * @param ascending Whether to order the sort column ascending
+     * @param offset The position of the first product
+     * @param limit The maximum number of products
+     * @return The products in the range, in list order
+     */
+    public List<ProductWithCategory> getProductsWithCategoriesRange(Integer categoryId, ProductSort sort,
+                                                                    boolean ascending, int offset, int limit) {
+        ProductSort key = sort == null ? ProductSort.NAME : sort;
+        String direction = sort == null || ascending ? "ASC" : "DESC";
+        String order = key == ProductSort.ID
+            ? "p.PID " + direction
+            : key.column + " " + direction + ", p.PID " + direction;
+        
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT p.PID, p.PName, p.Sqty, p.Price, p.Image, p.CatID, c.CatName " +
+                    "FROM product p " +
+                    "LEFT JOIN category c ON p.CatID = c.CatID " +
+                    (categoryId == null ? "" : "WHERE p.CatID = ? ") +
+                    "ORDER BY " + order + " " +
+                    "LIMIT ? OFFSET ?"
+                );
+                int index = 1;
+                if (categoryId != null) {
+                    stmt.setInt(index++, categoryId);
                 }
+                stmt.setInt(index++, limit);
+                stmt.setInt(index, offset);
                 
-                return products;
+                return Mappers.PRODUCT_WITH_CATEGORY.list(stmt.executeQuery());
             }
         );
     }
@@ -70,28 +182,13 @@ public class ProductRepository {
      * @return List of products
      */
     public List<Product> getAllProducts() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<Product> products = new ArrayList<>();
-                Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(
+                PreparedStatement stmt = connection.prepareStatement(
                     "SELECT PID, PName, Sqty, Price, Image, CatID FROM product ORDER BY PName"
                 );
                 
-                while (rs.next()) {
-                    products.add(
-                        new Product(
-                            rs.getInt("PID"),
-                            rs.getString("PName"),
-                            rs.getInt("Sqty"),
-                            rs.getBigDecimal("Price"),
-                            rs.getString("Image"),
-                            rs.getInt("CatID")
-                        )
-                    );
-                }
-                
-                return products;
+                return Mappers.PRODUCT.list(stmt.executeQuery());
             }
         );
     }
@@ -103,30 +200,15 @@ public class ProductRepository {
      * @return List of products in the category
      */
     public List<Product> getProductsByCategory(int categoryId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<Product> products = new ArrayList<>();
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT PID, PName, Sqty, Price, Image, CatID " +
                     "FROM product WHERE CatID = ? ORDER BY PName"
                 );
                 stmt.setInt(1, categoryId);
-                ResultSet rs = stmt.executeQuery();
-                
-                while (rs.next()) {
-                    products.add(
-                        new Product(
-                            rs.getInt("PID"),
-                            rs.getString("PName"),
-                            rs.getInt("Sqty"),
-                            rs.getBigDecimal("Price"),
-                            rs.getString("Image"),
-                            rs.getInt("CatID")
-                        )
-                    );
-                }
                 
-                return products;
+                return Mappers.PRODUCT.list(stmt.executeQuery());
             }
         );
     }
@@ -138,28 +220,73 @@ public class ProductRepository {
      * @return Optional containing the product if found, empty otherwise
      */
     public Optional<Product> getProductById(int productId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT PID, PName, Sqty, Price, Image, CatID FROM product WHERE PID = ?"
                 );
                 stmt.setInt(1, productId);
-                ResultSet rs = stmt.executeQuery();
                 
-                if (!rs.next()) {
-                    return Optional.empty();
+                return Mappers.PRODUCT.first(stmt.executeQuery());
+            }
+        );
+    }
+    
+    /**
+     * Get several products by ID in a single query.
+     * 
+     * @param productIds The product IDs; duplicates are looked up once
+     * @return The products that exist, in no particular order
+     */
+    public List<Product> getProductsByIds(Collection<Integer> productIds) {
+        Set<Integer> ids = new LinkedHashSet<>(productIds);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT PID, PName, Sqty, Price, Image, CatID FROM product WHERE PID IN (" + placeholders + ")"
+                );
+                int index = 1;
+                for (int id : ids) {
+                    stmt.setInt(index++, id);
                 }
                 
-                return Optional.of(
-                    new Product(
-                        rs.getInt("PID"),
-                        rs.getString("PName"),
-                        rs.getInt("Sqty"),
-                        rs.getBigDecimal("Price"),
-                        rs.getString("Image"),
-                        rs.getInt("CatID")
-                    )
+                return Mappers.PRODUCT.list(stmt.executeQuery());
+            }
+        );
+    }
+    
+    /**
+     * Get several products with their categories by ID in a single query.
+     * 
+     * @param productIds The product IDs; duplicates are looked up once
+     * @return The products that exist, in no particular order
+     */
+    public List<ProductWithCategory> getProductsWithCategoriesByIds(Collection<Integer> productIds) {
+        Set<Integer> ids = new LinkedHashSet<>(productIds);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT p.PID, p.PName, p.Sqty, p.Price, p.Image, p.CatID, c.CatName " +
+                    "FROM product p " +
+                    "LEFT JOIN category c ON p.CatID = c.CatID " +
+                    "WHERE p.PID IN (" + placeholders + ")"
                 );
+                int index = 1;
+                for (int id : ids) {
+                    stmt.setInt(index++, id);
+                }
+                
+                return Mappers.PRODUCT_WITH_CATEGORY.list(stmt.executeQuery());
             }
         );
     }
@@ -171,7 +298,7 @@ public class ProductRepository {
      * @return Optional containing the product with category if found, empty otherwise
      */
     public Optional<ProductWithCategory> getProductWithCategoryById(int productId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT p.PID, p.PName, p.Sqty, p.Price, p.Image, p.CatID, c.CatName " +
@@ -180,26 +307,8 @@ public class ProductRepository {
                     "WHERE p.PID = ?"
                 );
                 stmt.setInt(1, productId);
-                ResultSet rs = stmt.executeQuery();
                 
-                if (!rs.next()) {
-                    return Optional.empty();
-                }
-                
-                int categoryId = rs.getInt("CatID");
-                Category category = categoryId > 0 ? 
-                    new Category(categoryId, rs.getString("CatName")) : null;
-                
-                Product product = new Product(
-                    rs.getInt("PID"),
-                    rs.getString("PName"),
-                    rs.getInt("Sqty"),
-                    rs.getBigDecimal("Price"),
-                    rs.getString("Image"),
-                    categoryId
-                );
-                
-                return Optional.of(new ProductWithCategory(product, category));
+                return Mappers.PRODUCT_WITH_CATEGORY.first(stmt.executeQuery());
             }
         );
     }
@@ -215,7 +324,7 @@ public class ProductRepository {
      * @return The created product
      */
     public Product createProduct(String name, int stockQuantity, BigDecimal price, String imagePath, int categoryId) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "INSERT INTO product (PName, Sqty, Price, Image, CatID) VALUES (?, ?, ?, ?, ?)",
@@ -231,8 +340,10 @@ public class ProductRepository {
                 
                 ResultSet generatedKeys = stmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
+                    int productId = generatedKeys.getInt(1);
+                    EventBus.publishAfterCommit(new ProductChanged(Change.CREATED, List.of(productId)));
                     return new Product(
-                        generatedKeys.getInt(1),
+                        productId,
                         name,
                         stockQuantity,
                         price,
@@ -253,7 +364,7 @@ public class ProductRepository {
      * @return True if the update was successful, false otherwise
      */
     public boolean updateProduct(Product product) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "UPDATE product SET PName = ?, Sqty = ?, Price = ?, Image = ?, CatID = ? WHERE PID = ?"
@@ -265,26 +376,36 @@ public class ProductRepository {
                 stmt.setInt(5, product.getCategoryId());
                 stmt.setInt(6, product.getId());
                 
-                return stmt.executeUpdate() > 0;
+                return published(stmt.executeUpdate() > 0, Change.UPDATED, product.getId());
             }
         );
     }
     
     /**
-     * Delete a product.
+     * Delete a product. A product that appears on a sale is kept, so the sale keeps its lines.
      * 
      * @param productId The ID of the product to delete
-     * @return True if the deletion was successful, false otherwise
+     * @return True if the deletion was successful, false if the product is not found or has been sold
      */
     public boolean deleteProduct(int productId) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
             connection -> {
+                // Foreign keys are not enforced, so the sale_details reference is checked here
+                PreparedStatement soldStmt = connection.prepareStatement(
+                    "SELECT EXISTS (SELECT 1 FROM sale_details WHERE PID = ?)"
+                );
+                soldStmt.setInt(1, productId);
+                ResultSet sold = soldStmt.executeQuery();
+                if (sold.next() && sold.getBoolean(1)) {
+                    return false;
+                }
+                
                 PreparedStatement stmt = connection.prepareStatement(
                     "DELETE FROM product WHERE PID = ?"
                 );
                 stmt.setInt(1, productId);
                 
-                return stmt.executeUpdate() > 0;
+                return published(stmt.executeUpdate() > 0, Change.DELETED, productId);
             }
         );
     }
@@ -296,9 +417,8 @@ public class ProductRepository {
      * @return List of products matching the search term
      */
     public List<ProductWithCategory> searchProducts(String searchTerm) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<ProductWithCategory> products = new ArrayList<>();
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT p.PID, p.PName, p.Sqty, p.Price, p.Image, p.CatID, c.CatName " +
                     "FROM product p " +
@@ -307,26 +427,8 @@ public class ProductRepository {
                     "ORDER BY p.PName"
                 );
                 stmt.setString(1, "%" + searchTerm + "%");
-                ResultSet rs = stmt.executeQuery();
                 
-                while (rs.next()) {
-                    int categoryId = rs.getInt("CatID");
-                    Category category = categoryId > 0 ? 
-                        new Category(categoryId, rs.getString("CatName")) : null;
-                    
-                    Product product = new Product(
-                        rs.getInt("PID"),
-                        rs.getString("PName"),
-                        rs.getInt("Sqty"),
-                        rs.getBigDecimal("Price"),
-                        rs.getString("Image"),
-                        categoryId
-                    );
-                    
-                    products.add(new ProductWithCategory(product, category));
-                }
-                
-                return products;
+                return Mappers.PRODUCT_WITH_CATEGORY.list(stmt.executeQuery());
             }
         );
     }
@@ -339,7 +441,7 @@ public class ProductRepository {
      * @return True if the update was successful, false otherwise
      */
     public boolean updateProductStock(int productId, int newQuantity) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "UPDATE product SET Sqty = ? WHERE PID = ?"
@@ -347,8 +449,70 @@ public class ProductRepository {
                 stmt.setInt(1, newQuantity);
                 stmt.setInt(2, productId);
                 
-                return stmt.executeUpdate() > 0;
+                return published(stmt.executeUpdate() > 0, Change.UPDATED, productId);
             }
         );
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Announce a product write once it commits, if it changed a row.
+     * 
+     * @param changed Whether the write changed the product
+     * @param change What happened to it
+     * @param productId The product ID
+     * @return Whether the write changed the product
+     */
+    private static boolean published(boolean changed, Change change, int productId) {
+        if (changed) {
+            EventBus.publishAfterCommit(new ProductChanged(change, List.of(productId)));
+        }
+        return changed;
+    }
+
+    /**
+     * Get the asynchronous view of this repository.
+     * 
+     * @return Query methods that run on virtual threads and return futures
+     */
+    public AsyncView async() {
+        return asyncView;
+    }
+
+    /**
+     * Asynchronous versions of the query methods, run on virtual threads through {@link Async}.
+     * Writes are not included; they already queue on the database writer thread.
+     */
+    public final class AsyncView {
+        public CompletableFuture<List<ProductWithCategory>> getAllProductsWithCategories() {
+            return Async.supply(() -> ProductRepository.this.getAllProductsWithCategories());
+        }
+
+        public CompletableFuture<List<Product>> getAllProducts() {
+            return Async.supply(() -> ProductRepository.this.getAllProducts());
+        }
+
+        public CompletableFuture<List<Product>> getProductsByCategory(int categoryId) {
+            return Async.supply(() -> ProductRepository.this.getProductsByCategory(categoryId));
+        }
+
+        public CompletableFuture<Optional<Product>> getProductById(int productId) {
+            return Async.supply(() -> ProductRepository.this.getProductById(productId));
+        }
+
+        public CompletableFuture<List<Product>> getProductsByIds(Collection<Integer> productIds) {
+            return Async.supply(() -> ProductRepository.this.getProductsByIds(productIds));
+        }
+
+        public CompletableFuture<List<ProductWithCategory>> getProductsWithCategoriesByIds(Collection<Integer> productIds) {
+            return Async.supply(() -> ProductRepository.this.getProductsWithCategoriesByIds(productIds));
+        }
+
+        public CompletableFuture<Optional<ProductWithCategory>> getProductWithCategoryById(int productId) {
+            return Async.supply(() -> ProductRepository.this.getProductWithCategoryById(productId));
+        }
+
+        public CompletableFuture<List<ProductWithCategory>> searchProducts(String searchTerm) {
+            return Async.supply(() -> ProductRepository.this.searchProducts(searchTerm));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package Repository;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maps result set rows to objects.
+ * Column labels are resolved to indexes once per result set by {@link #bind(ResultSet)}, and the
+ * returned {@link Row} then reads every row by position.
+ *
+ * @param <T> The mapped type
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Resolve the columns this mapper needs in a result set.
+     *
+     * @param rs The result set
+     * @return A positional mapping for the rows of this result set
+     * @throws SQLException If a required column is missing
+     */
+    Row<T> bind(ResultSet rs) throws SQLException;
+
+    /**
+     * Map every remaining row of a result set.
+     *
+     * @param rs The result set
+     * @return The mapped rows
+     * @throws SQLException If a row cannot be read
+     */
+    default List<T> list(ResultSet rs) throws SQLException {
+        Row<T> row = bind(rs);
+        List<T> results = new ArrayList<>();
+        while (rs.next()) {
+            results.add(row.map(rs));
+        }
+        return results;
+    }
+
+    /**
+     * Map the next row of a result set, if there is one.
+     *
+     * @param rs The result set
+     * @return The mapped row, or empty if the result set has no more rows
+     * @throws SQLException If the row cannot be read
+     */
+    default Optional<T> first(ResultSet rs) throws SQLException {
+        if (!rs.next()) {
+            return Optional.empty();
+        }
+        return Optional.of(bind(rs).map(rs));
+    }
+
+    /**
+     * Maps the current row using column indexes resolved by {@link #bind(ResultSet)}.
+     *
+     * @param <T> The mapped type
+     */
+    @FunctionalInterface
+    interface Row<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Column label to index lookup for one result set. Labels are matched case-insensitively and
+     * the first column with a label wins, so {@code e.*} columns take precedence over later joins.
+     */
+    final class Columns {
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private Columns(ResultSet rs) throws SQLException {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                indexes.putIfAbsent(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        /**
+         * Read the column labels of a result set.
+         *
+         * @param rs The result set
+         * @return The label lookup
+         * @throws SQLException If the metadata cannot be read
+         */
+        public static Columns of(ResultSet rs) throws SQLException {
+            return new Columns(rs);
+        }
+
+        /**
+         * Get the index of a required column.
+         *
+         * @param label The column label
+         * @return The 1-based column index
+         * @throws SQLException If the result set has no such column
+         */
+        public int index(String label) throws SQLException {
+            Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+            if (index == null) {
+                throw new SQLException("Result set has no column '" + label + "'");
+            }
+            return index;
+        }
+    }
+}
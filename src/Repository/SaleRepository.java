@@ -1,30 +1,28 @@
 package Repository;
 
+import Event.ChangeEvent.Change;
+import Event.ProductChanged;
+import Event.SaleChanged;
+import Exception.DatabaseException;
+import Exception.InsufficientStockException;
 import Model.*;
+import Support.Async;
 import Support.DB;
+import Support.EventBus;
+import Support.Timestamps;
 import java.math.BigDecimal;
 import java.sql.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Repository class for handling database operations related to sales.
  */
 public class SaleRepository {
-    private final StaffRepository staffRepository;
-    private final ProductRepository productRepository;
-    private final SimpleDateFormat dateFormat;
-    
-    /**
-     * Constructor for SaleRepository.
-     */
-    public SaleRepository() {
-        this.staffRepository = new StaffRepository();
-        this.productRepository = new ProductRepository();
-        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    }
+    private final AsyncView asyncView = new AsyncView();
     
     /**
      * Get all sales from the database.
@@ -32,84 +30,289 @@ public class SaleRepository {
      * @return List of sales
      */
     public List<Sale> getAllSales() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<Sale> sales = new ArrayList<>();
-                Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(
+                PreparedStatement stmt = connection.prepareStatement(
                     "SELECT ID, Date, Total, SID FROM sales ORDER BY Date DESC"
                 );
                 
-                while (rs.next()) {
-                    Date date;
-                    try {
-                        date = dateFormat.parse(rs.getString("Date"));
-                    } catch (ParseException e) {
-                        date = new Date(); // Fallback to current date if parse fails
-                    }
-                    
-                    sales.add(
-                        new Sale(
-                            rs.getInt("ID"),
-                            date,
-                            rs.getBigDecimal("Total"),
-                            rs.getInt("SID")
-                        )
-                    );
-                }
+                return Mappers.SALE.list(stmt.executeQuery());
+            }
+        );
+    }
+    
+    /**
+     * Stream all sales, newest first, without loading them into memory.
+     * The stream holds a database connection until it is closed, so use it with try-with-resources.
+     * 
+     * @return Stream of sales
+     */
+    public Stream<Sale> streamAllSales() {
+        return DB.unsafeStream(
+            "SELECT ID, Date, Total, SID FROM sales ORDER BY Date DESC",
+            null,
+            Mappers.SALE
+        );
+    }
+    
+    /**
+     * Stream the sales strictly between two dates, newest first, without loading them into memory.
+     * The bounds are compared as epoch milliseconds, so the range is answered from the Date index.
+     * The stream holds a database connection until it is closed, so use it with try-with-resources.
+     * 
+     * @param after Only sales after this date, or null for no lower bound
+     * @param before Only sales before this date, or null for no upper bound
+     * @return Stream of sales
+     */
+    public Stream<Sale> streamSalesBetween(Date after, Date before) {
+        return DB.unsafeStream(
+            "SELECT ID, Date, Total, SID FROM sales WHERE Date > ? AND Date < ? ORDER BY Date DESC",
+            stmt -> {
+                stmt.setLong(1, after == null ? Long.MIN_VALUE : Timestamps.toEpochMillis(after));
+                stmt.setLong(2, before == null ? Long.MAX_VALUE : Timestamps.toEpochMillis(before));
+            },
+            Mappers.SALE
+        );
+    }
+    
+    /**
+     * Aggregate the sales between two dates, inclusive, in a single query.
+     * The count and amounts are read from the covering (Date, ID, Total) index, so the cost follows
+     * the number of sales in the range rather than the size of the table.
+     * 
+     * @param from Only sales at or after this date, or null for no lower bound
+     * @param to Only sales at or before this date, or null for no upper bound
+     * @return The count, total, average, minimum and maximum of the sales in the range
+     */
+    public SaleSummary aggregate(Date from, Date to) {
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT COUNT(*) AS SaleCount, SUM(Total) AS TotalAmount, AVG(Total) AS AverageAmount, " +
+                    "MIN(Total) AS MinimumAmount, MAX(Total) AS MaximumAmount " +
+                    "FROM sales WHERE Date BETWEEN ? AND ?"
+                );
+                stmt.setLong(1, from == null ? Long.MIN_VALUE : Timestamps.toEpochMillis(from));
+                stmt.setLong(2, to == null ? Long.MAX_VALUE : Timestamps.toEpochMillis(to));
+                
+                return Mappers.SALE_SUMMARY.first(stmt.executeQuery()).orElseThrow();
+            }
+        );
+    }
+    
+    /**
+     * Get the totals of the sales made on a range of local days, inclusive, from the daily rollup.
+     * The query reads one rollup row per day and staff member, however many sales the days hold.
+     * 
+     * @param firstDay The first day of the range
+     * @param lastDay The last day of the range
+     * @return The number of sales, revenue and items sold in the range
+     */
+    public SalesTotals getSalesTotals(LocalDate firstDay, LocalDate lastDay) {
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT COALESCE(SUM(SaleCount), 0) AS SaleCount, SUM(Revenue) AS Revenue, " +
+                    "COALESCE(SUM(ItemCount), 0) AS ItemCount " +
+                    "FROM sales_daily_rollup WHERE Day BETWEEN ? AND ?"
+                );
+                stmt.setLong(1, DailySalesRollup.day(firstDay));
+                stmt.setLong(2, DailySalesRollup.day(lastDay));
                 
-                return sales;
+                return Mappers.SALES_TOTALS.first(stmt.executeQuery()).orElseThrow();
             }
         );
     }
     
+    /**
+     * Recompute the daily sales rollup from the sales, repairing any drift.
+     * 
+     * @return The number of rollup rows written
+     */
+    public int rebuildDailyRollup() {
+        return DB.unsafeTransaction(DailySalesRollup::rebuild);
+    }
+    
     /**
      * Get all sales with staff information.
      * 
      * @return List of sales with staff information
      */
     public List<SaleWithStaff> getAllSalesWithStaff() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<SaleWithStaff> sales = new ArrayList<>();
-                Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(
+                PreparedStatement stmt = connection.prepareStatement(
                     "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role " +
                     "FROM sales s " +
                     "LEFT JOIN staff st ON s.SID = st.ID " +
                     "ORDER BY s.ID DESC"
                 );
                 
-                while (rs.next()) {
-                    Date date;
-                    try {
-                        date = dateFormat.parse(rs.getString("Date"));
-                    } catch (ParseException e) {
-                        date = new Date(); // Fallback to current date if parse fails
-                    }
-                    
-                    Sale sale = new Sale(
-                        rs.getInt("ID"),
-                        date,
-                        rs.getBigDecimal("Total"),
-                        rs.getInt("SID")
+                return Mappers.SALE_WITH_STAFF.list(stmt.executeQuery());
+            }
+        );
+    }
+    
+    /**
+     * Stream all sales with staff information without loading them into memory.
+     * The stream holds a database connection until it is closed, so use it with try-with-resources.
+     * 
+     * @return Stream of sales with staff information
+     */
+    public Stream<SaleWithStaff> streamAllSalesWithStaff() {
+        return DB.unsafeStream(
+            "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role " +
+            "FROM sales s " +
+            "LEFT JOIN staff st ON s.SID = st.ID " +
+            "ORDER BY s.ID DESC",
+            null,
+            Mappers.SALE_WITH_STAFF
+        );
+    }
+    
+    /**
+     * Get one page of sales with staff information, newest first.
+     * Sales are ordered by (Date, ID) so the order is stable when several sales share a timestamp.
+     * 
+     * @param after The last sale of the previous page, or null for the first page
+     * @param size The maximum number of sales in the page
+     * @return The page of sales
+     */
+    public Page<SaleWithStaff> getSalesWithStaffPage(SaleWithStaff after, int size) {
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt;
+                if (after == null) {
+                    stmt = connection.prepareStatement(
+                        "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role " +
+                        "FROM sales s " +
+                        "LEFT JOIN staff st ON s.SID = st.ID " +
+                        "ORDER BY s.Date DESC, s.ID DESC " +
+                        "LIMIT ?"
                     );
-
-                    Staff staff = null;
-                    if (rs.getInt("SID") > 0) {
-                        staff = new Staff(
-                            rs.getString("Name"),
-                            rs.getString("Position"),
-                            rs.getString("UserName"),
-                            rs.getString("Password"),
-                            rs.getString("Role")
-                        );
-                    }
-                    
-                    sales.add(new SaleWithStaff(sale, staff));
+                    stmt.setInt(1, size + 1);
+                } else {
+                    stmt = connection.prepareStatement(
+                        "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role " +
+                        "FROM sales s " +
+                        "LEFT JOIN staff st ON s.SID = st.ID " +
+                        "WHERE (s.Date, s.ID) < (?, ?) " +
+                        "ORDER BY s.Date DESC, s.ID DESC " +
+                        "LIMIT ?"
+                    );
+                    Timestamps.bind(stmt, 1, after.getSale().getDate());
+                    stmt.setInt(2, after.getSale().getId());
+                    stmt.setInt(3, size + 1);
+                }
+                
+                return Page.of(Mappers.SALE_WITH_STAFF.list(stmt.executeQuery()), size);
+            }
+        );
+    }
+    
+    /**
+     * Columns the sales list can be ordered by. Each is read in order from an index that ends in ID, and ID
+     * breaks ties, so a position in the list is found without sorting the table.
+     */
+    public enum SaleSort {
+        ID("ID"),
+        DATE("Date"),
+        TOTAL("Total");
+        
+        private final String column;
+        
+        SaleSort(String column) {
+            this.column = column;
+        }
+    }
+    
+    /**
+     * Count the sales, or those made by the staff matching a search term.
+     * 
+     * @param searchTerm The search term, matched as in {@link #searchSales(String)}, or null for every sale
+     * @return The number of sales
+     */
+    public int countSales(String searchTerm) {
+        String match = FullTextQuery.prefixMatch(searchTerm);
+        
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt;
+                if (match == null) {
+                    stmt = connection.prepareStatement("SELECT COUNT(*) FROM sales");
+                } else {
+                    stmt = connection.prepareStatement(
+                        "SELECT COUNT(*) FROM staff_fts JOIN sales s ON s.SID = staff_fts.rowid WHERE staff_fts MATCH ?"
+                    );
+                    stmt.setString(1, match);
+                }
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                
+                return rs.getInt(1);
+            }
+        );
+    }
+    
+    /**
+     * Get the sales with staff information at a range of positions in the sales list, for a list that is
+     * scrolled rather than paged through.
+     * The range is found by a subquery that reads only the index of the sort column and skips the rows before
+     * the offset there; the sales and staff are then read for the rows in the range alone. Without a sort the
+     * list is newest first, and a search keeps the order of {@link #searchSales(String)}.
+     * 
+     * @param searchTerm The search term, matched as in {@link #searchSales(String)}, or null for every sale
+     * @param sort The column to order by, or null for the default order
+     * @param ascending Whether to order the sort column ascending
+     * @param offset The position of the first sale
+     * @param limit The maximum number of sales
+     * @return The sales in the range, in list order
+     */
+    public List<SaleWithStaff> getSalesWithStaffRange(String searchTerm, SaleSort sort, boolean ascending,
+                                                      int offset, int limit) {
+        String match = FullTextQuery.prefixMatch(searchTerm);
+        String column = sort == null ? SaleSort.DATE.column : sort.column;
+        String direction = sort == null || !ascending ? "DESC" : "ASC";
+        
+        // The subquery returns the sort columns so the outer query can keep its order without sorting again
+        List<String> selected = new ArrayList<>(List.of("s.ID"));
+        List<String> keys = new ArrayList<>();
+        if (match != null && sort == null) {
+            selected.add("hits.score");
+            keys.add("score");
+        }
+        if (!column.equals("ID")) {
+            selected.add("s." + column);
+            keys.add(column + " " + direction);
+        }
+        keys.add("ID " + direction);
+        
+        String range =
+            "SELECT " + String.join(", ", selected) + " " +
+            (match == null
+                ? "FROM sales s "
+                : "FROM (SELECT rowid AS staff_id, bm25(staff_fts) AS score FROM staff_fts WHERE staff_fts MATCH ?) hits " +
+                  "JOIN sales s ON s.SID = hits.staff_id ") +
+            "ORDER BY " + String.join(", ", keys) + " " +
+            "LIMIT ? OFFSET ?";
+        
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role " +
+                    "FROM (" + range + ") page " +
+                    "JOIN sales s ON s.ID = page.ID " +
+                    "LEFT JOIN staff st ON s.SID = st.ID " +
+                    "ORDER BY page." + String.join(", page.", keys)
+                );
+                int index = 1;
+                if (match != null) {
+                    stmt.setString(index++, match);
                 }
+                stmt.setInt(index++, limit);
+                stmt.setInt(index, offset);
                 
-                return sales;
+                return Mappers.SALE_WITH_STAFF.list(stmt.executeQuery());
             }
         );
     }
@@ -121,33 +324,14 @@ public class SaleRepository {
      * @return Optional containing the sale if found, empty otherwise
      */
     public Optional<Sale> getSaleById(int saleId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT ID, Date, Total, SID FROM sales WHERE ID = ?"
                 );
                 stmt.setInt(1, saleId);
-                ResultSet rs = stmt.executeQuery();
                 
-                if (!rs.next()) {
-                    return Optional.empty();
-                }
-                
-                Date date;
-                try {
-                    date = dateFormat.parse(rs.getString("Date"));
-                } catch (ParseException e) {
-                    date = new Date(); // Fallback to current date if parse fails
-                }
-                
-                return Optional.of(
-                    new Sale(
-                        rs.getInt("ID"),
-                        date,
-                        rs.getBigDecimal("Total"),
-                        rs.getInt("SID")
-                    )
-                );
+                return Mappers.SALE.first(stmt.executeQuery());
             }
         );
     }
@@ -159,7 +343,7 @@ public class SaleRepository {
      * @return Optional containing the sale with staff information if found, empty otherwise
      */
     public Optional<SaleWithStaff> getSaleWithStaffById(int saleId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role " +
@@ -168,38 +352,8 @@ public class SaleRepository {
                     "WHERE s.ID = ?"
                 );
                 stmt.setInt(1, saleId);
-                ResultSet rs = stmt.executeQuery();
-                
-                if (!rs.next()) {
-                    return Optional.empty();
-                }
-                
-                Date date;
-                try {
-                    date = dateFormat.parse(rs.getString("Date"));
-                } catch (ParseException e) {
-                    date = new Date(); // Fallback to current date if parse fails
-                }
                 
-                Sale sale = new Sale(
-                    rs.getInt("ID"),
-                    date,
-                    rs.getBigDecimal("Total"),
-                    rs.getInt("SID")
-                );
-                
-                Staff staff = null;
-                if (rs.getInt("SID") > 0) {
-                    staff = new Staff(
-                        rs.getString("Name"),
-                        rs.getString("Position"),
-                        rs.getString("UserName"),
-                        rs.getString("Password"),
-                        rs.getString("Role")
-                    );
-                }
-                
-                return Optional.of(new SaleWithStaff(sale, staff));
+                return Mappers.SALE_WITH_STAFF.first(stmt.executeQuery());
             }
         );
     }
@@ -211,9 +365,8 @@ public class SaleRepository {
      * @return List of sale details with product information
      */
     public List<SaleDetailWithProduct> getSaleDetailsWithProducts(int saleId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
             connection -> {
-                List<SaleDetailWithProduct> details = new ArrayList<>();
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT sd.ID, sd.PID, sd.Qty, p.PName, p.Price, p.Image, p.CatID " +
                     "FROM sale_details sd " +
@@ -221,85 +374,95 @@ public class SaleRepository {
                     "WHERE sd.ID = ?"
                 );
                 stmt.setInt(1, saleId);
-                ResultSet rs = stmt.executeQuery();
                 
-                while (rs.next()) {
-                    SaleDetail saleDetail = new SaleDetail(
-                        rs.getInt("ID"),
-                        rs.getInt("PID"),
-                        rs.getInt("Qty")
-                    );
-                    
-                    Product product = new Product(
-                        rs.getInt("PID"),
-                        rs.getString("PName"),
-                        0, // Stock quantity not needed here
-                        rs.getBigDecimal("Price"),
-                        rs.getString("Image"),
-                        rs.getInt("CatID")
-                    );
-                    
-                    details.add(new SaleDetailWithProduct(saleDetail, product));
-                }
-                
-                return details;
+                return Mappers.SALE_DETAIL_WITH_PRODUCT.list(stmt.executeQuery());
             }
         );
     }
     
     /**
      * Get a complete sale with all details and staff information.
+     * The sale, its staff and its lines are read in one joined query, so the receipt is a single consistent read.
+     * Lines whose product no longer exists are left out, as in {@link #getSaleDetailsWithProducts(int)}.
      * 
      * @param saleId The sale ID
      * @return Optional containing the complete sale if found, empty otherwise
      */
     public Optional<SaleWithDetails> getSaleWithDetails(int saleId) {
-        Optional<SaleWithStaff> saleWithStaffOpt = getSaleWithStaffById(saleId);
-        
-        if (saleWithStaffOpt.isEmpty()) {
-            return Optional.empty();
-        }
-        
-        SaleWithStaff saleWithStaff = saleWithStaffOpt.get();
-        List<SaleDetailWithProduct> details = getSaleDetailsWithProducts(saleId);
-        
-        return Optional.of(new SaleWithDetails(
-            saleWithStaff.getSale(),
-            saleWithStaff.getStaff(),
-            details
-        ));
+        return DB.unsafeRead(
+            connection -> {
+                PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role, " +
+                    "p.PID, sd.Qty, p.PName, p.Price, p.Image, p.CatID " +
+                    "FROM sales s " +
+                    "LEFT JOIN staff st ON s.SID = st.ID " +
+                    "LEFT JOIN sale_details sd ON sd.ID = s.ID " +
+                    "LEFT JOIN product p ON sd.PID = p.PID " +
+                    "WHERE s.ID = ?"
+                );
+                stmt.setInt(1, saleId);
+                ResultSet rs = stmt.executeQuery();
+                
+                RowMapper.Row<SaleWithStaff> saleRow = Mappers.SALE_WITH_STAFF.bind(rs);
+                RowMapper.Row<SaleDetailWithProduct> detailRow = Mappers.SALE_DETAIL_WITH_PRODUCT.bind(rs);
+                int productId = RowMapper.Columns.of(rs).index("PID");
+                
+                SaleWithStaff saleWithStaff = null;
+                List<SaleDetailWithProduct> details = new ArrayList<>();
+                while (rs.next()) {
+                    if (saleWithStaff == null) {
+                        saleWithStaff = saleRow.map(rs);
+                    }
+                    // A sale without lines, or a line without its product, has NULL product columns
+                    if (rs.getObject(productId) != null) {
+                        details.add(detailRow.map(rs));
+                    }
+                }
+                
+                if (saleWithStaff == null) {
+                    return Optional.<SaleWithDetails>empty();
+                }
+                return Optional.of(new SaleWithDetails(saleWithStaff.getSale(), saleWithStaff.getStaff(), details));
+            }
+        );
     }
     
     /**
      * Create a new sale with details.
+     * The sale, its details, the stock updates and the daily rollup are written in a single transaction.
+     * Stock is only taken while enough remains, so two checkouts cannot sell the same units; when a line
+     * cannot be covered the whole sale is rolled back.
      * 
      * @param date The sale date
      * @param total The total amount
      * @param staffId The staff ID
      * @param saleDetails List of sale details (product ID and quantity)
-     * @return The ID of the created sale, or -1 if creation failed
+     * @return The ID of the created sale
+     * @throws InsufficientStockException If a product does not have enough stock for its line
+     * @throws DatabaseException If the sale could not be written; nothing is saved
      */
     public int createSale(Date date, BigDecimal total, int staffId, List<Map<String, Object>> saleDetails) {
-        return DB.unsafeExecute(
+        return DB.unsafeTransaction(
             connection -> {
                 // Insert the sale
                 PreparedStatement saleStmt = connection.prepareStatement(
                     "INSERT INTO sales (Date, Total, SID) VALUES (?, ?, ?)",
                     Statement.RETURN_GENERATED_KEYS
                 );
-                saleStmt.setString(1, dateFormat.format(date));
+                Timestamps.bind(saleStmt, 1, date);
                 saleStmt.setBigDecimal(2, total);
                 saleStmt.setInt(3, staffId);
                 
+                // Throwing rolls the transaction back and drops its after-commit events
                 int affectedRows = saleStmt.executeUpdate();
                 if (affectedRows == 0) {
-                    return -1;
+                    throw new SQLException("Creating the sale failed, no rows were inserted");
                 }
                 
                 // Get the generated sale ID
                 ResultSet generatedKeys = saleStmt.getGeneratedKeys();
                 if (!generatedKeys.next()) {
-                    return -1;
+                    throw new SQLException("Creating the sale failed, no ID was generated");
                 }
                 
                 int saleId = generatedKeys.getInt(1);
@@ -309,41 +472,82 @@ public class SaleRepository {
                     "INSERT INTO sale_details (ID, PID, Qty) VALUES (?, ?, ?)"
                 );
                 
-                // Also update product stock quantities
+                // Also take the quantities from stock, only where enough is left
                 PreparedStatement updateStockStmt = connection.prepareStatement(
-                    "UPDATE product SET Sqty = Sqty - ? WHERE PID = ?"
+                    "UPDATE product SET Sqty = Sqty - ? WHERE PID = ? AND Sqty >= ?"
                 );
                 
+                int items = 0;
+                Set<Integer> productIds = new LinkedHashSet<>();
                 for (Map<String, Object> detail : saleDetails) {
                     int productId = (int) detail.get("productId");
                     int quantity = (int) detail.get("quantity");
+                    productIds.add(productId);
                     
                     // Insert detail
                     detailStmt.setInt(1, saleId);
                     detailStmt.setInt(2, productId);
                     detailStmt.setInt(3, quantity);
-                    detailStmt.executeUpdate();
+                    detailStmt.addBatch();
                     
                     // Update stock
                     updateStockStmt.setInt(1, quantity);
                     updateStockStmt.setInt(2, productId);
-                    updateStockStmt.executeUpdate();
+                    updateStockStmt.setInt(3, quantity);
+                    updateStockStmt.addBatch();
+                    
+                    items += quantity;
                 }
                 
+                detailStmt.executeBatch();
+                int[] stockUpdates = updateStockStmt.executeBatch();
+                for (int i = 0; i < stockUpdates.length; i++) {
+                    if (stockUpdates[i] == 0) {
+                        Map<String, Object> detail = saleDetails.get(i);
+                        throw insufficientStock(connection, (int) detail.get("productId"), (int) detail.get("quantity"));
+                    }
+                }
+                
+                DailySalesRollup.add(connection, date, staffId, total, items);
+                
+                publishSaleChanged(Change.CREATED, saleId, productIds);
                 return saleId;
             }
         );
     }
     
     /**
-     * Delete a sale and its details.
+     * Build the error for a sale line whose stock update matched no row, reading the product inside the
+     * checkout transaction so the reported stock is the stock that was checked.
+     */
+    private IllegalArgumentException insufficientStock(Connection connection, int productId, int quantity)
+            throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(
+            "SELECT PID, PName, Sqty, Price, Image, CatID FROM product WHERE PID = ?"
+        );
+        stmt.setInt(1, productId);
+        Optional<Product> product = Mappers.PRODUCT.first(stmt.executeQuery());
+        
+        if (product.isEmpty()) {
+            return new IllegalArgumentException("Product not found: " + productId);
+        }
+        return new InsufficientStockException(productId, product.get().getName(), quantity, product.get().getStockQuantity());
+    }
+    
+    /**
+     * Delete a sale and its details, restoring product stock and the daily rollup in the same transaction.
      *
      * @param saleId The sale ID
-     * @return True if the sale was deleted, false otherwise
      */
     public void deleteSale(int saleId) {
-        DB.unsafeExecute(
+        DB.unsafeTransaction(
             connection -> {
+                PreparedStatement getSaleStmt = connection.prepareStatement(
+                    "SELECT ID, Date, Total, SID FROM sales WHERE ID = ?"
+                );
+                getSaleStmt.setInt(1, saleId);
+                Optional<Sale> sale = Mappers.SALE.first(getSaleStmt.executeQuery());
+
                 // Get the sale details to restore product quantities
                 PreparedStatement getDetailsStmt = connection.prepareStatement(
                     "SELECT PID, Qty FROM sale_details WHERE ID = ?"
@@ -356,82 +560,141 @@ public class SaleRepository {
                     "UPDATE product SET Sqty = Sqty + ? WHERE PID = ?"
                 );
 
+                int items = 0;
+                Set<Integer> productIds = new LinkedHashSet<>();
                 while (rs.next()) {
                     int productId = rs.getInt("PID");
                     int quantity = rs.getInt("Qty");
+                    productIds.add(productId);
 
                     restoreStockStmt.setInt(1, quantity);
                     restoreStockStmt.setInt(2, productId);
-                    restoreStockStmt.executeUpdate();
+                    restoreStockStmt.addBatch();
+
+                    items += quantity;
                 }
+                restoreStockStmt.executeBatch();
+
+                if (sale.isPresent()) {
+                    Sale deleted = sale.get();
+                    DailySalesRollup.remove(connection, deleted.getDate(), deleted.getStaffId(), deleted.getTotal(), items);
+                }
+
+                // Foreign keys are not enforced, so the details do not cascade with the sale
+                PreparedStatement deleteDetailsStmt = connection.prepareStatement(
+                    "DELETE FROM sale_details WHERE ID = ?"
+                );
+                deleteDetailsStmt.setInt(1, saleId);
+                deleteDetailsStmt.executeUpdate();
 
-                // Delete the sale (details will be deleted via CASCADE)
+                // Delete the sale
                 PreparedStatement stmt = connection.prepareStatement(
                     "DELETE FROM sales WHERE ID = ?"
                 );
                 stmt.setInt(1, saleId);
                 int affectedRows = stmt.executeUpdate();
 
+                if (affectedRows > 0) {
+                    publishSaleChanged(Change.DELETED, saleId, productIds);
+                }
                 return affectedRows > 0;
             }
         );
     }
     
     /**
-     * Search for sales based on a search term.
+     * Announce a sale write once it commits, along with the stock it moved for its products.
+     * 
+     * @param change What happened to the sale
+     * @param saleId The sale ID
+     * @param productIds The IDs of the products on the sale
+     */
+    private static void publishSaleChanged(Change change, int saleId, Set<Integer> productIds) {
+        EventBus.publishAfterCommit(new SaleChanged(change, List.of(saleId), productIds));
+        if (!productIds.isEmpty()) {
+            EventBus.publishAfterCommit(new ProductChanged(Change.UPDATED, productIds));
+        }
+    }
+    
+    /**
+     * Search for sales by the name or username of the staff member who made them.
+     * Every word of the search term must prefix a word of the name or username; staff are found through
+     * the staff_fts full-text index and their sales through the SID index. Sales of the best matching staff
+     * come first, newest first within each staff member.
      * 
      * @param searchTerm The search term
      * @return List of sales with staff information matching the search term
      */
     public List<SaleWithStaff> searchSales(String searchTerm) {
-        return DB.unsafeExecute(
+        String match = FullTextQuery.prefixMatch(searchTerm);
+        if (match == null) {
+            return getAllSalesWithStaff();
+        }
+        
+        return DB.unsafeRead(
             connection -> {
-                List<SaleWithStaff> sales = new ArrayList<>();
                 PreparedStatement stmt = connection.prepareStatement(
                     "SELECT s.ID, s.Date, s.Total, s.SID, st.Name, st.Position, st.UserName, st.Password, st.Role " +
-                    "FROM sales s " +
-                    "LEFT JOIN staff st ON s.SID = st.ID " +
-                    "WHERE st.Name LIKE ? OR st.UserName LIKE ? " +
-                    "ORDER BY s.Date DESC"
+                    "FROM (SELECT rowid as id, bm25(staff_fts) as score FROM staff_fts WHERE staff_fts MATCH ?) hits " +
+                    "JOIN sales s ON s.SID = hits.id " +
+                    "JOIN staff st ON s.SID = st.ID " +
+                    "ORDER BY hits.score, s.Date DESC, s.ID DESC"
                 );
+                stmt.setString(1, match);
                 
-                String pattern = "%" + searchTerm + "%";
-                stmt.setString(1, pattern);
-                stmt.setString(2, pattern);
-                ResultSet rs = stmt.executeQuery();
-                
-                while (rs.next()) {
-                    Date date;
-                    try {
-                        date = dateFormat.parse(rs.getString("Date"));
-                    } catch (ParseException e) {
-                        date = new Date(); // Fallback to current date if parse fails
-                    }
-                    
-                    Sale sale = new Sale(
-                        rs.getInt("ID"),
-                        date,
-                        rs.getBigDecimal("Total"),
-                        rs.getInt("SID")
-                    );
-                    
-                    Staff staff = null;
-                    if (rs.getInt("SID") > 0) {
-                        staff = new Staff(
-                            rs.getString("Name"),
-                            rs.getString("Position"),
-                            rs.getString("UserName"),
-                            rs.getString("Password"),
-                            rs.getString("Role")
-                        );
-                    }
-                    
-                    sales.add(new SaleWithStaff(sale, staff));
-                }
-                
-                return sales;
+                return Mappers.SALE_WITH_STAFF.list(stmt.executeQuery());
             }
         );
     }
 
-} 
\ No newline at end of file
+    /**
+     * Get the asynchronous view of this repository.
+     * 
+     * @return Query methods that run on virtual threads and return futures
+     */
+    public AsyncView async() {
+        return asyncView;
+    }
+
+    /**
+     * Asynchronous versions of the query methods, run on virtual threads through {@link Async}.
+     * Writes are not included; they already queue on the database writer thread.
+     */
+    public final class AsyncView {
+        public CompletableFuture<List<Sale>> getAllSales() {
+            return Async.supply(() -> SaleRepository.this.getAllSales());
+        }
+
+        public CompletableFuture<SaleSummary> aggregate(Date from, Date to) {
+            return Async.supply(() -> SaleRepository.this.aggregate(from, to));
+        }
+
+        public CompletableFuture<SalesTotals> getSalesTotals(LocalDate firstDay, LocalDate lastDay) {
+            return Async.supply(() -> SaleRepository.this.getSalesTotals(firstDay, lastDay));
+        }
+
+        public CompletableFuture<List<SaleWithStaff>> getAllSalesWithStaff() {
+            return Async.supply(() -> SaleRepository.this.getAllSalesWithStaff());
+        }
+
+        public CompletableFuture<Optional<Sale>> getSaleById(int saleId) {
+            return Async.supply(() -> SaleRepository.this.getSaleById(saleId));
+        }
+
+        public CompletableFuture<Optional<SaleWithStaff>> getSaleWithStaffById(int saleId) {
+            return Async.supply(() -> SaleRepository.this.getSaleWithStaffById(saleId));
+        }
+
+        public CompletableFuture<List<SaleDetailWithProduct>> getSaleDetailsWithProducts(int saleId) {
+            return Async.supply(() -> SaleRepository.this.getSaleDetailsWithProducts(saleId));
+        }
+
+        public CompletableFuture<List<SaleWithStaff>> searchSales(String searchTerm) {
+            return Async.supply(() -> SaleRepository.this.searchSales(searchTerm));
+        }
+
+        public CompletableFuture<Optional<SaleWithDetails>> getSaleWithDetails(int saleId) {
+            return Async.supply(() -> SaleRepository.this.getSaleWithDetails(saleId));
+        }
+    }
+}
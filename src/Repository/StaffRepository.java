@@ -1,95 +1,94 @@
 package Repository;
 
+import Event.ChangeEvent.Change;
+import Event.StaffChanged;
+import Model.Expense;
 import Model.ExpenseWithStaff;
 import Model.Staff;
+import Model.StaffExpenseSummary;
 import Model.StaffWithExpenses;
+import Support.Async;
 import Support.DB;
+import Support.EventBus;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class StaffRepository {
+    private static final String STAFF_WITH_EXPENSES_SQL =
+            "SELECT s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role, "
+                    + "e.id, e.date, e.name, e.description, e.amount, e.picture, e.staff_id "
+                    + "FROM staff s "
+                    + "LEFT JOIN expenses e ON e.staff_id = s.id ";
+    private static final String STAFF_WITH_EXPENSES_ORDER = "ORDER BY s.id, e.date DESC, e.id DESC";
+
+    private final AsyncView asyncView = new AsyncView();
 
     public StaffRepository() {
     }
 
     public Optional<Staff> getStaffById(int staffId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
                     PreparedStatement stmt =
                             connection.prepareStatement(
                                     "SELECT id, name, position, username, password, role FROM staff WHERE id = ?");
                     stmt.setInt(1, staffId);
-                    ResultSet rs = stmt.executeQuery();
-
-                    if (!rs.next()) {
-                        return Optional.empty();
-                    }
 
-                    return Optional.of(
-                            new Staff(
-                                    rs.getInt("id"),
-                                    rs.getString("name"),
-                                    rs.getString("position"),
-                                    rs.getString("username"),
-                                    rs.getString("password"),
-                                    rs.getString("role")));
+                    return Mappers.STAFF.first(stmt.executeQuery());
                 });
     }
 
     public Optional<Staff> getStaffByUserName(String userName) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
                     PreparedStatement stmt =
                             connection.prepareStatement(
                                     "SELECT id, name, position, username, password, role FROM staff WHERE username = ?");
                     stmt.setString(1, userName);
-                    ResultSet rs = stmt.executeQuery();
-
-                    if (!rs.next()) {
-                        return Optional.empty();
-                    }
 
-                    return Optional.of(
-                            new Staff(
-                                    rs.getInt("id"),
-                                    rs.getString("name"),
-                                    rs.getString("position"),
-                                    rs.getString("username"),
-                                    rs.getString("password"),
-                                    rs.getString("role")));
+                    return Mappers.STAFF.first(stmt.executeQuery());
                 });
     }
 
     public List<Staff> getAllStaff() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
-                    List<Staff> staffList = new ArrayList<>();
-                    Statement stmt = connection.createStatement();
-                    ResultSet rs =
-                            stmt.executeQuery("SELECT id, name, position, username, password, role FROM staff");
-
-                    while (rs.next()) {
-                        staffList.add(
-                                new Staff(
-                                        rs.getInt("id"),
-                                        rs.getString("name"),
-                                        rs.getString("position"),
-                                        rs.getString("username"),
-                                        rs.getString("password"),
-                                        rs.getString("role")));
-                    }
+                    PreparedStatement stmt =
+                            connection.prepareStatement("SELECT id, name, position, username, password, role FROM staff");
 
-                    return staffList;
+                    return Mappers.STAFF.list(stmt.executeQuery());
+                });
+    }
+
+    /**
+     * Get one page of staff ordered by id.
+     *
+     * @param after The last staff member of the previous page, or null for the first page
+     * @param size The maximum number of staff in the page
+     * @return The page of staff
+     */
+    public Page<Staff> getStaffPage(Staff after, int size) {
+        return DB.unsafeRead(
+                connection -> {
+                    PreparedStatement stmt =
+                            connection.prepareStatement(
+                                    "SELECT id, name, position, username, password, role FROM staff WHERE id > ? ORDER BY id LIMIT ?");
+                    stmt.setInt(1, after == null ? Integer.MIN_VALUE : after.getId());
+                    stmt.setInt(2, size + 1);
+
+                    return Page.of(Mappers.STAFF.list(stmt.executeQuery()), size);
                 });
     }
 
     public Staff createStaff(
             String name, String position, String userName, String password, String role) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
                 connection -> {
                     PreparedStatement stmt =
                             connection.prepareStatement(
@@ -105,8 +104,9 @@ public class StaffRepository {
 
                     ResultSet generatedKeys = stmt.getGeneratedKeys();
                     if (generatedKeys.next()) {
-                        return new Staff(
-                                generatedKeys.getInt(1), name, position, userName, password, role);
+                        int staffId = generatedKeys.getInt(1);
+                        EventBus.publishAfterCommit(new StaffChanged(Change.CREATED, List.of(staffId)));
+                        return new Staff(staffId, name, position, userName, password, role);
                     } else {
                         return null;
                     }
@@ -114,7 +114,7 @@ public class StaffRepository {
     }
 
     public boolean updateStaff(Staff staff) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
                 connection -> {
                     PreparedStatement stmt =
                             connection.prepareStatement(
@@ -125,12 +125,12 @@ public class StaffRepository {
                     stmt.setString(4, staff.getRole());
                     stmt.setInt(5, staff.getId());
 
-                    return stmt.executeUpdate() > 0;
+                    return published(stmt.executeUpdate() > 0, Change.UPDATED, staff.getId());
                 });
     }
 
     public boolean updateStaffWithPassword(Staff staff, String newPassword) {
-        return DB.unsafeExecute(
+        return DB.unsafeWrite(
                 connection -> {
                     PreparedStatement stmt =
                             connection.prepareStatement(
@@ -142,47 +142,56 @@ public class StaffRepository {
                     stmt.setString(5, staff.getRole());
                     stmt.setInt(6, staff.getId());
 
-                    return stmt.executeUpdate() > 0;
+                    return published(stmt.executeUpdate() > 0, Change.UPDATED, staff.getId());
                 });
     }
 
+    /**
+     * Delete a staff member. Their sales keep no staff, so in the same transaction the SID of those sales
+     * is cleared and their daily rollup rows move to staff 0.
+     */
     public boolean deleteStaff(int staffId) {
-        return DB.unsafeExecute(
+        return DB.unsafeTransaction(
                 connection -> {
                     PreparedStatement stmt =
                             connection.prepareStatement("DELETE FROM staff WHERE id = ?");
                     stmt.setInt(1, staffId);
-                    return stmt.executeUpdate() > 0;
+                    if (stmt.executeUpdate() == 0) {
+                        return false;
+                    }
+
+                    // Foreign keys are not enforced, so the sales are not cleared by ON DELETE SET NULL
+                    PreparedStatement clearSales =
+                            connection.prepareStatement("UPDATE sales SET SID = NULL WHERE SID = ?");
+                    clearSales.setInt(1, staffId);
+                    clearSales.executeUpdate();
+
+                    DailySalesRollup.detachStaff(connection, staffId);
+                    return published(true, Change.DELETED, staffId);
                 });
     }
 
+    private static boolean published(boolean changed, Change change, int staffId) {
+        if (changed) {
+            EventBus.publishAfterCommit(new StaffChanged(change, List.of(staffId)));
+        }
+        return changed;
+    }
+
     public List<Staff> getStaffByRole(String role) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
-                    List<Staff> staffList = new ArrayList<>();
                     PreparedStatement stmt =
                             connection.prepareStatement(
                                     "SELECT id, name, position, username, password, role FROM staff WHERE role = ?");
                     stmt.setString(1, role);
-                    ResultSet rs = stmt.executeQuery();
 
-                    while (rs.next()) {
-                        staffList.add(
-                                new Staff(
-                                        rs.getInt("id"),
-                                        rs.getString("name"),
-                                        rs.getString("position"),
-                                        rs.getString("username"),
-                                        rs.getString("password"),
-                                        rs.getString("role")));
-                    }
-
-                    return staffList;
+                    return Mappers.STAFF.list(stmt.executeQuery());
                 });
     }
 
     public boolean checkStaffExists(String userName) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
                     PreparedStatement stmt =
                             connection.prepareStatement("SELECT COUNT(*) FROM staff WHERE username = ?");
@@ -194,10 +203,10 @@ public class StaffRepository {
     }
 
     public int countStaff() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
-                    Statement stmt = connection.createStatement();
-                    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) as count FROM staff");
+                    PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) as count FROM staff");
+                    ResultSet rs = stmt.executeQuery();
 
                     if (rs.next()) {
                         return rs.getInt("count");
@@ -208,102 +217,127 @@ public class StaffRepository {
     }
 
     public Optional<StaffWithExpenses> getStaffWithExpensesById(int staffId) {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
-                    PreparedStatement staffStmt =
-                            connection.prepareStatement(
-                                    "SELECT id, name, position, username, password, role FROM staff WHERE id = ?");
-                    staffStmt.setInt(1, staffId);
-                    ResultSet staffRs = staffStmt.executeQuery();
-
-                    if (!staffRs.next()) {
-                        return Optional.empty();
-                    }
-
-                    Staff staff =
-                            new Staff(
-                                    staffRs.getInt("id"),
-                                    staffRs.getString("name"),
-                                    staffRs.getString("position"),
-                                    staffRs.getString("username"),
-                                    staffRs.getString("password"),
-                                    staffRs.getString("role"));
-
-                    PreparedStatement expensesStmt =
-                            connection.prepareStatement(
-                                    "SELECT id, date, name, description, amount, picture, staff_id FROM expenses WHERE staff_id = ? ORDER BY id DESC");
-                    expensesStmt.setInt(1, staffId);
-                    ResultSet expensesRs = expensesStmt.executeQuery();
-
-                    List<ExpenseWithStaff> expenses = new ArrayList<>();
-
-                    while (expensesRs.next()) {
-                        Model.Expense expense =
-                                new Model.Expense(
-                                        expensesRs.getInt("id"),
-                                        expensesRs.getDate("date"),
-                                        expensesRs.getString("name"),
-                                        expensesRs.getString("description"),
-                                        expensesRs.getBigDecimal("amount"),
-                                        expensesRs.getString("picture"),
-                                        expensesRs.getInt("staff_id"));
-
-                        ExpenseWithStaff expenseWithStaff = new ExpenseWithStaff(expense, staff);
-
-                        expenses.add(expenseWithStaff);
-                    }
+                    PreparedStatement stmt =
+                            connection.prepareStatement(STAFF_WITH_EXPENSES_SQL + "WHERE s.id = ? " + STAFF_WITH_EXPENSES_ORDER);
+                    stmt.setInt(1, staffId);
 
-                    return Optional.of(new StaffWithExpenses(staff, expenses));
+                    List<StaffWithExpenses> found = groupExpensesByStaff(stmt.executeQuery());
+                    return found.isEmpty() ? Optional.<StaffWithExpenses>empty() : Optional.of(found.get(0));
                 });
     }
 
+    /**
+     * Get every staff member with their expenses in one ordered join, rather than a query per staff member.
+     *
+     * @return The staff ordered by id, each with their expenses newest first
+     */
     public List<StaffWithExpenses> getAllStaffWithExpenses() {
-        return DB.unsafeExecute(
+        return DB.unsafeRead(
                 connection -> {
-                    Statement staffStmt = connection.createStatement();
-                    ResultSet staffRs =
-                            staffStmt.executeQuery(
-                                    "SELECT id, date, name, position, username, password, role FROM staff ORDER BY id");
-
-                    List<StaffWithExpenses> staffWithExpensesList = new ArrayList<>();
-
-                    while (staffRs.next()) {
-                        Staff staff =
-                                new Staff(
-                                        staffRs.getInt("id"),
-                                        staffRs.getString("name"),
-                                        staffRs.getString("position"),
-                                        staffRs.getString("username"),
-                                        staffRs.getString("password"),
-                                        staffRs.getString("role"));
-                        PreparedStatement expensesStmt =
-                                connection.prepareStatement(
-                                        "SELECT id, name, description, amount, picture, staff_id FROM expenses WHERE staff_id = ? ORDER BY id DESC");
-                        expensesStmt.setInt(1, staff.getId());
-                        ResultSet expensesRs = expensesStmt.executeQuery();
-
-                        List<ExpenseWithStaff> expenses = new ArrayList<>();
-
-                        while (expensesRs.next()) {
-                            Model.Expense expense =
-                                    new Model.Expense(
-                                            expensesRs.getInt("id"),
-                                            expensesRs.getDate("date"),
-                                            expensesRs.getString("name"),
-                                            expensesRs.getString("description"),
-                                            expensesRs.getBigDecimal("amount"),
-                                            expensesRs.getString("picture"),
-                                            expensesRs.getInt("staff_id"));
-
-                            ExpenseWithStaff expenseWithStaff = new ExpenseWithStaff(expense, staff);
-
-                            expenses.add(expenseWithStaff);
-                        }
-
-                        staffWithExpensesList.add(new StaffWithExpenses(staff, expenses));
-                    }
+                    PreparedStatement stmt =
+                            connection.prepareStatement(STAFF_WITH_EXPENSES_SQL + STAFF_WITH_EXPENSES_ORDER);
 
-                    return staffWithExpensesList;
+                    return groupExpensesByStaff(stmt.executeQuery());
                 });
     }
+
+    /**
+     * Get every staff member with the number and total of their expenses, without loading the expenses.
+     *
+     * @return The staff ordered by id with their expense counts and totals
+     */
+    public List<StaffExpenseSummary> getStaffExpenseSummaries() {
+        return DB.unsafeRead(
+                connection -> {
+                    PreparedStatement stmt =
+                            connection.prepareStatement(
+                                    "SELECT s.id as s_id, s.name as staff_name, s.position, s.username, s.password, s.role, "
+                                            + "COUNT(e.id) as ExpenseCount, SUM(e.amount) as ExpenseTotal "
+                                            + "FROM staff s "
+                                            + "LEFT JOIN expenses e ON e.staff_id = s.id "
+                                            + "GROUP BY s.id "
+                                            + "ORDER BY s.id");
+
+                    return Mappers.STAFF_EXPENSE_SUMMARY.list(stmt.executeQuery());
+                });
+    }
+
+    /**
+     * Fold the rows of a staff LEFT JOIN expenses query, ordered by staff, into one entry per staff member.
+     * Staff without expenses come back as a single row with NULL expense columns.
+     */
+    private List<StaffWithExpenses> groupExpensesByStaff(ResultSet rs) throws SQLException {
+        RowMapper.Row<Staff> staffRow = Mappers.JOINED_STAFF.bind(rs);
+        RowMapper.Row<Expense> expenseRow = Mappers.EXPENSE.bind(rs);
+        int staffId = RowMapper.Columns.of(rs).index("s_id");
+        int expenseId = RowMapper.Columns.of(rs).index("id");
+
+        List<StaffWithExpenses> staffWithExpensesList = new ArrayList<>();
+        Staff staff = null;
+        List<ExpenseWithStaff> expenses = null;
+        while (rs.next()) {
+            if (staff == null || staff.getId() != rs.getInt(staffId)) {
+                staff = staffRow.map(rs);
+                expenses = new ArrayList<>();
+                staffWithExpensesList.add(new StaffWithExpenses(staff, expenses));
+            }
+            if (rs.getObject(expenseId) != null) {
+                expenses.add(new ExpenseWithStaff(expenseRow.map(rs), staff));
+            }
+        }
+        return staffWithExpensesList;
+    }
+
+    /**
+     * Get the asynchronous view of this repository.
+     * 
+     * @return Query methods that run on virtual threads and return futures
+     */
+    public AsyncView async() {
+        return asyncView;
+    }
+
+    /**
+     * Asynchronous versions of the query methods, run on virtual threads through {@link Async}.
+     * Writes are not included; they already queue on the database writer thread.
+     */
+    public final class AsyncView {
+        public CompletableFuture<Optional<Staff>> getStaffById(int staffId) {
+            return Async.supply(() -> StaffRepository.this.getStaffById(staffId));
+        }
+
+        public CompletableFuture<Optional<Staff>> getStaffByUserName(String userName) {
+            return Async.supply(() -> StaffRepository.this.getStaffByUserName(userName));
+        }
+
+        public CompletableFuture<List<Staff>> getAllStaff() {
+            return Async.supply(() -> StaffRepository.this.getAllStaff());
+        }
+
+        public CompletableFuture<List<Staff>> getStaffByRole(String role) {
+            return Async.supply(() -> StaffRepository.this.getStaffByRole(role));
+        }
+
+        public CompletableFuture<Boolean> checkStaffExists(String userName) {
+            return Async.supply(() -> StaffRepository.this.checkStaffExists(userName));
+        }
+
+        public CompletableFuture<Integer> countStaff() {
+            return Async.supply(() -> StaffRepository.this.countStaff());
+        }
+
+        public CompletableFuture<Optional<StaffWithExpenses>> getStaffWithExpensesById(int staffId) {
+            return Async.supply(() -> StaffRepository.this.getStaffWithExpensesById(staffId));
+        }
+
+        public CompletableFuture<List<StaffWithExpenses>> getAllStaffWithExpenses() {
+            return Async.supply(() -> StaffRepository.this.getAllStaffWithExpenses());
+        }
+
+        public CompletableFuture<List<StaffExpenseSummary>> getStaffExpenseSummaries() {
+            return Async.supply(() -> StaffRepository.this.getStaffExpenseSummaries());
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package Support;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs blocking work, such as repository queries, on virtual threads and hands results back to Swing.
+ * Futures returned by {@link #supply(Callable)} time out after {@link #DEFAULT_TIMEOUT_MILLIS} unless another
+ * timeout is given, and cancelling them (or timing out) interrupts the thread running the work.
+ */
+public final class Async {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    private static final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("db-async-", 0).factory());
+
+    private Async() {
+    }
+
+    /**
+     * Run a task on a virtual thread with the default timeout.
+     *
+     * @param task The task to run
+     * @return A future for the task's result
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task) {
+        return supply(task, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Run a task on a virtual thread.
+     *
+     * @param task The task to run
+     * @param timeoutMillis Time after which the future fails with a {@link TimeoutException}, or 0 for none
+     * @return A future for the task's result; cancelling it interrupts the task
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task, long timeoutMillis) {
+        Task<T> future = new Task<>();
+        future.running = executor.submit(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+
+        if (timeoutMillis > 0) {
+            future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Deliver a future's outcome on the Event Dispatch Thread.
+     * Cancelled futures are ignored, since whoever cancelled them no longer wants the result.
+     *
+     * @param future The future to observe
+     * @param onSuccess Receives the result on the EDT
+     * @param onError Receives the unwrapped failure on the EDT
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, Consumer<? super T> onSuccess,
+                                 Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (error == null) {
+                    onSuccess.accept(result);
+                } else {
+                    onError.accept(unwrap(error));
+                }
+            });
+        });
+    }
+
+    /**
+     * Strip the {@link CompletionException} and {@link ExecutionException} wrappers from a failure.
+     *
+     * @param error The failure reported by a future
+     * @return The underlying cause
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    /**
+     * Check whether a failure means the work was cancelled rather than broken.
+     *
+     * @param error The failure reported by a future
+     * @return True for cancellations
+     */
+    public static boolean isCancellation(Throwable error) {
+        return unwrap(error) instanceof CancellationException;
+    }
+
+    /**
+     * A future that interrupts its worker when it is cancelled or times out.
+     */
+    private static final class Task<T> extends CompletableFuture<T> {
+        private volatile Future<?> running;
+
+        @Override
+        public boolean completeExceptionally(Throwable ex) {
+            boolean completed = super.completeExceptionally(ex);
+            if (completed && ex instanceof TimeoutException) {
+                interrupt();
+            }
+            return completed;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                interrupt();
+            }
+            return cancelled;
+        }
+
+        private void interrupt() {
+            Future<?> worker = running;
+            if (worker != null) {
+                worker.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package Support;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lets reads running on another thread be abandoned part way through a query.
+ * Every statement executed by work run through {@link #call(Callable)} registers with the scope while it runs,
+ * and {@link #cancel()} calls {@link Statement#cancel()} on those still running, which interrupts SQLite so the
+ * query fails with SQLITE_INTERRUPT instead of stepping through the rest of its rows. Statements started after
+ * the scope is cancelled fail straight away.
+ * <p>
+ * Only statements executed on the thread running the scope are covered. Writes run on the writer thread, so
+ * they are never cancelled.
+ */
+public final class CancellationScope {
+    private static final ThreadLocal<CancellationScope> current = new ThreadLocal<>();
+
+    private final Set<Statement> running = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean cancelled;
+
+    /**
+     * Run a task on a virtual thread in a new scope. Cancelling the returned future, or its timing out,
+     * cancels the queries the task is running.
+     *
+     * @param task The task to run
+     * @return A future for the task's result
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task) {
+        CancellationScope scope = new CancellationScope();
+        CompletableFuture<T> future = Async.supply(() -> scope.call(task));
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                scope.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run a task on the current thread with this scope covering the statements it executes.
+     *
+     * @param task The task to run
+     * @return The task's result
+     * @throws Exception If the task fails, including with an {@link SQLException} when it was cancelled
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        CancellationScope outer = current.get();
+        current.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (outer == null) {
+                current.remove();
+            } else {
+                current.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Cancel the statements running in this scope and fail any it starts later.
+     */
+    public synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+
+        for (Statement statement : running) {
+            try {
+                statement.cancel();
+            } catch (SQLException ignored) {
+                // The statement finished or was closed in the meantime
+            }
+        }
+        running.clear();
+    }
+
+    /**
+     * Check whether the scope has been cancelled.
+     *
+     * @return True once {@link #cancel()} has been called
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Register a statement that is about to execute with the scope of the current thread, if there is one.
+     *
+     * @param statement The statement to cancel along with the scope
+     * @return The scope the statement must {@link #leave} once its rows are read, or null outside a scope
+     * @throws SQLException If the scope is already cancelled
+     */
+    static CancellationScope enter(Statement statement) throws SQLException {
+        CancellationScope scope = current.get();
+        if (scope == null) {
+            return null;
+        }
+
+        synchronized (scope) {
+            if (scope.cancelled) {
+                throw new SQLException("Query cancelled", "57014");
+            }
+            scope.running.add(statement);
+        }
+        return scope;
+    }
+
+    /**
+     * Unregister a statement that finished, before its connection can be handed to another borrower.
+     *
+     * @param statement The statement
+     */
+    synchronized void leave(Statement statement) {
+        running.remove(statement);
+    }
+}
@@ -0,0 +1,685 @@
+package Support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of long-lived JDBC connections.
+ * Connections are validated when borrowed, idle connections above the minimum size are
+ * evicted after the idle timeout, and borrow statistics are kept for diagnostics.
+ * Borrowed connections are returned to the pool by calling {@link Connection#close()}.
+ * Each physical connection owns a {@link StatementCache}, so repositories can call
+ * {@code prepareStatement} with constant SQL without re-parsing it or managing statement lifecycles.
+ * Statements are handed out wrapped so every execution is recorded in {@link QueryMetrics}.
+ */
+public class ConnectionPool {
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Settings settings;
+    private final Initializer initializer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int totalConnections;
+    private boolean closed;
+
+    private final ScheduledExecutorService evictor;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final StatementCache.Counters statementCacheCounters = new StatementCache.Counters();
+
+    /**
+     * Creates a new pool and opens the minimum number of connections.
+     *
+     * @param name A short name used for the evictor thread and in statistics
+     * @param url The JDBC URL
+     * @param username The database username
+     * @param password The database password
+     * @param settings The pool settings
+     * @throws SQLException If the initial connections cannot be opened
+     */
+    public ConnectionPool(String name, String url, String username, String password, Settings settings)
+            throws SQLException {
+        this(name, url, username, password, settings, connection -> {});
+    }
+
+    /**
+     * Creates a new pool that runs an initializer on every connection it opens.
+     *
+     * @param name A short name used for the evictor thread and in statistics
+     * @param url The JDBC URL
+     * @param username The database username
+     * @param password The database password
+     * @param settings The pool settings
+     * @param initializer Configures each new physical connection before it is first handed out
+     * @throws SQLException If the initial connections cannot be opened
+     */
+    public ConnectionPool(String name, String url, String username, String password, Settings settings,
+                          Initializer initializer) throws SQLException {
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.settings = settings;
+        this.initializer = initializer;
+
+        try {
+            for (int i = 0; i < settings.getMinSize(); i++) {
+                idle.push(openConnection());
+                totalConnections++;
+            }
+        } catch (SQLException e) {
+            idle.forEach(pooled -> {
+                try {
+                    pooled.physical.close();
+                } catch (SQLException ignored) {
+                    // Already failing, keep the original error
+                }
+            });
+            throw e;
+        }
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-evictor-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, settings.getIdleTimeoutMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, opening a new one if the pool is below its maximum size.
+     * Waits up to the configured borrow timeout when every connection is in use.
+     *
+     * @return A connection that must be closed to return it to the pool
+     * @throws SQLException If no connection became available in time or a new one could not be opened
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long remaining = TimeUnit.MILLISECONDS.toNanos(settings.getBorrowTimeoutMillis());
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean openNew = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool '" + name + "' is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pop();
+                        break;
+                    }
+                    if (totalConnections < settings.getMaxSize()) {
+                        totalConnections++;
+                        openNew = true;
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        timeouts.increment();
+                        throw new SQLException("Timed out waiting for a database connection from pool '" + name + "'");
+                    }
+                    try {
+                        remaining = available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (openNew) {
+                try {
+                    candidate = openConnection();
+                } catch (SQLException e) {
+                    discardSlot();
+                    throw e;
+                }
+            } else if (!isValid(candidate)) {
+                validationFailures.increment();
+                destroy(candidate);
+                continue;
+            }
+
+            recordWait(System.nanoTime() - start);
+            return candidate.checkOut();
+        }
+    }
+
+    /**
+     * Get a snapshot of the pool statistics.
+     *
+     * @return The current statistics
+     */
+    public Stats getStats() {
+        int total;
+        int idleCount;
+        lock.lock();
+        try {
+            total = totalConnections;
+            idleCount = idle.size();
+        } finally {
+            lock.unlock();
+        }
+
+        return new Stats(
+                name,
+                total,
+                idleCount,
+                total - idleCount,
+                borrowCount.sum(),
+                waitNanos.sum(),
+                maxWaitNanos.get(),
+                timeouts.sum(),
+                created.sum(),
+                destroyed.sum(),
+                validationFailures.sum(),
+                statementCacheCounters.getHits(),
+                statementCacheCounters.getMisses(),
+                statementCacheCounters.getEvictions()
+        );
+    }
+
+    /**
+     * Get the settings this pool was created with.
+     *
+     * @return The pool settings
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Close the pool and every idle connection.
+     * Connections that are still borrowed are closed when they are returned.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        evictor.shutdownNow();
+        toClose.forEach(this::destroy);
+    }
+
+    /**
+     * Open a new physical connection and run the initializer on it.
+     */
+    protected PooledConnection openConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        try {
+            initializer.initialize(physical);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                physical.close();
+            } catch (SQLException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return !pooled.physical.isClosed() && pooled.physical.isValid(settings.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Return a connection to the pool, resetting any state left behind by the borrower.
+     */
+    private void release(PooledConnection pooled) {
+        pooled.resetStatements();
+
+        boolean healthy;
+        try {
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            healthy = !pooled.physical.isClosed();
+        } catch (SQLException e) {
+            healthy = false;
+        }
+
+        lock.lock();
+        try {
+            if (healthy && !closed) {
+                pooled.lastReleasedAt = System.nanoTime();
+                idle.push(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        destroy(pooled);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        try {
+            pooled.statementCache.clear();
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // The connection is being discarded either way
+        }
+        destroyed.increment();
+        discardSlot();
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close idle connections that exceeded the idle timeout, keeping at least the minimum size.
+     */
+    private void evictIdleConnections() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(settings.getIdleTimeoutMillis());
+        List<PooledConnection> expired = new ArrayList<>();
+
+        lock.lock();
+        try {
+            int removable = totalConnections - settings.getMinSize();
+            // Oldest connections sit at the tail because released connections are pushed to the head
+            Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (removable > 0 && iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                if (pooled.lastReleasedAt - cutoff < 0) {
+                    iterator.remove();
+                    expired.add(pooled);
+                    removable--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        expired.forEach(this::destroy);
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    protected class PooledConnection {
+        final Connection physical;
+        final StatementCache statementCache;
+        long lastReleasedAt = System.nanoTime();
+
+        // Statements handed out during the current borrow
+        private final List<Statement> transientStatements = new ArrayList<>();
+        private final List<InstrumentedStatement> instrumented = new ArrayList<>();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, settings.getStatementCacheSize(), statementCacheCounters);
+        }
+
+        PreparedStatement prepareCached(String sql, int autoGeneratedKeys) throws SQLException {
+            PreparedStatement statement = statementCache.get(sql, autoGeneratedKeys);
+            if (!statementCache.markInUse(statement)) {
+                // Handed out earlier and still open with rows left to read, which executing it again would
+                // reset; a nested read of the same SQL gets a statement of its own
+                PreparedStatement fresh = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                        ? physical.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                        : physical.prepareStatement(sql);
+                return trackTransient(fresh, sql);
+            }
+            // It may have been handed out and read to the end already in this borrow
+            StatementCache.reset(statement);
+            return InstrumentedStatement.wrapCached(statement, sql, statementCache, instrumented::add);
+        }
+
+        <S extends Statement> S trackTransient(S statement, String sql) {
+            transientStatements.add(statement);
+            return InstrumentedStatement.wrap(statement, sql, instrumented::add);
+        }
+
+        /**
+         * Reset cached statements and close uncached ones so no cursor outlives the borrow.
+         */
+        void resetStatements() {
+            // Queries whose rows were never fully read are timed up to now, and the borrower's handles stop
+            // working so they cannot touch a statement handed to the next borrower
+            instrumented.forEach(InstrumentedStatement::release);
+            instrumented.clear();
+
+            statementCache.resetInUse();
+
+            for (Statement statement : transientStatements) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    // Closing is best effort
+                }
+            }
+            transientStatements.clear();
+        }
+
+        /**
+         * Create a borrower-facing handle; closing the handle returns the connection to the pool.
+         */
+        Connection checkOut() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this)
+            );
+        }
+    }
+
+    /**
+     * Invocation handler behind a borrowed connection.
+     * The handle becomes unusable once it has been closed.
+     */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + name + "] " + pooled.physical;
+                default:
+                    break;
+            }
+
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                if (method.getName().equals("prepareStatement") && args.length <= 2) {
+                    if (args.length == 1) {
+                        return pooled.prepareCached((String) args[0], Statement.NO_GENERATED_KEYS);
+                    }
+                    if (method.getParameterTypes()[1] == int.class) {
+                        return pooled.prepareCached((String) args[0], (Integer) args[1]);
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.recordPrepareFailure((String) args[0]);
+                throw e;
+            }
+
+            Object result;
+            try {
+                result = method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                if (method.getName().startsWith("prepare") && args[0] instanceof String sql) {
+                    QueryMetrics.recordPrepareFailure(sql);
+                }
+                throw e.getCause();
+            }
+
+            if (result instanceof Statement statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return pooled.trackTransient(statement, sql);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Configures a physical connection right after it is opened.
+     */
+    @FunctionalInterface
+    public interface Initializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Pool sizing and timeout settings.
+     */
+    public static class Settings {
+        private final int minSize;
+        private final int maxSize;
+        private final long borrowTimeoutMillis;
+        private final long idleTimeoutMillis;
+        private final int validationTimeoutSeconds;
+        private final int statementCacheSize;
+
+        /**
+         * Create pool settings.
+         *
+         * @param minSize Connections kept open even when idle
+         * @param maxSize Upper bound on open connections
+         * @param borrowTimeoutMillis How long a borrower waits for a free connection
+         * @param idleTimeoutMillis How long a connection above the minimum may stay idle
+         * @param validationTimeoutSeconds Timeout for the validation check on borrow
+         * @param statementCacheSize Prepared statements cached per connection
+         */
+        public Settings(int minSize, int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis,
+                        int validationTimeoutSeconds, int statementCacheSize) {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+            }
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.borrowTimeoutMillis = borrowTimeoutMillis;
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            this.statementCacheSize = statementCacheSize;
+        }
+
+        /**
+         * Default settings for a desktop terminal.
+         *
+         * @return The default settings
+         */
+        public static Settings defaults() {
+            return new Settings(1, 4, 5_000, 300_000, 2, 64);
+        }
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getBorrowTimeoutMillis() {
+            return borrowTimeoutMillis;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public int getValidationTimeoutSeconds() {
+            return validationTimeoutSeconds;
+        }
+
+        public int getStatementCacheSize() {
+            return statementCacheSize;
+        }
+    }
+
+    /**
+     * Immutable snapshot of pool statistics.
+     */
+    public static class Stats {
+        private final String poolName;
+        private final int totalConnections;
+        private final int idleConnections;
+        private final int borrowedConnections;
+        private final long borrowCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long timeouts;
+        private final long created;
+        private final long destroyed;
+        private final long validationFailures;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+        private final long statementCacheEvictions;
+
+        Stats(String poolName, int totalConnections, int idleConnections, int borrowedConnections,
+              long borrowCount, long totalWaitNanos, long maxWaitNanos, long timeouts,
+              long created, long destroyed, long validationFailures,
+              long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+            this.poolName = poolName;
+            this.totalConnections = totalConnections;
+            this.idleConnections = idleConnections;
+            this.borrowedConnections = borrowedConnections;
+            this.borrowCount = borrowCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+            this.statementCacheEvictions = statementCacheEvictions;
+        }
+
+        public String getPoolName() {
+            return poolName;
+        }
+
+        public int getTotalConnections() {
+            return totalConnections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getBorrowedConnections() {
+            return borrowedConnections;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public double getAverageWaitMillis() {
+            return borrowCount == 0 ? 0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getDestroyed() {
+            return destroyed;
+        }
+
+        public long getValidationFailures() {
+            return validationFailures;
+        }
+
+        public long getStatementCacheHits() {
+            return statementCacheHits;
+        }
+
+        public long getStatementCacheMisses() {
+            return statementCacheMisses;
+        }
+
+        public long getStatementCacheEvictions() {
+            return statementCacheEvictions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Pool{name=%s, total=%d, idle=%d, borrowed=%d, borrows=%d, avgWait=%.3fms, maxWait=%.3fms, "
+                            + "timeouts=%d, created=%d, destroyed=%d, validationFailures=%d, "
+                            + "statementCache={hits=%d, misses=%d, evictions=%d}}",
+                    poolName, totalConnections, idleConnections, borrowedConnections, borrowCount,
+                    getAverageWaitMillis(), getMaxWaitMillis(), timeouts, created, destroyed, validationFailures,
+                    statementCacheHits, statementCacheMisses, statementCacheEvictions
+            );
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package Support;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Named SQLite tuning presets applied to every connection the pool opens.
+ * The active profile is chosen with the {@code app.db.profile} system property and defaults to {@link #TERMINAL}.
+ */
+public enum ConnectionProfile {
+    /**
+     * Point-of-sale terminal: durable enough for checkout, readers never block the writer.
+     * Foreign keys stay unenforced, as the schema's cascade rules were never written to run.
+     */
+    TERMINAL("terminal", "WAL", "NORMAL", 16 * 1024, 64L * 1024 * 1024, "MEMORY", 5_000, false),
+
+    /**
+     * Back-office reporting: larger page cache and memory map for scans over sales and expenses.
+     */
+    REPORTING("reporting", "WAL", "NORMAL", 64 * 1024, 256L * 1024 * 1024, "MEMORY", 10_000, false),
+
+    /**
+     * Bulk import: trades crash durability for write throughput.
+     */
+    BULK_IMPORT("bulk-import", "WAL", "OFF", 128 * 1024, 256L * 1024 * 1024, "MEMORY", 30_000, false);
+
+    public static final String PROPERTY = "app.db.profile";
+
+    private final String key;
+    private final String journalMode;
+    private final String synchronous;
+    private final int cacheSizeKib;
+    private final long mmapSizeBytes;
+    private final String tempStore;
+    private final int busyTimeoutMillis;
+    private final boolean foreignKeys;
+
+    ConnectionProfile(String key, String journalMode, String synchronous, int cacheSizeKib, long mmapSizeBytes,
+                      String tempStore, int busyTimeoutMillis, boolean foreignKeys) {
+        this.key = key;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSizeKib = cacheSizeKib;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.tempStore = tempStore;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.foreignKeys = foreignKeys;
+    }
+
+    /**
+     * Apply the profile's pragmas to a freshly opened connection.
+     *
+     * @param connection The connection to configure
+     * @throws SQLException If a pragma cannot be applied
+     */
+    public void apply(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            // busy_timeout first so the journal mode switch waits for other connections
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+            stmt.execute("PRAGMA journal_mode = " + journalMode);
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            // A negative cache_size is in KiB rather than pages
+            stmt.execute("PRAGMA cache_size = -" + cacheSizeKib);
+            stmt.execute("PRAGMA mmap_size = " + mmapSizeBytes);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+            stmt.execute("PRAGMA foreign_keys = " + (foreignKeys ? "ON" : "OFF"));
+        }
+    }
+
+    /**
+     * Find a profile by its key (for example "bulk-import") or enum name.
+     *
+     * @param name The profile name
+     * @return The matching profile
+     * @throws IllegalArgumentException If no profile matches
+     */
+    public static ConnectionProfile fromName(String name) {
+        for (ConnectionProfile profile : values()) {
+            if (profile.key.equalsIgnoreCase(name.trim()) || profile.name().equalsIgnoreCase(name.trim())) {
+                return profile;
+            }
+        }
+
+        String known = Arrays.stream(values()).map(ConnectionProfile::getKey).collect(Collectors.joining(", "));
+        throw new IllegalArgumentException("Unknown database profile '" + name + "', expected one of: " + known);
+    }
+
+    /**
+     * Get the profile selected by the {@code app.db.profile} system property.
+     *
+     * @return The selected profile, or {@link #TERMINAL} if the property is not set
+     */
+    public static ConnectionProfile fromSystemProperty() {
+        String name = System.getProperty(PROPERTY);
+        if (name == null || name.isBlank()) {
+            return TERMINAL;
+        }
+        return fromName(name);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isForeignKeys() {
+        return foreignKeys;
+    }
+
+    /**
+     * Get a one-line summary of the profile's settings for startup logs.
+     *
+     * @return The summary
+     */
+    public String describe() {
+        return String.format(
+                "%s {journal_mode=%s, synchronous=%s, cache_size=%dKiB, mmap_size=%dMiB, temp_store=%s, "
+                        + "busy_timeout=%dms, foreign_keys=%s}",
+                key, journalMode, synchronous, cacheSizeKib, mmapSizeBytes / (1024 * 1024), tempStore,
+                busyTimeoutMillis, foreignKeys ? "ON" : "OFF"
+        );
+    }
+}
@@ -1,18 +1,45 @@
 package Support;
 
+import Exception.DatabaseException;
+import Repository.RowMapper;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Database connection manager.
- * Implements the singleton pattern to provide a single database connection throughout the application.
+ * Implements the singleton pattern and hands out long-lived pooled connections.
+ * Writes run one at a time on a dedicated writer thread with its own connection, while reads are
+ * spread over a pool of read-only connections so they never queue behind a write.
  */
 public class DB
 {
-      private static DB instance;
-      private Connection connection;
-      private String url;
-      private String username;
-      private String password;
+      // Maximum number of writes waiting for the writer thread
+      private static final int WRITE_QUEUE_CAPACITY = 256;
+      // How long shutdown waits for queued writes to finish
+      private static final long WRITER_SHUTDOWN_MILLIS = 5_000;
+      // Rows fetched per round trip by streamed queries unless another size is given
+      public static final int DEFAULT_FETCH_SIZE = 500;
+
+      private static final DB instance = new DB();
+      private volatile ConnectionPool readPool;
+      private volatile ConnectionPool writePool;
+      private volatile WriteExecutor writer;
+      private volatile ConnectionProfile profile;
+
+      // Connection of the write task running on the writer thread
+      private static final ThreadLocal<Connection> writerConnection = new ThreadLocal<>();
+      // Connection of the transaction running on the writer thread, if any
+      private static final ThreadLocal<Connection> currentTransaction = new ThreadLocal<>();
+      // Callbacks waiting for the current transaction to commit
+      private static final ThreadLocal<List<Runnable>> afterCommitCallbacks = new ThreadLocal<>();
 
 
       // Private constructor to enforce singleton pattern
@@ -21,65 +48,506 @@ public class DB
       }
 
       /**
-       * Initialize database connection parameters
+       * Initialize the connection pools with the default pool settings and the profile
+       * selected by the {@code app.db.profile} system property
        */
       public static void initialize(String url, String username, String password) {
-            DB container = getInstance();
-            container.url = url;
-            container.username = username;
-            container.password = password;
+            initialize(url, username, password, ConnectionProfile.fromSystemProperty());
+      }
+
+      /**
+       * Initialize the connection pools with the default pool settings and the given profile
+       */
+      public static void initialize(String url, String username, String password, ConnectionProfile profile) {
+            initialize(url, username, password, profile, ConnectionPool.Settings.defaults());
+      }
+
+      /**
+       * Initialize the writer and the reader pool, replacing any created by an earlier call.
+       * Every connection is configured with the profile's pragmas, and reader connections are made read-only.
+       * The settings size the reader pool; the writer always uses a single connection.
+       */
+      public static synchronized void initialize(String url, String username, String password,
+                                                 ConnectionProfile profile, ConnectionPool.Settings settings) {
+            if (url == null || username == null || password == null) {
+                  throw new IllegalStateException("Database connection parameters not initialized");
+            }
+
+            ConnectionPool.Settings writerSettings = new ConnectionPool.Settings(
+                        1, 1,
+                        settings.getBorrowTimeoutMillis(),
+                        settings.getIdleTimeoutMillis(),
+                        settings.getValidationTimeoutSeconds(),
+                        settings.getStatementCacheSize()
+            );
+
+            ConnectionPool newWritePool = null;
+            try {
+                  // The writer opens first so it is the connection that switches the journal mode
+                  newWritePool = new ConnectionPool("write", url, username, password, writerSettings, profile::apply);
+                  ConnectionPool newReadPool = new ConnectionPool("read", url, username, password, settings,
+                              connection -> {
+                                    profile.apply(connection);
+                                    try (Statement stmt = connection.createStatement()) {
+                                          stmt.execute("PRAGMA query_only = ON");
+                                    }
+                              });
+
+                  shutdown();
+                  instance.writePool = newWritePool;
+                  instance.readPool = newReadPool;
+                  instance.writer = new WriteExecutor("main", WRITE_QUEUE_CAPACITY);
+                  instance.profile = profile;
+            } catch (SQLException e) {
+                  if (newWritePool != null) {
+                        newWritePool.close();
+                  }
+                  throw new IllegalStateException("Could not open database connection pool: " + e.getMessage(), e);
+            }
       }
 
       /**
        * Get singleton instance of DB
        */
       public static DB getInstance() {
-            if (instance == null) {
-                  instance = new DB();
-            }
             return instance;
       }
 
 
+      /**
+       * Borrow a read-only connection from the reader pool.
+       * The caller must close the connection to hand it back to the pool.
+       */
       public Connection getConnection() throws SQLException, IllegalStateException {
-            // Check if we already have a valid connection
-            if (connection != null && !connection.isClosed()) {
-                  return connection;
+            return readPool().borrow();
+      }
+
+      /**
+       * Get the connection profile the pools were initialized with
+       */
+      public static ConnectionProfile getProfile() {
+            return getInstance().profile;
+      }
+
+      /**
+       * Get a snapshot of the reader pool statistics
+       */
+      public static ConnectionPool.Stats getPoolStats() {
+            return getInstance().readPool().getStats();
+      }
+
+      /**
+       * Get a snapshot of the writer connection statistics
+       */
+      public static ConnectionPool.Stats getWritePoolStats() {
+            return getInstance().writePool().getStats();
+      }
+
+      /**
+       * Get the number of writes waiting for the writer thread
+       */
+      public static int getWriteQueueSize() {
+            return getInstance().writer().getQueuedTasks();
+      }
+
+      /**
+       * Finish queued writes, then close the writer and every pooled connection
+       */
+      public static synchronized void shutdown() {
+            WriteExecutor currentWriter = instance.writer;
+            ConnectionPool currentWritePool = instance.writePool;
+            ConnectionPool currentReadPool = instance.readPool;
+            instance.writer = null;
+            instance.writePool = null;
+            instance.readPool = null;
+
+            if (currentWriter != null) {
+                  currentWriter.close(WRITER_SHUTDOWN_MILLIS);
+            }
+            if (currentWritePool != null) {
+                  currentWritePool.close();
             }
+            if (currentReadPool != null) {
+                  currentReadPool.close();
+            }
+      }
 
-            // Check if connection parameters are set
-            if (url == null || username == null || password == null) {
+      private ConnectionPool readPool() {
+            return initialized(readPool);
+      }
+
+      private ConnectionPool writePool() {
+            return initialized(writePool);
+      }
+
+      private WriteExecutor writer() {
+            return initialized(writer);
+      }
+
+      private static <T> T initialized(T component) {
+            if (component == null) {
                   throw new IllegalStateException("Database connection parameters not initialized");
             }
+            return component;
+      }
+
+      /**
+       * Run a query on a read-only connection from the reader pool.
+       * On the writer thread the query runs on the writer connection so it sees the pending write.
+       */
+      public static <T> T read(DatabaseOperation<T> operation) throws SQLException {
+            Connection bound = writerConnection.get();
+            if (bound != null) {
+                  return operation.execute(bound);
+            }
+
+            long requestedAt = System.nanoTime();
+            try (Connection conn = getInstance().getConnection()) {
+                  QueryMetrics.recordConnectionWait(System.nanoTime() - requestedAt);
+                  return operation.execute(conn);
+            }
+      }
 
-            // Create new connection
-            connection = DriverManager.getConnection(url, username, password);
-            return connection;
+      public static <T> T unsafeRead(DatabaseOperation<T> operation) {
+          try {
+              return read(operation);
+          } catch (SQLException e) {
+              throw new DatabaseException(e);
+          }
       }
 
+      /**
+       * Run a query and return its rows as a lazily populated stream with the default fetch size.
+       *
+       * @see #stream(String, StatementBinder, RowMapper, int)
+       */
+      public static <T> Stream<T> stream(String sql, StatementBinder binder, RowMapper<T> mapper) throws SQLException {
+            return stream(sql, binder, mapper, DEFAULT_FETCH_SIZE);
+      }
 
-      public void closeConnection() throws SQLException {
-            if (connection != null && !connection.isClosed()) {
-                  connection.close();
-                  connection = null;
+      /**
+       * Run a query and return its rows as a lazily populated stream backed by an open cursor.
+       * Rows are mapped as the stream is consumed, so only one row is held at a time.
+       * The stream keeps a reader connection borrowed until it is closed or fully consumed; callers that may
+       * stop early must close it, normally with try-with-resources.
+       * On the writer thread the query runs on the writer connection, and the stream must be consumed before
+       * the write returns.
+       *
+       * @param sql The query
+       * @param binder Sets the query parameters, or null if there are none
+       * @param mapper Maps each row
+       * @param fetchSize Rows fetched per round trip
+       * @return The rows of the query
+       * @throws SQLException If the query cannot be run
+       */
+      public static <T> Stream<T> stream(String sql, StatementBinder binder, RowMapper<T> mapper, int fetchSize)
+                  throws SQLException {
+            Connection bound = writerConnection.get();
+            Connection conn = bound;
+            if (conn == null) {
+                  long requestedAt = System.nanoTime();
+                  conn = getInstance().getConnection();
+                  QueryMetrics.recordConnectionWait(System.nanoTime() - requestedAt);
+            }
+
+            try {
+                  PreparedStatement stmt = conn.prepareStatement(sql);
+                  stmt.setFetchSize(fetchSize);
+                  if (binder != null) {
+                        binder.bind(stmt);
+                  }
+                  ResultSet rs = stmt.executeQuery();
+                  rs.setFetchSize(fetchSize);
+                  // The pool resets the statement when the connection is returned; a writer connection stays open
+                  return new Cursor<>(rs, mapper.bind(rs), bound == null ? conn : null).stream();
+            } catch (SQLException | RuntimeException e) {
+                  if (bound == null) {
+                        closeQuietly(conn, e);
+                  }
+                  throw e;
             }
       }
 
+      public static <T> Stream<T> unsafeStream(String sql, StatementBinder binder, RowMapper<T> mapper) {
+          try {
+              return stream(sql, binder, mapper);
+          } catch (SQLException e) {
+              throw new DatabaseException(e);
+          }
+      }
+
+      /**
+       * Run a write on the writer thread and wait for it to finish.
+       * Writes issued from the writer thread itself, for example from inside another write, run directly.
+       */
+      public static <T> T write(DatabaseOperation<T> operation) throws SQLException {
+            WriteExecutor currentWriter = getInstance().writer();
+            long requestedAt = System.nanoTime();
+            if (currentWriter.isWriterThread()) {
+                  return runOnWriter(operation, requestedAt);
+            }
+
+            return await(currentWriter.submit(() -> runOnWriter(operation, requestedAt)));
+      }
+
+      public static <T> T unsafeWrite(DatabaseOperation<T> operation) {
+          try {
+              return write(operation);
+          } catch (SQLException e) {
+              throw new DatabaseException(e);
+          }
+      }
+
+      /**
+       * Queue a write on the writer thread without waiting for it.
+       *
+       * @return A future completed with the operation's result, or exceptionally with its error
+       */
+      public static <T> CompletableFuture<T> submitWrite(DatabaseOperation<T> operation) {
+            long requestedAt = System.nanoTime();
+            return getInstance().writer().submit(() -> runOnWriter(operation, requestedAt));
+      }
+
+      /**
+       * Run an operation on the writer connection.
+       * Kept for callers that may write; use {@link #read(DatabaseOperation)} for queries.
+       */
       public static <T> T execute(DatabaseOperation<T> operation) throws SQLException {
-            Connection conn = getInstance().getConnection();
-            T result = operation.execute(conn);
-            getInstance().closeConnection();
-            return result;
+            return write(operation);
       }
 
       public static <T> T unsafeExecute(DatabaseOperation<T> operation) {
           try {
               return execute(operation);
           } catch (SQLException e) {
-              throw new RuntimeException(e);
+              throw new DatabaseException(e);
+          }
+      }
+
+      /**
+       * Run an operation as a single unit of work on the writer thread.
+       * The transaction commits when the operation returns and rolls back when it throws.
+       * Reads and writes issued inside the operation join the transaction, and a nested
+       * call to this method runs inside a savepoint so only the nested work is undone when it fails.
+       */
+      public static <T> T transaction(DatabaseOperation<T> operation) throws SQLException {
+            return write(conn -> {
+                  if (currentTransaction.get() != null) {
+                        return inSavepoint(conn, operation);
+                  }
+
+                  conn.setAutoCommit(false);
+                  currentTransaction.set(conn);
+                  List<Runnable> callbacks = new ArrayList<>();
+                  afterCommitCallbacks.set(callbacks);
+                  T result;
+                  try {
+                        result = operation.execute(conn);
+                        conn.commit();
+                  } catch (Throwable e) {
+                        rollbackQuietly(conn, null, e);
+                        throw e;
+                  } finally {
+                        currentTransaction.remove();
+                        afterCommitCallbacks.remove();
+                        conn.setAutoCommit(true);
+                  }
+
+                  runAfterCommit(callbacks);
+                  return result;
+            });
+      }
+
+      /**
+       * Run a callback once the current transaction has committed, or right away outside a transaction,
+       * where the statements already issued have committed.
+       * Callbacks registered by work that rolls back, whether the whole transaction or a savepoint, are dropped.
+       * They run on the writer thread after the transaction ends, so they may read and write normally.
+       */
+      public static void afterCommit(Runnable callback) {
+            List<Runnable> callbacks = afterCommitCallbacks.get();
+            if (callbacks == null) {
+                  runAfterCommit(List.of(callback));
+                  return;
+            }
+            callbacks.add(callback);
+      }
+
+      public static <T> T unsafeTransaction(DatabaseOperation<T> operation) {
+          try {
+              return transaction(operation);
+          } catch (SQLException e) {
+              throw new DatabaseException(e);
           }
       }
 
+      /**
+       * Check whether the current thread is running inside a transaction
+       */
+      public static boolean inTransaction() {
+            return currentTransaction.get() != null;
+      }
+
+      /**
+       * Run a write on the writer connection, recording how long it waited in the queue and for the connection
+       */
+      private static <T> T runOnWriter(DatabaseOperation<T> operation, long requestedAt) throws SQLException {
+            Connection bound = writerConnection.get();
+            if (bound != null) {
+                  return operation.execute(bound);
+            }
+
+            try (Connection conn = getInstance().writePool().borrow()) {
+                  QueryMetrics.recordConnectionWait(System.nanoTime() - requestedAt);
+                  writerConnection.set(conn);
+                  try {
+                        return operation.execute(conn);
+                  } finally {
+                        writerConnection.remove();
+                  }
+            }
+      }
+
+      private static <T> T await(CompletableFuture<T> future) throws SQLException {
+            try {
+                  return future.get();
+            } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  throw new SQLException("Interrupted while waiting for a database write", e);
+            } catch (ExecutionException e) {
+                  Throwable cause = e.getCause();
+                  if (cause instanceof SQLException sqlException) {
+                        throw sqlException;
+                  }
+                  if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                  }
+                  if (cause instanceof Error error) {
+                        throw error;
+                  }
+                  throw new SQLException(cause);
+            }
+      }
+
+      private static <T> T inSavepoint(Connection conn, DatabaseOperation<T> operation) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            List<Runnable> callbacks = afterCommitCallbacks.get();
+            int registered = callbacks.size();
+            try {
+                  T result = operation.execute(conn);
+                  conn.releaseSavepoint(savepoint);
+                  return result;
+            } catch (Throwable e) {
+                  rollbackQuietly(conn, savepoint, e);
+                  // The nested work was undone, so its callbacks must not run
+                  callbacks.subList(registered, callbacks.size()).clear();
+                  throw e;
+            }
+      }
+
+      /**
+       * Run committed callbacks, reporting failures so one bad callback does not fail a write that already committed
+       */
+      private static void runAfterCommit(List<Runnable> callbacks) {
+            for (Runnable callback : callbacks) {
+                  try {
+                        callback.run();
+                  } catch (RuntimeException e) {
+                        System.err.println("After-commit callback failed: " + e);
+                  }
+            }
+      }
+
+      private static void rollbackQuietly(Connection conn, Savepoint savepoint, Throwable cause) {
+            try {
+                  if (savepoint == null) {
+                        conn.rollback();
+                  } else {
+                        conn.rollback(savepoint);
+                  }
+            } catch (SQLException e) {
+                  cause.addSuppressed(e);
+            }
+      }
+
+      private static void closeQuietly(AutoCloseable resource, Throwable cause) {
+            try {
+                  resource.close();
+            } catch (Exception e) {
+                  cause.addSuppressed(e);
+            }
+      }
+
+      /**
+       * Spliterator over an open result set that releases the cursor and its connection once exhausted or closed.
+       */
+      private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+            private final ResultSet rs;
+            private final RowMapper.Row<T> row;
+            private final Connection owned;
+            private boolean closed;
+
+            Cursor(ResultSet rs, RowMapper.Row<T> row, Connection owned) {
+                  super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+                  this.rs = rs;
+                  this.row = row;
+                  this.owned = owned;
+            }
+
+            Stream<T> stream() {
+                  return StreamSupport.stream(this, false).onClose(this::close);
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                  if (closed) {
+                        return false;
+                  }
+
+                  T next;
+                  try {
+                        if (!rs.next()) {
+                              close();
+                              return false;
+                        }
+                        next = row.map(rs);
+                  } catch (SQLException e) {
+                        close();
+                        throw new DatabaseException(e);
+                  }
+                  action.accept(next);
+                  return true;
+            }
+
+            void close() {
+                  if (closed) {
+                        return;
+                  }
+                  closed = true;
+                  try {
+                        rs.close();
+                  } catch (SQLException e) {
+                        throw new DatabaseException(e);
+                  } finally {
+                        if (owned != null) {
+                              try {
+                                    owned.close();
+                              } catch (SQLException ignored) {
+                                    // Returning a pooled connection does not fail
+                              }
+                        }
+                  }
+            }
+      }
+
+      /**
+       * Sets the parameters of a prepared statement.
+       */
+      @FunctionalInterface
+      public interface StatementBinder {
+            void bind(PreparedStatement statement) throws SQLException;
+      }
+
       @FunctionalInterface
       public interface DatabaseOperation<T> {
             T execute(Connection connection) throws SQLException;
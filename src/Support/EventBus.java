@@ -0,0 +1,103 @@
+package Support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Typed publish/subscribe bus for the domain events in the Event package.
+ * Repositories publish with {@link #publishAfterCommit(Object)} so subscribers only hear about committed
+ * writes. A subscriber receives every event that is an instance of the type it subscribed to, either on the
+ * publishing thread, which for repository events is the database writer thread, or on the event dispatch thread.
+ * A failing subscriber is reported and does not stop delivery to the others.
+ */
+public final class EventBus {
+    private static final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private EventBus() {
+    }
+
+    /**
+     * Subscribe to events of a type, delivered on the publishing thread.
+     * Handlers must be quick: repository events are delivered on the writer thread.
+     *
+     * @param type The event type, including subclasses
+     * @param handler Called with each event
+     * @return The subscription, to cancel when the subscriber goes away
+     */
+    public static <E> Subscription subscribe(Class<E> type, Consumer<? super E> handler) {
+        Subscription subscription = new Subscription(event -> {
+            if (type.isInstance(event)) {
+                handler.accept(type.cast(event));
+            }
+        });
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Subscribe to events of a type, delivered on the event dispatch thread, for panels.
+     *
+     * @param type The event type, including subclasses
+     * @param handler Called on the event dispatch thread with each event
+     * @return The subscription, to cancel when the panel is navigated away from
+     */
+    public static <E> Subscription subscribeOnEdt(Class<E> type, Consumer<? super E> handler) {
+        return subscribe(type, event -> {
+            if (SwingUtilities.isEventDispatchThread()) {
+                handler.accept(event);
+            } else {
+                SwingUtilities.invokeLater(() -> handler.accept(event));
+            }
+        });
+    }
+
+    /**
+     * Deliver an event to its subscribers now.
+     *
+     * @param event The event
+     */
+    public static void publish(Object event) {
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.handler.accept(event);
+            } catch (RuntimeException e) {
+                System.err.println("Event handler failed for " + event + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Deliver an event once the current transaction commits, or now outside a transaction.
+     * Nothing is delivered if the transaction rolls back.
+     *
+     * @param event The event
+     */
+    public static void publishAfterCommit(Object event) {
+        DB.afterCommit(() -> publish(event));
+    }
+
+    /**
+     * A registered handler, removed from the bus when cancelled.
+     */
+    public static final class Subscription implements AutoCloseable {
+        private final Consumer<Object> handler;
+
+        private Subscription(Consumer<Object> handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Stop receiving events. Events already queued for the event dispatch thread are still delivered.
+         */
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+
+        @Override
+        public void close() {
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package Support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Wraps a statement handed out by the connection pool so each execution is reported to {@link QueryMetrics}.
+ * A query is timed from the execute call until its result set is exhausted or closed, the statement is run
+ * again, or the connection goes back to the pool, so the time spent stepping through rows is included.
+ * For the same span the statement is registered with the {@link CancellationScope} of the executing thread.
+ * A statement from a {@link StatementCache} is marked idle in its cache when its rows have been read or it is
+ * closed, and closing it resets it for reuse instead of closing it.
+ */
+class InstrumentedStatement implements InvocationHandler {
+    private final Statement target;
+    private final String preparedSql;
+    // The cache the statement belongs to, or null if it is closed for real
+    private final StatementCache cache;
+    private final Map<Integer, Object> parameters = new TreeMap<>();
+    private int batchSize;
+    private Execution current;
+    // Scope that may cancel the running execution, if it was started in one
+    private CancellationScope scope;
+    private boolean closed;
+
+    private InstrumentedStatement(Statement target, String preparedSql, StatementCache cache) {
+        this.target = target;
+        this.preparedSql = preparedSql;
+        this.cache = cache;
+    }
+
+    /**
+     * Wrap a statement.
+     *
+     * @param statement The statement to instrument
+     * @param preparedSql The SQL it was prepared with, or null for a plain statement
+     * @param owner Receives the handler so unfinished executions can be flushed when the connection is released
+     * @return The wrapped statement
+     */
+    static <S extends Statement> S wrap(S statement, String preparedSql, Consumer<InstrumentedStatement> owner) {
+        return wrap(statement, preparedSql, null, owner);
+    }
+
+    /**
+     * Wrap a statement taken from a statement cache and already marked in use there.
+     *
+     * @param statement The cached statement to instrument
+     * @param sql The SQL it was prepared with
+     * @param cache The cache it belongs to
+     * @param owner Receives the handler so unfinished executions can be flushed when the connection is released
+     * @return The wrapped statement
+     */
+    static PreparedStatement wrapCached(PreparedStatement statement, String sql, StatementCache cache,
+                                        Consumer<InstrumentedStatement> owner) {
+        return wrap(statement, sql, cache, owner);
+    }
+
+    private static <S extends Statement> S wrap(S statement, String preparedSql, StatementCache cache,
+                                                Consumer<InstrumentedStatement> owner) {
+        InstrumentedStatement handler = new InstrumentedStatement(statement, preparedSql, cache);
+        owner.accept(handler);
+        Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+
+        @SuppressWarnings("unchecked")
+        S proxy = (S) Proxy.newProxyInstance(
+                InstrumentedStatement.class.getClassLoader(), new Class<?>[] {type}, handler);
+        return proxy;
+    }
+
+    /**
+     * Record the running execution, if any, as finished.
+     */
+    void finish() {
+        if (current != null) {
+            current.finish(false);
+            current = null;
+        }
+        leaveScope();
+    }
+
+    /**
+     * Finish the running execution and stop the wrapped statement from being used, when the connection it
+     * came from goes back to the pool.
+     */
+    void release() {
+        finish();
+        closed = true;
+    }
+
+    private void leaveScope() {
+        if (scope != null) {
+            scope.leave(target);
+            scope = null;
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Instrumented[" + target + "]";
+            case "close":
+                finish();
+                if (cache != null) {
+                    if (!closed) {
+                        closed = true;
+                        StatementCache.reset((PreparedStatement) target);
+                        cache.markIdle((PreparedStatement) target);
+                    }
+                    return null;
+                }
+                break;
+            case "isClosed":
+                if (closed) {
+                    return true;
+                }
+                break;
+            case "clearParameters":
+                parameters.clear();
+                break;
+            case "addBatch":
+                batchSize++;
+                break;
+            case "clearBatch":
+                batchSize = 0;
+                break;
+            default:
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    parameters.put(index, args[1]);
+                }
+                break;
+        }
+
+        if (closed) {
+            throw new SQLException("Statement has already been closed");
+        }
+
+        if (!name.startsWith("execute")) {
+            return forward(method, args);
+        }
+
+        finish();
+        if (cache != null) {
+            // Run again after its rows were read, so it is in use once more
+            cache.markInUse((PreparedStatement) target);
+        }
+        scope = CancellationScope.enter(target);
+        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+        Object bound = name.equals("executeBatch") ? "batch of " + batchSize : new TreeMap<>(parameters);
+        Execution execution = new Execution(sql, bound);
+
+        Object result;
+        try {
+            result = forward(method, args);
+        } catch (SQLException e) {
+            execution.finish(true);
+            leaveScope();
+            throw e;
+        }
+
+        if (name.equals("executeBatch")) {
+            batchSize = 0;
+        }
+
+        if (result instanceof ResultSet resultSet) {
+            current = execution;
+            return wrapResultSet(resultSet, execution);
+        }
+        if (result instanceof Integer count) {
+            execution.rows = Math.max(count, 0);
+        } else if (result instanceof Long count) {
+            execution.rows = Math.max(count, 0);
+        } else if (result instanceof int[] counts) {
+            for (int count : counts) {
+                execution.rows += Math.max(count, 0);
+            }
+        } else if (result instanceof Boolean hasResultSet && hasResultSet) {
+            // execute() with a result set: time it until the rows are read, like executeQuery
+            current = execution;
+            return result;
+        }
+        execution.finish(false);
+        leaveScope();
+        return result;
+    }
+
+    private Object forward(Method method, Object[] args) throws Throwable {
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+
+        if (method.getName().equals("getResultSet") && result instanceof ResultSet resultSet && current != null) {
+            return wrapResultSet(resultSet, current);
+        }
+        return result;
+    }
+
+    private ResultSet wrapResultSet(ResultSet resultSet, Execution execution) {
+        return new InstrumentedResultSet(resultSet, this, execution);
+    }
+
+    /**
+     * End an execution whose rows have been exhausted or whose result set was closed.
+     *
+     * @param execution The execution the result set belongs to
+     */
+    void resultsDone(Execution execution) {
+        if (current == execution) {
+            finish();
+            markIdle();
+        }
+    }
+
+    /**
+     * End an execution whose result set failed while stepping through the rows.
+     *
+     * @param execution The execution the result set belongs to
+     */
+    void resultsFailed(Execution execution) {
+        if (current == execution) {
+            execution.finish(true);
+            current = null;
+            leaveScope();
+            markIdle();
+        }
+    }
+
+    private void markIdle() {
+        if (cache != null) {
+            cache.markIdle((PreparedStatement) target);
+        }
+    }
+
+    /**
+     * One timed run of a statement.
+     */
+    static final class Execution {
+        private final String sql;
+        private final Object parameters;
+        private final String caller;
+        private final long startedAt;
+        private long rows;
+        private boolean finished;
+
+        Execution(String sql, Object parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.caller = QueryMetrics.currentCaller();
+            this.startedAt = System.nanoTime();
+        }
+
+        void countRow() {
+            rows++;
+        }
+
+        void finish(boolean failed) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            QueryMetrics.record(sql, System.nanoTime() - startedAt, rows, failed, parameters, caller);
+        }
+    }
+}
@@ -28,9 +28,14 @@ public class MigrationManager {
     /**
      * Runs all pending migrations.
      * Migrations that have already been applied will be skipped.
+     * Foreign key enforcement is switched off while migrations run, so tables can be rebuilt
+     * and seeded in any order, and restored afterwards.
      */
     public void migrate() {
+        boolean foreignKeys = false;
         try {
+            foreignKeys = setForeignKeys(false);
+            
             // Create migrations table if it doesn't exist
             createMigrationTable();
             
@@ -64,6 +69,30 @@ public class MigrationManager {
         } catch (Exception e) {
             System.err.println("Error during migration: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            try {
+                setForeignKeys(foreignKeys);
+            } catch (SQLException e) {
+                System.err.println("Error restoring foreign key enforcement: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Switches foreign key enforcement on or off for the migration connection.
+     * 
+     * @param enabled Whether foreign keys should be enforced
+     * @return Whether foreign keys were enforced before the call
+     * @throws SQLException If an SQL error occurs
+     */
+    private boolean setForeignKeys(boolean enabled) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            boolean previous;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA foreign_keys")) {
+                previous = rs.next() && rs.getInt(1) == 1;
+            }
+            stmt.execute("PRAGMA foreign_keys = " + (enabled ? "ON" : "OFF"));
+            return previous;
         }
     }
     
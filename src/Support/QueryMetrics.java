@@ -0,0 +1,402 @@
+package Support;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Collects timing statistics for every SQL statement run through the connection pools.
+ * Statements are grouped by normalized SQL text (literals replaced with {@code ?}), each with a latency
+ * histogram, row and error counts. Executions slower than the slow-query threshold are logged with the type
+ * and length of their bind parameters, since those may hold passwords; {@code -Dapp.db.logParameterValues=true}
+ * logs the values instead. The log names the repository method that issued the statement by walking the stack when
+ * the slow execution is recorded, which finds it as long as the rows are read where the query was run.
+ * {@code -Dapp.db.captureCallers=true} looks the caller up when each execution starts instead, at the cost of a
+ * stack walk per execution.
+ * The threshold defaults to the {@code app.db.slowQueryMillis} system property, or 250 ms.
+ */
+public final class QueryMetrics {
+    public static final String SLOW_QUERY_PROPERTY = "app.db.slowQueryMillis";
+    public static final String CAPTURE_CALLERS_PROPERTY = "app.db.captureCallers";
+    public static final String PARAMETER_VALUES_PROPERTY = "app.db.logParameterValues";
+
+    // Upper bounds of the latency histogram buckets, in milliseconds; the last bucket is unbounded
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000};
+    // Normalized text is cached per raw SQL string; dynamic SQL beyond this many entries is normalized each time
+    private static final int NORMALIZED_CACHE_LIMIT = 2048;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private static final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private static final Histogram connectionWait = new Histogram();
+
+    private static volatile long slowQueryThresholdNanos =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong(SLOW_QUERY_PROPERTY, 250));
+    private static volatile boolean captureCallers = Boolean.getBoolean(CAPTURE_CALLERS_PROPERTY);
+    private static volatile boolean logParameterValues = Boolean.getBoolean(PARAMETER_VALUES_PROPERTY);
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Set the duration above which executions are logged as slow queries.
+     *
+     * @param millis The threshold in milliseconds, or a negative value to disable the log
+     */
+    public static void setSlowQueryThresholdMillis(long millis) {
+        slowQueryThresholdNanos = millis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Enable or disable looking up the calling repository method for each execution.
+     *
+     * @param enabled Whether callers are captured
+     */
+    public static void setCaptureCallers(boolean enabled) {
+        captureCallers = enabled;
+    }
+
+    /**
+     * Enable or disable logging bind parameter values, rather than only their types, for slow queries.
+     *
+     * @param enabled Whether values are logged
+     */
+    public static void setLogParameterValues(boolean enabled) {
+        logParameterValues = enabled;
+    }
+
+    /**
+     * Record how long a caller waited for a connection, including time queued for the writer.
+     *
+     * @param nanos The wait in nanoseconds
+     */
+    public static void recordConnectionWait(long nanos) {
+        connectionWait.record(nanos);
+    }
+
+    /**
+     * Record a finished statement execution.
+     *
+     * @param sql The SQL text as executed
+     * @param nanos How long the execution took, including reading its rows
+     * @param rows Rows returned or affected
+     * @param failed Whether the execution threw
+     * @param parameters Bind parameters, used for the slow-query log
+     * @param caller The repository method that issued the statement, if captured when it started
+     */
+    static void record(String sql, long nanos, long rows, boolean failed, Object parameters, String caller) {
+        String key = normalize(sql);
+        StatementStats stats = statements.computeIfAbsent(key, StatementStats::new);
+        stats.latency.record(nanos);
+        stats.rows.add(rows);
+        if (failed) {
+            stats.errors.increment();
+        }
+
+        if (nanos >= slowQueryThresholdNanos) {
+            if (caller == null) {
+                caller = findCaller();
+            }
+            System.err.printf(
+                    "[slow-query] %.1f ms, %d rows%s in %s%n  SQL: %s%n  Parameters: %s%n",
+                    nanos / 1_000_000.0, rows, failed ? ", failed" : "",
+                    caller == null ? "unknown caller" : caller, key,
+                    logParameterValues ? parameters : describeParameters(parameters)
+            );
+        }
+    }
+
+    /**
+     * Describe bind parameters without their values, which may be passwords.
+     *
+     * @param parameters The parameters by index, or a description such as a batch size
+     * @return Each parameter's type, with the length of strings and byte arrays
+     */
+    private static Object describeParameters(Object parameters) {
+        if (!(parameters instanceof Map<?, ?> bound)) {
+            return parameters;
+        }
+
+        Map<Object, String> described = new LinkedHashMap<>();
+        bound.forEach((index, value) -> described.put(index, switch (value) {
+            case null -> "NULL";
+            case String text -> "String(" + text.length() + ")";
+            case byte[] bytes -> "byte[" + bytes.length + "]";
+            default -> value.getClass().getSimpleName();
+        }));
+        return described;
+    }
+
+    /**
+     * Record a statement that could not be prepared.
+     *
+     * @param sql The SQL text
+     */
+    static void recordPrepareFailure(String sql) {
+        record(sql, 0, 0, true, "{}", currentCaller());
+    }
+
+    /**
+     * Find the repository method on the current call stack when caller capture is on.
+     *
+     * @return The method as {@code Repository.Class.method}, or null if capture is off or none is found
+     */
+    static String currentCaller() {
+        return captureCallers ? findCaller() : null;
+    }
+
+    /**
+     * Find the repository method on the current call stack.
+     *
+     * @return The method as {@code Repository.Class.method}, or null if none is found
+     */
+    private static String findCaller() {
+        Optional<StackWalker.StackFrame> frame = StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("Repository."))
+                // Rows are often read by the shared mappers, which say nothing about who ran the query
+                .filter(f -> !f.getClassName().startsWith("Repository.RowMapper")
+                        && !f.getClassName().startsWith("Repository.Mappers"))
+                .findFirst());
+
+        return frame.map(f -> {
+            String method = f.getMethodName();
+            // Repository queries run inside lambdas named lambda$method$N
+            if (method.startsWith("lambda$")) {
+                int end = method.indexOf('$', 7);
+                method = end > 7 ? method.substring(7, end) : method;
+            }
+            String className = f.getClassName();
+            int nested = className.indexOf('$');
+            return (nested > 0 ? className.substring(0, nested) : className) + "." + method;
+        }).orElse(null);
+    }
+
+    /**
+     * Normalize SQL text so executions of the same statement share one entry.
+     *
+     * @param sql The SQL text
+     * @return The text with literals replaced by {@code ?} and whitespace collapsed
+     */
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "<unknown>";
+        }
+
+        String cached = normalized.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        // IN lists of any length count as one statement
+        result = IN_LIST.matcher(result).replaceAll("IN (?, ...)");
+        result = WHITESPACE.matcher(result).replaceAll(" ").trim();
+
+        if (normalized.size() < NORMALIZED_CACHE_LIMIT) {
+            normalized.put(sql, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get statistics for every recorded statement, slowest total time first.
+     *
+     * @return A snapshot of the per-statement statistics
+     */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        statements.values().forEach(stats -> snapshots.add(stats.snapshot()));
+        snapshots.sort(Comparator.comparingLong(Snapshot::getTotalNanos).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Get statistics for the time callers waited for a connection.
+     *
+     * @return A snapshot of the connection wait histogram
+     */
+    public static Snapshot connectionWaitSnapshot() {
+        return connectionWait.snapshot("<connection wait>", 0, 0);
+    }
+
+    /**
+     * Format the collected statistics as a plain-text report.
+     *
+     * @return The report
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder("Query metrics\n");
+        report.append(connectionWaitSnapshot()).append('\n');
+        for (Snapshot snapshot : snapshot()) {
+            report.append(snapshot).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Print the report.
+     *
+     * @param out The stream to print to
+     */
+    public static void dump(PrintStream out) {
+        out.print(report());
+        out.flush();
+    }
+
+    /**
+     * Discard every recorded statistic.
+     */
+    public static void reset() {
+        statements.clear();
+        connectionWait.reset();
+    }
+
+    private static final class StatementStats {
+        private final String sql;
+        private final Histogram latency = new Histogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        Snapshot snapshot() {
+            return latency.snapshot(sql, rows.sum(), errors.sum());
+        }
+    }
+
+    private static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && millis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+
+        Snapshot snapshot(String sql, long rows, long errors) {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return new Snapshot(sql, count.sum(), totalNanos.sum(), maxNanos.get(), rows, errors, counts);
+        }
+    }
+
+    /**
+     * Statistics for one normalized statement at a point in time.
+     */
+    public static class Snapshot {
+        private final String sql;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long rows;
+        private final long errors;
+        private final long[] bucketCounts;
+
+        Snapshot(String sql, long count, long totalNanos, long maxNanos, long rows, long errors, long[] bucketCounts) {
+            this.sql = sql;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.rows = rows;
+            this.errors = errors;
+            this.bucketCounts = bucketCounts;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public double getAverageMillis() {
+            return count == 0 ? 0 : totalNanos / (count * 1_000_000.0);
+        }
+
+        public double getMaxMillis() {
+            return maxNanos / 1_000_000.0;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Estimate a latency percentile from the histogram.
+         *
+         * @param percentile A value between 0 and 100
+         * @return The upper bound, in milliseconds, of the bucket holding the percentile
+         */
+        public double getPercentileMillis(double percentile) {
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= target && seen > 0) {
+                    return i < BUCKET_BOUNDS_MILLIS.length ? BUCKET_BOUNDS_MILLIS[i] : getMaxMillis();
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%8d calls  total=%9.1fms  avg=%7.2fms  p95<=%6.1fms  max=%8.2fms  rows=%d  errors=%d  %s",
+                    count, totalNanos / 1_000_000.0, getAverageMillis(), getPercentileMillis(95), getMaxMillis(),
+                    rows, errors, sql
+            );
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package Support;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that queries are answered from indexes by running {@code EXPLAIN QUERY PLAN} over them.
+ * A statement is reported when its plan scans a table it filters, sorts rows in a temporary b-tree, or has
+ * SQLite build an automatic index. Full-text lookups are index reads, and sorting their matches by rank is
+ * bounded by the number of matches, so neither is reported. {@link #auditRecorded()} audits every statement
+ * seen by {@link QueryMetrics}, so running the application with {@code -Dapp.db.auditPlans=true} checks the
+ * queries the session actually issued.
+ */
+public final class QueryPlanAudit {
+    public static final String AUDIT_PROPERTY = "app.db.auditPlans";
+
+    // QueryMetrics folds IN lists; one placeholder is enough to plan the statement
+    private static final Pattern FOLDED_IN_LIST = Pattern.compile("IN \\(\\?, \\.\\.\\.\\)");
+    private static final Pattern WHERE = Pattern.compile("(?i)\\bWHERE\\b");
+    // FTS5 tables answer MATCH through their own index, which plans as a virtual table scan
+    private static final String FULL_TEXT_STEP = " VIRTUAL TABLE INDEX ";
+    private static final String COROUTINE_STEP = "CO-ROUTINE ";
+
+    private QueryPlanAudit() {
+    }
+
+    /**
+     * Audit every statement recorded by {@link QueryMetrics}, using a reader connection.
+     *
+     * @return One finding per audited statement
+     * @throws SQLException If a reader connection cannot be borrowed
+     */
+    public static List<Finding> auditRecorded() throws SQLException {
+        List<String> statements = new ArrayList<>();
+        for (QueryMetrics.Snapshot snapshot : QueryMetrics.snapshot()) {
+            statements.add(snapshot.getSql());
+        }
+        return DB.read(conn -> audit(conn, statements));
+    }
+
+    /**
+     * Audit statements on a connection.
+     * Statements other than SELECT, WITH, UPDATE and DELETE are skipped; statements that fail to plan are reported.
+     *
+     * @param conn The connection to plan on
+     * @param statements The SQL to audit, with {@code ?} placeholders
+     * @return One finding per audited statement
+     */
+    public static List<Finding> audit(Connection conn, Collection<String> statements) {
+        List<Finding> findings = new ArrayList<>();
+        for (String sql : statements) {
+            String verb = sql.stripLeading().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+            if (!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE") && !verb.equals("WITH")) {
+                continue;
+            }
+
+            String plannable = FOLDED_IN_LIST.matcher(sql).replaceAll("IN (?)");
+            List<String> plan = new ArrayList<>();
+            // A plain statement keeps the one-off EXPLAIN text out of the statement cache
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + plannable)) {
+                while (rs.next()) {
+                    plan.add(rs.getString("detail"));
+                }
+            } catch (SQLException e) {
+                findings.add(new Finding(sql, plan, List.of("could not be planned: " + e.getMessage())));
+                continue;
+            }
+
+            findings.add(new Finding(sql, plan, problems(sql, plan)));
+        }
+        return findings;
+    }
+
+    /**
+     * Format the findings that have problems as a plain-text report.
+     *
+     * @param findings The audit findings
+     * @return The report
+     */
+    public static String report(List<Finding> findings) {
+        StringBuilder report = new StringBuilder("Query plan audit\n");
+        int problems = 0;
+        for (Finding finding : findings) {
+            if (finding.isIndexed()) {
+                continue;
+            }
+            problems++;
+            report.append(finding).append('\n');
+        }
+        report.append(problems).append(" of ").append(findings.size()).append(" statements do not use an index\n");
+        return report.toString();
+    }
+
+    /**
+     * Audit the recorded statements and print the report.
+     *
+     * @param out The stream to print to
+     */
+    public static void dump(PrintStream out) {
+        try {
+            out.print(report(auditRecorded()));
+        } catch (SQLException e) {
+            out.println("Query plan audit failed: " + e.getMessage());
+        }
+        out.flush();
+    }
+
+    private static List<String> problems(String sql, List<String> plan) {
+        boolean filtered = WHERE.matcher(sql).find();
+        boolean fullText = plan.stream().anyMatch(step -> step.contains(FULL_TEXT_STEP));
+        // Scanning a co-routine reads the rows its subquery produced, which is audited on its own steps
+        List<String> coroutines = new ArrayList<>();
+        for (String step : plan) {
+            if (step.startsWith(COROUTINE_STEP)) {
+                coroutines.add("SCAN " + step.substring(COROUTINE_STEP.length()));
+            }
+        }
+        List<String> problems = new ArrayList<>();
+        for (String step : plan) {
+            if (step.startsWith("SCAN ") && !step.contains(" USING ") && !step.contains(FULL_TEXT_STEP)
+                    && !coroutines.contains(step) && filtered) {
+                problems.add("full scan: " + step);
+            } else if (step.startsWith("USE TEMP B-TREE") && !fullText) {
+                problems.add("sort without index: " + step);
+            } else if (step.contains("AUTOMATIC")) {
+                problems.add("automatic index: " + step);
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * The plan of one statement and what is wrong with it, if anything.
+     */
+    public static class Finding {
+        private final String sql;
+        private final List<String> plan;
+        private final List<String> problems;
+
+        Finding(String sql, List<String> plan, List<String> problems) {
+            this.sql = sql;
+            this.plan = plan;
+            this.problems = problems;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<String> getPlan() {
+            return plan;
+        }
+
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        /**
+         * Check whether the statement is answered without scans, sorts or automatic indexes.
+         *
+         * @return True if the plan has no problems
+         */
+        public boolean isIndexed() {
+            return problems.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return sql + "\n  plan: " + String.join(" | ", plan) + "\n  problems: " + String.join("; ", problems);
+        }
+    }
+}
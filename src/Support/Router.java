@@ -17,6 +17,7 @@ public class Router {
     private static final Map<String, NavigatePanel> staticRoutes = new HashMap<>();
     private static final List<Route> dynamicRoutes = new ArrayList<>();
     private static String currentRoute = "";
+    private NavigatePanel currentPanel;
 
     /**
      * Private constructor to enforce singleton pattern.
@@ -84,6 +85,10 @@ public class Router {
      * @param panel The panel to display
      */
     private void displayPanel(NavigatePanel panel) {
+        if (currentPanel != null) {
+            currentPanel.onNavigatedAway();
+        }
+        currentPanel = panel;
         container.setVisible(false);
         panel.render();
         container.setContentPane(panel);
@@ -92,6 +97,27 @@ public class Router {
         container.setVisible(true);
     }
 
+    /**
+     * Show a panel in place of the current one without changing the route, for example once the data
+     * the route was waiting for has loaded. Nothing happens if the router has already moved on.
+     *
+     * @param current The panel being replaced
+     * @param panel The panel to show instead
+     */
+    public static void replace(NavigatePanel current, NavigatePanel panel) {
+        Router router = getInstance();
+        if (router.currentPanel != current) {
+            return;
+        }
+
+        current.onNavigatedAway();
+        router.currentPanel = panel;
+        panel.render();
+        router.container.setContentPane(panel);
+        router.container.revalidate();
+        router.container.repaint();
+    }
+
     public static JFrame getContainer() {
         return instance.container;
     }
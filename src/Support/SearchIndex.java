@@ -0,0 +1,455 @@
+package Support;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory substring index for filtering a list as the user types.
+ * Each item's text is normalized once (lowercased, accents removed) and split into bigrams and trigrams, and
+ * every n-gram keeps a sorted {@code int[]} of the slots holding it. A search intersects the posting lists of
+ * the query's trigrams, or its bigram when it is two characters long, and confirms the few candidates with
+ * {@link String#contains}, so filtering never lowercases the whole list or goes back to the database.
+ * A single character scans the pre-normalized keys.
+ * <p>
+ * The index loads itself from its source on the first search, after which the caller keeps it in step by
+ * calling {@link #put} and {@link #remove} as items are written, or {@link #refresh} with the changed IDs. {@link #rebuild()} reloads it from the source
+ * and {@link #verify()} reports any difference between the two. All methods are synchronized.
+ *
+ * @param <T> The type of the indexed items
+ */
+public class SearchIndex<T> {
+    // Keys are indexed by every n-gram of these lengths; a query uses the longest one it has
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 3;
+    // Joins the fields of an item's text; trigrams never span it
+    private static final char FIELD_SEPARATOR = '\n';
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ToIntFunction<? super T> idOf;
+    private final Function<? super T, String> textOf;
+    private final Comparator<? super T> order;
+    private final Supplier<? extends Collection<? extends T>> source;
+
+    private boolean loaded;
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private Object[] items = new Object[0];
+    private String[] keys = new String[0];
+    private int slotCount;
+
+    /**
+     * Create an empty index that loads from the given source on first use.
+     *
+     * @param idOf Gets the unique ID of an item
+     * @param textOf Gets the text an item is found by, see {@link #text(String...)} for several fields
+     * @param order The order search results are returned in
+     * @param source Loads a snapshot of every item
+     */
+    public SearchIndex(ToIntFunction<? super T> idOf, Function<? super T, String> textOf,
+                       Comparator<? super T> order, Supplier<? extends Collection<? extends T>> source) {
+        this.idOf = idOf;
+        this.textOf = textOf;
+        this.order = order;
+        this.source = source;
+    }
+
+    /**
+     * Join several fields into the searchable text of one item, skipping null fields.
+     * A query matches within a single field, never across two.
+     *
+     * @param fields The field values
+     * @return The text to index
+     */
+    public static String text(String... fields) {
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field != null) {
+                text.append(field).append(FIELD_SEPARATOR);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Find the items whose text contains the search text, ignoring case and accents.
+     * An empty search text matches every item.
+     *
+     * @param searchText The text to search for
+     * @return The matching items in index order
+     */
+    public synchronized List<T> search(String searchText) {
+        ensureLoaded();
+
+        String query = normalize(searchText);
+        List<T> matches = new ArrayList<>();
+        if (query.length() < MIN_GRAM) {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (keys[slot] != null && keys[slot].contains(query)) {
+                    matches.add(item(slot));
+                }
+            }
+        } else {
+            int[] candidates = candidates(grams(query, Math.min(query.length(), MAX_GRAM)));
+            for (int slot : candidates) {
+                if (keys[slot].contains(query)) {
+                    matches.add(item(slot));
+                }
+            }
+        }
+
+        // Slots are filled in order, so this is close to linear
+        matches.sort(order);
+        return matches;
+    }
+
+    /**
+     * Add an item, or replace the item with the same ID.
+     * Does nothing until the index is loaded, since loading reads the item from the source.
+     *
+     * @param item The item that was created or updated
+     */
+    public synchronized void put(T item) {
+        if (!loaded) {
+            return;
+        }
+
+        String key = normalize(textOf.apply(item));
+        Integer slot = slots.get(idOf.applyAsInt(item));
+        if (slot == null) {
+            add(item, key);
+            return;
+        }
+
+        if (!key.equals(keys[slot])) {
+            unlink(slot);
+            keys[slot] = key;
+            link(slot);
+        }
+        items[slot] = item;
+    }
+
+    /**
+     * Remove the item with the given ID.
+     *
+     * @param id The ID of the item that was deleted
+     */
+    public synchronized void remove(int id) {
+        if (!loaded) {
+            return;
+        }
+
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+
+        unlink(slot);
+        items[slot] = null;
+        keys[slot] = null;
+
+        // Compact once most slots are empty so the short query scan stays proportional to the items
+        if (slotCount > 2 * slots.size() + 64) {
+            load(live());
+        }
+    }
+
+    /**
+     * Re-read the given items and put or remove each one, after a write changed them.
+     * Does nothing until the index is loaded. The items are read outside the lock, so searches are not held
+     * up by the database.
+     *
+     * @param ids The IDs of the changed items
+     * @param reload Reads the items that still exist among the given IDs
+     */
+    public void refresh(Collection<Integer> ids, Function<Collection<Integer>, ? extends Collection<? extends T>> reload) {
+        if (ids.isEmpty() || !isLoaded()) {
+            return;
+        }
+
+        Collection<? extends T> current = reload.apply(ids);
+        synchronized (this) {
+            Set<Integer> gone = new HashSet<>(ids);
+            for (T item : current) {
+                gone.remove(idOf.applyAsInt(item));
+                put(item);
+            }
+            gone.forEach(this::remove);
+        }
+    }
+
+    /**
+     * Check whether the index has been loaded from its source.
+     *
+     * @return True if the index is loaded
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Drop the indexed items so the next search loads them from the source again.
+     * Use this after a write whose effect on the items is not known item by item.
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        slots.clear();
+        postings.clear();
+        items = new Object[0];
+        keys = new String[0];
+        slotCount = 0;
+    }
+
+    /**
+     * Reload the index from its source now.
+     *
+     * @return The number of items indexed
+     */
+    public synchronized int rebuild() {
+        load(source.get());
+        return slots.size();
+    }
+
+    /**
+     * Compare the index with a fresh snapshot from its source and check its posting lists.
+     * Items are compared by ID and indexed text. An index that is not loaded has nothing to compare.
+     *
+     * @return A description of each difference, empty when the index is in step with the source
+     */
+    public synchronized List<String> verify() {
+        List<String> problems = new ArrayList<>();
+        if (!loaded) {
+            return problems;
+        }
+
+        Map<Integer, String> expected = new HashMap<>();
+        for (T item : source.get()) {
+            expected.put(idOf.applyAsInt(item), normalize(textOf.apply(item)));
+        }
+
+        for (Map.Entry<Integer, Integer> entry : slots.entrySet()) {
+            String key = expected.get(entry.getKey());
+            if (key == null) {
+                problems.add("item " + entry.getKey() + " is indexed but no longer exists");
+            } else if (!key.equals(keys[entry.getValue()])) {
+                problems.add("item " + entry.getKey() + " is indexed with out of date text");
+            }
+        }
+        for (Integer id : expected.keySet()) {
+            if (!slots.containsKey(id)) {
+                problems.add("item " + id + " is missing from the index");
+            }
+        }
+
+        // Every n-gram of every key must list its slot, and the lists must hold nothing else
+        long entries = 0;
+        for (int slot : slots.values()) {
+            for (long gram : indexGrams(keys[slot])) {
+                Postings list = postings.get(gram);
+                if (list == null || Arrays.binarySearch(list.slots, 0, list.size, slot) < 0) {
+                    problems.add("slot " + slot + " is missing from a posting list");
+                }
+                entries++;
+            }
+        }
+        long listed = postings.values().stream().mapToLong(list -> list.size).sum();
+        if (listed != entries) {
+            problems.add("posting lists hold " + listed + " entries, expected " + entries);
+        }
+        return problems;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            load(source.get());
+        }
+    }
+
+    private void load(Collection<? extends T> snapshot) {
+        List<T> sorted = new ArrayList<>(snapshot);
+        sorted.sort(order);
+
+        invalidate();
+        items = new Object[Math.max(16, sorted.size())];
+        keys = new String[items.length];
+        for (T item : sorted) {
+            add(item, normalize(textOf.apply(item)));
+        }
+        loaded = true;
+    }
+
+    private void add(T item, String key) {
+        if (slotCount == items.length) {
+            items = Arrays.copyOf(items, Math.max(16, slotCount * 2));
+            keys = Arrays.copyOf(keys, items.length);
+        }
+
+        int slot = slotCount++;
+        items[slot] = item;
+        keys[slot] = key;
+        slots.put(idOf.applyAsInt(item), slot);
+        link(slot);
+    }
+
+    private void link(int slot) {
+        for (long gram : indexGrams(keys[slot])) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(slot);
+        }
+    }
+
+    private void unlink(int slot) {
+        for (long gram : indexGrams(keys[slot])) {
+            Postings list = postings.get(gram);
+            list.remove(slot);
+            if (list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private List<T> live() {
+        List<T> live = new ArrayList<>(slots.size());
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (items[slot] != null) {
+                live.add(item(slot));
+            }
+        }
+        return live;
+    }
+
+    /**
+     * The slots listed under every one of the n-grams, intersected from the shortest list up.
+     */
+    private int[] candidates(long[] grams) {
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists[0].slots, lists[0].size);
+        int size = result.length;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            int[] other = lists[i].slots;
+            int otherSize = lists[i].size;
+            int kept = 0;
+            int j = 0;
+            for (int k = 0; k < size && j < otherSize; k++) {
+                while (j < otherSize && other[j] < result[k]) {
+                    j++;
+                }
+                if (j < otherSize && other[j] == result[k]) {
+                    result[kept++] = result[k];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T item(int slot) {
+        return (T) items[slot];
+    }
+
+    /**
+     * Lowercase the text and strip its accents, so "Café" is found by "cafe".
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * The distinct n-grams of every indexed length in a key.
+     */
+    private static long[] indexGrams(String key) {
+        long[] grams = new long[0];
+        for (int n = MIN_GRAM; n <= MAX_GRAM; n++) {
+            long[] more = grams(key, n);
+            grams = Arrays.copyOf(grams, grams.length + more.length);
+            System.arraycopy(more, 0, grams, grams.length - more.length, more.length);
+        }
+        return grams;
+    }
+
+    /**
+     * The distinct n-grams of a key, each packed with its length into a long, skipping those that span two fields.
+     */
+    private static long[] grams(String key, int n) {
+        if (key.length() < n) {
+            return new long[0];
+        }
+
+        long[] grams = new long[key.length() - n + 1];
+        int count = 0;
+        for (int i = 0; i + n <= key.length(); i++) {
+            long gram = n;
+            for (int j = i; j < i + n && gram >= 0; j++) {
+                char c = key.charAt(j);
+                gram = c == FIELD_SEPARATOR ? -1 : (gram << 16) | c;
+            }
+            if (gram >= 0) {
+                grams[count++] = gram;
+            }
+        }
+
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * Sorted, growable list of the slots holding one trigram.
+     */
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            // Loading fills slots in ascending order, so most adds append
+            int at = size == 0 || slots[size - 1] < slot ? -size - 1 : Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+}
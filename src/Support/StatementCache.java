@@ -0,0 +1,218 @@
+package Support;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of prepared statements for a single physical connection, keyed by SQL text.
+ * A connection is only ever used by one borrower at a time, so the cache itself is not synchronized;
+ * the hit/miss counters may be shared between the caches of a whole pool.
+ * Statements marked in use are not handed out twice, and one evicted while in use is only closed once it is
+ * marked idle again, so eviction never closes a cursor that is still being read.
+ */
+public class StatementCache {
+    private final Connection connection;
+    private final int maxSize;
+    private final Counters counters;
+    private final Map<Key, PreparedStatement> statements;
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Evicted while in use; closed when marked idle
+    private final Set<PreparedStatement> evictedInUse = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Create a statement cache for a connection.
+     *
+     * @param connection The physical connection statements are prepared on
+     * @param maxSize The maximum number of cached statements
+     * @param counters The counters to record hits, misses and evictions in
+     */
+    public StatementCache(Connection connection, int maxSize, Counters counters) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                counters.evictions.increment();
+                PreparedStatement evicted = eldest.getValue();
+                if (inUse.contains(evicted)) {
+                    evictedInUse.add(evicted);
+                } else {
+                    closeQuietly(evicted);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get a prepared statement for the SQL text, preparing it on a miss.
+     *
+     * @param sql The SQL text
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+     * @return The cached or newly prepared statement
+     * @throws SQLException If the statement cannot be prepared
+     */
+    public PreparedStatement get(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        PreparedStatement statement = statements.get(key);
+
+        if (statement != null && !statement.isClosed()) {
+            counters.hits.increment();
+            return statement;
+        }
+
+        counters.misses.increment();
+        statement = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
+        statements.put(key, statement);
+        return statement;
+    }
+
+    /**
+     * Mark a statement as in use, so it is not handed out again until it is marked idle.
+     *
+     * @param statement A statement obtained from this cache
+     * @return True if the statement was idle, false if it is already in use
+     */
+    public boolean markInUse(PreparedStatement statement) {
+        return inUse.add(statement);
+    }
+
+    /**
+     * Mark a statement as idle once its borrower is done with it, closing it if it was evicted meanwhile.
+     *
+     * @param statement A statement obtained from this cache
+     */
+    public void markIdle(PreparedStatement statement) {
+        inUse.remove(statement);
+        if (evictedInUse.remove(statement)) {
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Reset every statement still in use and mark it idle, when the connection goes back to the pool.
+     */
+    public void resetInUse() {
+        for (PreparedStatement statement : inUse) {
+            if (evictedInUse.contains(statement)) {
+                closeQuietly(statement);
+            } else {
+                reset(statement);
+            }
+        }
+        inUse.clear();
+        evictedInUse.clear();
+    }
+
+    /**
+     * Reset a statement so it can be handed out again: close its open cursor and clear its parameters.
+     *
+     * @param statement A statement obtained from this cache
+     */
+    public static void reset(PreparedStatement statement) {
+        try {
+            if (statement.isClosed()) {
+                return;
+            }
+            // Closes the current result set, if any, which also resets the cursor
+            statement.getMoreResults();
+            statement.clearParameters();
+            statement.clearBatch();
+        } catch (SQLException e) {
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Get the number of cached statements.
+     *
+     * @return The cache size
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Close every cached statement.
+     */
+    public void clear() {
+        statements.values().forEach(StatementCache::closeQuietly);
+        statements.clear();
+        evictedInUse.forEach(StatementCache::closeQuietly);
+        evictedInUse.clear();
+        inUse.clear();
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The statement is being discarded either way
+        }
+    }
+
+    /**
+     * Cache key: the SQL text plus the generated-keys mode it was prepared with.
+     */
+    private static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counters, shareable between caches.
+     */
+    public static class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+    }
+}
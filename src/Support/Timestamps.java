@@ -0,0 +1,107 @@
+package Support;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.Date;
+
+/**
+ * Converts timestamps between {@link Date} and the epoch-millisecond INTEGER columns that store them.
+ * Reads also accept the legacy {@code yyyy-MM-dd HH:mm:ss} and {@code yyyy-MM-dd} text written before the
+ * columns were converted, interpreted in the system time zone as they were written. Values that are neither
+ * are reported as errors rather than replaced, so bad rows are noticed instead of silently redated.
+ * The formatters are immutable, so the codec is safe to use from any thread.
+ */
+public final class Timestamps {
+    private static final DateTimeFormatter LEGACY_DATE_TIME = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd[ HH:mm:ss]")
+            .optionalStart()
+            .appendFraction(ChronoField.MILLI_OF_SECOND, 1, 3, true)
+            .optionalEnd()
+            .toFormatter();
+
+    private Timestamps() {
+    }
+
+    /**
+     * Convert a date to the value stored in a timestamp column.
+     *
+     * @param date The date
+     * @return Milliseconds since the epoch
+     */
+    public static long toEpochMillis(Date date) {
+        return date.getTime();
+    }
+
+    /**
+     * Convert a stored timestamp to a date.
+     *
+     * @param millis Milliseconds since the epoch
+     * @return The date
+     */
+    public static Date fromEpochMillis(long millis) {
+        return new Date(millis);
+    }
+
+    /**
+     * Bind a date to a timestamp parameter.
+     *
+     * @param stmt The statement
+     * @param index The 1-based parameter index
+     * @param date The date
+     * @throws SQLException If the parameter cannot be set
+     */
+    public static void bind(PreparedStatement stmt, int index, Date date) throws SQLException {
+        stmt.setLong(index, toEpochMillis(date));
+    }
+
+    /**
+     * Read a timestamp column.
+     *
+     * @param rs The result set, positioned on a row
+     * @param column The 1-based column index
+     * @return The date, or null if the column is NULL
+     * @throws SQLException If the column holds neither epoch milliseconds nor legacy date text
+     */
+    public static Date read(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            return fromEpochMillis(number.longValue());
+        }
+
+        try {
+            return fromEpochMillis(parseLegacy(value.toString()));
+        } catch (DateTimeParseException e) {
+            throw new SQLException("Column " + rs.getMetaData().getColumnLabel(column)
+                    + " holds an invalid timestamp: '" + value + "'", e);
+        }
+    }
+
+    /**
+     * Parse a timestamp stored as text, either digits holding epoch milliseconds or the legacy date format.
+     *
+     * @param text The stored text
+     * @return Milliseconds since the epoch
+     * @throws DateTimeParseException If the text is not a timestamp
+     */
+    public static long parseLegacy(String text) {
+        String trimmed = text.trim();
+        if (!trimmed.isEmpty() && trimmed.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(trimmed);
+        }
+
+        var parsed = LEGACY_DATE_TIME.parseBest(trimmed, LocalDateTime::from, LocalDate::from);
+        LocalDateTime dateTime = parsed instanceof LocalDate date ? date.atStartOfDay() : (LocalDateTime) parsed;
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,98 @@
+package Support;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs database writes one at a time on a single dedicated thread.
+ * SQLite allows a single writer, so funnelling every write through one thread keeps them serialized
+ * without SQLITE_BUSY retries. Tasks wait in a bounded queue and a full queue rejects new writes.
+ */
+public class WriteExecutor {
+    private final ThreadPoolExecutor executor;
+    private volatile Thread writerThread;
+
+    /**
+     * Create a writer with its own thread.
+     *
+     * @param name A short name used for the writer thread
+     * @param queueCapacity The maximum number of writes waiting to run
+     */
+    public WriteExecutor(String name, int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(
+                1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "db-writer-" + name);
+                    thread.setDaemon(true);
+                    writerThread = thread;
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Queue a task to run on the writer thread.
+     *
+     * @param task The task to run
+     * @return A future completed with the task's result, or exceptionally with its error
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(executor.isShutdown()
+                    ? new SQLException("Database writer has been shut down", e)
+                    : new SQLException("Database write queue is full", e));
+        }
+        return future;
+    }
+
+    /**
+     * Check whether the calling thread is the writer thread.
+     *
+     * @return True when called from a task running on this writer
+     */
+    public boolean isWriterThread() {
+        return Thread.currentThread() == writerThread;
+    }
+
+    /**
+     * Get the number of writes waiting to run.
+     *
+     * @return The queue length
+     */
+    public int getQueuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stop accepting writes and wait for the queued ones to finish.
+     *
+     * @param timeoutMillis How long to wait for queued writes
+     */
+    public void close(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
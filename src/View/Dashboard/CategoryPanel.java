@@ -1,15 +1,19 @@
 package View.Dashboard;
 
 import Controller.CategoryController;
+import Event.CategoryChanged;
+import Event.ChangeEvent.Change;
 import Model.Category;
 import Support.Router;
 import Support.SessionManager;
 import Support.UIConstants;
 import View.Layout.DashboardLayout;
 import View.NavigatePanel;
+import View.SearchField;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.List;
+import java.util.Optional;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
@@ -20,7 +24,7 @@ import javax.swing.table.DefaultTableModel;
 public class CategoryPanel extends DashboardLayout {
     private final CategoryController categoryController;
     private JTable categoryTable;
-    private JTextField searchField;
+    private SearchField searchField;
 
     /**
      * Constructor for CategoryPanel.
@@ -34,6 +38,23 @@ public class CategoryPanel extends DashboardLayout {
     public void render() {
         super.render();
         loadCategories();
+
+        // Patch the rows other views change; new categories show up when the list is next opened
+        listen(CategoryChanged.class, event -> {
+            DefaultTableModel model = (DefaultTableModel) categoryTable.getModel();
+            if (event.getChange() == Change.DELETED) {
+                removeRows(model, event.getIds());
+            } else if (event.getChange() == Change.UPDATED) {
+                for (int categoryId : shownIds(model, event.getIds())) {
+                    Optional<Category> category = categoryController.getCategoryById(categoryId);
+                    if (category.isPresent()) {
+                        model.setValueAt(category.get().getName(), findRow(model, categoryId), 1);
+                    } else {
+                        removeRows(model, List.of(categoryId));
+                    }
+                }
+            }
+        });
     }
 
     @Override
@@ -93,7 +114,8 @@ public class CategoryPanel extends DashboardLayout {
         searchIcon.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         searchIcon.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
 
-        searchField = new JTextField(15);
+        // Searches the in-memory index, so a short pause is enough
+        searchField = new SearchField(15, 150);
         searchField.setBorder(null);
         searchField.setFont(UIConstants.TABLE_CONTENT_FONT);
 
@@ -181,46 +203,29 @@ public class CategoryPanel extends DashboardLayout {
 
         contentPanel.add(tablePanel, BorderLayout.CENTER);
 
-        // Add search listener
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                String searchText = searchField.getText().trim();
-                filterCategories(searchText);
-            }
-        });
+        // Filter through the search index, an empty search text shows all categories
+        searchField.onSearch(
+            searchText -> () -> categoryController.searchCategories(searchText),
+            this::updateTableModel,
+            error -> JOptionPane.showMessageDialog(this,
+                "Error searching categories: " + error.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE)
+        );
 
         return contentPanel;
     }
 
     /**
-     * Load categories from the database.
+     * Load categories from the database off the EDT.
      */
     private void loadCategories() {
-        List<Category> categories = categoryController.getAllCategories();
-        updateTableModel(categories);
-    }
-
-    /**
-     * Filter categories based on search text.
-     *
-     * @param searchText The search text
-     */
-    private void filterCategories(String searchText) {
-        List<Category> categories = categoryController.getAllCategories();
-        
-        // If search text is empty, show all categories
-        if (searchText.isEmpty()) {
-            updateTableModel(categories);
-            return;
-        }
-        
-        // Filter categories by name
-        List<Category> filteredCategories = categories.stream()
-            .filter(category -> category.getName().toLowerCase().contains(searchText.toLowerCase()))
-            .toList();
-        
-        updateTableModel(filteredCategories);
+        renderAsync(categoryTable, categoryController::getAllCategories, categories -> {
+            // A search typed while the list was loading wins
+            if (searchField.getText().isBlank()) {
+                updateTableModel(categories);
+            }
+        });
     }
 
     /**
@@ -274,9 +279,7 @@ public class CategoryPanel extends DashboardLayout {
     private void deleteCategory(int categoryId) {
         try {
             boolean deleted = categoryController.deleteCategory(categoryId);
-            if (deleted) {
-                loadCategories();
-            } else {
+            if (!deleted) {
                 JOptionPane.showMessageDialog(this, 
                     "Error: Category could not be deleted. It may be in use by products.", 
                     "Error", 
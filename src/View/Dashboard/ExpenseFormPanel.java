@@ -14,7 +14,6 @@ import View.NavigatePanel;
 import java.awt.*;
 import java.awt.event.*;
 import java.sql.SQLException;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
@@ -28,6 +27,8 @@ public class ExpenseFormPanel extends DashboardLayout {
 
     private int expenseId = 0;
     private final boolean isEditMode;
+    // The expense being edited, or null when adding one
+    private final Expense expense;
 
     // Form components
     private JTextField txtName;
@@ -46,13 +47,15 @@ public class ExpenseFormPanel extends DashboardLayout {
         this.expenseController = new ExpenseController();
         this.staffController = new StaffController();
         this.isEditMode = false;
-
-        loadStaffComboBox();
+        this.expense = null;
     }
 
     @Override
     public void render() {
         super.render();
+        if (expense != null) {
+            populateForm();
+        }
         loadStaffComboBox();
     }
 
@@ -71,24 +74,20 @@ public class ExpenseFormPanel extends DashboardLayout {
         this.staffController = new StaffController();
         this.isEditMode = true;
         this.expenseId = expense.getId();
-        String selectedImagePath = expense.getPicture();
+        this.expense = expense;
+    }
 
-        loadStaffComboBox();
+    /**
+     * Fill the form with the data of the expense being edited. The staff is selected once the staff list has loaded.
+     */
+    private void populateForm() {
+        String selectedImagePath = expense.getPicture();
 
         // Populate form with expense data
         txtName.setText(expense.getName());
         txtDescription.setText(expense.getDescription());
         txtAmount.setText(String.format("%.2f", expense.getAmount()));
 
-        // Set the selected staff
-        for (int i = 0; i < cmbStaff.getItemCount(); i++) {
-            StaffComboItem item = cmbStaff.getItemAt(i);
-            if (item.getId() == expense.getStaffId()) {
-                cmbStaff.setSelectedIndex(i);
-                break;
-            }
-        }
-
         // Display the image if available
         if (selectedImagePath != null && !selectedImagePath.isEmpty()) {
             displayImage(selectedImagePath);
@@ -332,20 +331,32 @@ public class ExpenseFormPanel extends DashboardLayout {
     }
 
     /**
-     * Load staff members into the staff combo box.
+     * Load staff members into the staff combo box off the EDT, then select the expense's staff when editing.
      */
     private void loadStaffComboBox() {
-        List<Staff> staffList = staffController.getAllStaff();
-        cmbStaff.removeAllItems();
+        renderAsync(cmbStaff, staffController::getAllStaff, staffList -> {
+            cmbStaff.removeAllItems();
 
-        for (Staff staff : staffList) {
+            for (Staff staff : staffList) {
 
-            Staff user = SessionManager.getCurrentUser();
+                Staff user = SessionManager.getCurrentUser();
 
-            if (user.getId() == staff.getId() || user.getRole().equalsIgnoreCase("admin")) {
-                cmbStaff.addItem(new StaffComboItem(staff.getId(), staff.getName()));
+                if (user.getId() == staff.getId() || user.getRole().equalsIgnoreCase("admin")) {
+                    cmbStaff.addItem(new StaffComboItem(staff.getId(), staff.getName()));
+                }
             }
-        }
+
+            // Set the selected staff
+            if (expense != null) {
+                for (int i = 0; i < cmbStaff.getItemCount(); i++) {
+                    StaffComboItem item = cmbStaff.getItemAt(i);
+                    if (item.getId() == expense.getStaffId()) {
+                        cmbStaff.setSelectedIndex(i);
+                        break;
+                    }
+                }
+            }
+        });
     }
 
     /**
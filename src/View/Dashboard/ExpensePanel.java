@@ -1,16 +1,23 @@
 package View.Dashboard;
 
 import Controller.ExpenseController;
+import Event.ChangeEvent.Change;
+import Event.ExpenseChanged;
 import Model.ExpenseWithStaff;
+import Repository.Page;
 import Support.Router;
 import Support.SessionManager;
 import Support.UIConstants;
 import View.DashboardPanel;
 import View.Layout.DashboardLayout;
 import View.NavigatePanel;
+import View.SearchField;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
@@ -21,8 +28,14 @@ import javax.swing.table.DefaultTableModel;
 public class ExpensePanel extends DashboardLayout {
     private final ExpenseController expenseController;
     private JTable expenseTable;
-    private JTextField searchField;
+    private SearchField searchField;
     private JComboBox<String> durationComboBox;
+    private JButton loadMoreButton;
+    private DefaultTableModel expenseModel;
+    // Last expense loaded, the cursor for the next page
+    private ExpenseWithStaff lastExpense;
+    // The next page while it is loading, dropped when a search or reload replaces the rows
+    private CompletableFuture<Page<ExpenseWithStaff>> nextPage;
 
     public ExpensePanel() {
         super();
@@ -33,6 +46,27 @@ public class ExpensePanel extends DashboardLayout {
     public void render() {
         super.render();
         loadExpenses();
+
+        // Patch the rows other views change; new expenses show up when the list is next opened
+        listen(ExpenseChanged.class, event -> {
+            if (event.getChange() == Change.DELETED) {
+                removeRows(expenseModel, event.getIds());
+            } else if (event.getChange() == Change.UPDATED) {
+                for (int expenseId : shownIds(expenseModel, event.getIds())) {
+                    Optional<ExpenseWithStaff> expense = expenseController.getExpenseWithStaffById(expenseId);
+                    if (expense.isPresent()) {
+                        int row = findRow(expenseModel, expenseId);
+                        expenseModel.setValueAt(expense.get().getExpense().getName(), row, 1);
+                        expenseModel.setValueAt(expense.get().getExpense().getDescription(), row, 2);
+                        expenseModel.setValueAt("$" + expense.get().getExpense().getAmount(), row, 3);
+                        expenseModel.setValueAt(expense.get().getStaffName(), row, 4);
+                        expenseModel.setValueAt(expense.get().getExpense().getDate(), row, 5);
+                    } else {
+                        removeRows(expenseModel, List.of(expenseId));
+                    }
+                }
+            }
+        });
     }
 
     public NavigatePanel getContentPanel() {
@@ -114,7 +148,7 @@ public class ExpensePanel extends DashboardLayout {
         searchIcon.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         searchIcon.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
 
-        searchField = new JTextField(15);
+        searchField = new SearchField(15);
         searchField.setBorder(null);
         searchField.setFont(UIConstants.TABLE_CONTENT_FONT);
 
@@ -194,39 +228,87 @@ public class ExpensePanel extends DashboardLayout {
 
         tablePanel.add(scrollPane, BorderLayout.CENTER);
 
+        loadMoreButton = createLoadMoreButton(this::loadMoreExpenses);
+        tablePanel.add(loadMoreButton, BorderLayout.SOUTH);
+
         expenseContent.add(tablePanel, BorderLayout.CENTER);
 
         // Add search listener
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                filterExpenses();
-            }
-        });
+        searchField.onSearch(this::filterExpenses, this::showExpenses, error -> JOptionPane.showMessageDialog(this,
+                "Error searching expenses: " + error.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE));
         
         // Add duration filter listener
-        durationComboBox.addActionListener(e -> filterExpenses());
+        durationComboBox.addActionListener(e -> searchField.searchNow());
         
         return expenseContent;
     }
 
     /**
-     * Load all expenses from the database.
+     * Load the first page of expenses from the database off the EDT.
      */
     private void loadExpenses() {
-        List<ExpenseWithStaff> expenses = expenseController.getAllExpensesWithStaff();
-        updateTableModel(expenses);
+        renderAsync(expenseTable, () -> expenseController.getExpensesWithStaffPage(null), page -> {
+            // A search or filter chosen while the list was loading wins
+            if (searchField.getText().isBlank() && "All".equals(durationComboBox.getSelectedItem())) {
+                showExpenses(page);
+            }
+        });
+    }
+
+    /**
+     * Show a page of expenses, replacing the table contents.
+     *
+     * @param page The expenses to show
+     */
+    private void showExpenses(Page<ExpenseWithStaff> page) {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+        }
+        updateTableModel(page.getItems());
+        showPage(page);
+    }
+
+    /**
+     * Read the next page of expenses off the EDT and append it to the table.
+     */
+    private void loadMoreExpenses() {
+        ExpenseWithStaff after = lastExpense;
+        loadMoreButton.setEnabled(false);
+        nextPage = renderAsync(null, () -> expenseController.getExpensesWithStaffPage(after), page -> {
+            addRows(page.getItems());
+            showPage(page);
+        });
+        nextPage.whenComplete((page, error) -> SwingUtilities.invokeLater(() -> loadMoreButton.setEnabled(true)));
+    }
+
+    /**
+     * Remember where a page ended and offer the next one if there is more.
+     *
+     * @param page The page just displayed
+     */
+    private void showPage(Page<ExpenseWithStaff> page) {
+        if (page.getLast() != null) {
+            lastExpense = page.getLast();
+        }
+        loadMoreButton.setVisible(page.hasMore());
     }
     
     /**
-     * Filter expenses based on search text and duration.
+     * Build the search for expenses matching the search text and the selected duration.
+     *
+     * @param searchText The search text
+     * @return The search to run off the EDT
      */
-    private void filterExpenses() {
-        String searchText = searchField.getText().trim();
+    private Callable<Page<ExpenseWithStaff>> filterExpenses(String searchText) {
         String selectedDuration = (String) durationComboBox.getSelectedItem();
+
+        if (searchText.isEmpty() && (selectedDuration == null || selectedDuration.equals("All"))) {
+            return () -> expenseController.getExpensesWithStaffPage(null);
+        }
         
-        List<ExpenseWithStaff> expenses = expenseController.filterExpense(searchText, selectedDuration);
-        updateTableModel(expenses);
+        return () -> Page.all(expenseController.filterExpense(searchText, selectedDuration));
     }
 
     /**
@@ -237,28 +319,17 @@ public class ExpensePanel extends DashboardLayout {
     private void updateTableModel(List<ExpenseWithStaff> expenseList) {
         // Create the table model
         String[] columnNames = {"ID", "Name", "Description", "Amount", "Staff", "Date", "Actions"};
-        Object[][] data = new Object[expenseList.size()][columnNames.length];
-
-        // Populate the data
-        for (int i = 0; i < expenseList.size(); i++) {
-            ExpenseWithStaff expense = expenseList.get(i);
-            data[i][0] = expense.getExpense().getId();
-            data[i][1] = expense.getExpense().getName();
-            data[i][2] = expense.getExpense().getDescription();
-            data[i][3] = "$" + expense.getExpense().getAmount();
-            data[i][4] = expense.getStaffName();
-            data[i][5] = expense.getExpense().getDate();
-            data[i][6] = ""; // Will be replaced with buttons
-        }
 
-        DefaultTableModel model = new DefaultTableModel(data, columnNames) {
+        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return column == 6; // Only make the actions column editable
             }
         };
 
+        expenseModel = model;
         expenseTable.setModel(model);
+        addRows(expenseList);
 
         // Set relative column widths
         int totalWidth = expenseTable.getParent().getWidth();
@@ -283,6 +354,25 @@ public class ExpensePanel extends DashboardLayout {
         expenseTable.getColumnModel().getColumn(3).setCellRenderer(centerRenderer);
     }
 
+    /**
+     * Append expenses to the current table model.
+     *
+     * @param expenseList The expenses to append
+     */
+    private void addRows(List<ExpenseWithStaff> expenseList) {
+        for (ExpenseWithStaff expense : expenseList) {
+            expenseModel.addRow(new Object[]{
+                expense.getExpense().getId(),
+                expense.getExpense().getName(),
+                expense.getExpense().getDescription(),
+                "$" + expense.getExpense().getAmount(),
+                expense.getStaffName(),
+                expense.getExpense().getDate(),
+                "" // Will be replaced with buttons
+            });
+        }
+    }
+
     /**
      * Delete an expense.
      *
@@ -295,7 +385,6 @@ public class ExpensePanel extends DashboardLayout {
                 "Expense deleted successfully", 
                 "Success", 
                 JOptionPane.INFORMATION_MESSAGE);
-            loadExpenses();
         } catch (IllegalArgumentException ex) {
             JOptionPane.showMessageDialog(this, 
                 "Error: " + ex.getMessage(), 
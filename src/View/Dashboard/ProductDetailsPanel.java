@@ -1,6 +1,7 @@
 package View.Dashboard;
 
 import Controller.ProductController;
+import Exception.DatabaseException;
 import Model.ProductWithCategory;
 import Support.FileUtils;
 import Support.Router;
@@ -343,6 +344,13 @@ public class ProductDetailsPanel extends DashboardLayout {
                         "Error",
                         JOptionPane.ERROR_MESSAGE
                     );
+                } catch (DatabaseException ex) {
+                    JOptionPane.showMessageDialog(
+                        this,
+                        "Failed to delete product. " + ex.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE
+                    );
                 }
             }
         });
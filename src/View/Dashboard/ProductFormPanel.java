@@ -13,7 +13,6 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
 import java.math.BigDecimal;
-import java.util.List;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
@@ -66,6 +65,28 @@ public class ProductFormPanel extends DashboardLayout {
     public void render() {
         super.render();
         setupForm();
+        loadCategories();
+    }
+
+    /**
+     * Load the categories into the dropdown off the EDT, then select the product's category when editing.
+     */
+    private void loadCategories() {
+        renderAsync(categoryComboBox, categoryController::getAllCategories, categories -> {
+            categoryComboBox.removeAllItems();
+            categories.forEach(categoryComboBox::addItem);
+            
+            // Set the category
+            if (isEditMode && productToEdit != null) {
+                for (int i = 0; i < categoryComboBox.getItemCount(); i++) {
+                    Category category = categoryComboBox.getItemAt(i);
+                    if (category.getId() == productToEdit.getCategoryId()) {
+                        categoryComboBox.setSelectedIndex(i);
+                        break;
+                    }
+                }
+            }
+        });
     }
 
     /**
@@ -108,15 +129,6 @@ public class ProductFormPanel extends DashboardLayout {
         priceField.setText(productToEdit.getPrice().toString());
         stockField.setText(String.valueOf(productToEdit.getStockQuantity()));
         
-        // Set the category
-        for (int i = 0; i < categoryComboBox.getItemCount(); i++) {
-            Category category = categoryComboBox.getItemAt(i);
-            if (category.getId() == productToEdit.getCategoryId()) {
-                categoryComboBox.setSelectedIndex(i);
-                break;
-            }
-        }
-        
         // Load image preview
         updateImagePreview(productToEdit.getImagePath());
     }
@@ -282,9 +294,8 @@ public class ProductFormPanel extends DashboardLayout {
         gbc.gridy = 3;
         gbc.gridwidth = 2;
         
-        // Populate category dropdown
-        List<Category> categories = categoryController.getAllCategories();
-        categoryComboBox = new JComboBox<>(categories.toArray(new Category[0]));
+        // Category dropdown, filled once the categories have loaded
+        categoryComboBox = new JComboBox<>();
         categoryComboBox.setFont(UIConstants.TABLE_CONTENT_FONT);
         formFieldsPanel.add(categoryComboBox, gbc);
         
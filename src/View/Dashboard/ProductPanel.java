@@ -1,28 +1,45 @@
 package View.Dashboard;
 
+import Controller.CategoryController;
 import Controller.ProductController;
+import Event.CategoryChanged;
+import Event.ChangeEvent.Change;
+import Event.ProductChanged;
+import Exception.DatabaseException;
+import Model.Category;
 import Model.Product;
 import Model.ProductWithCategory;
+import Repository.ProductRepository.ProductSort;
 import Support.Router;
 import Support.SessionManager;
 import Support.UIConstants;
+import View.LazyTableModel;
 import View.Layout.DashboardLayout;
 import View.NavigatePanel;
+import View.SearchField;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 
 /**
  * Panel for viewing and managing products.
  */
 public class ProductPanel extends DashboardLayout {
     private final ProductController productController;
+    private final CategoryController categoryController;
     private JTable productTable;
-    private JTextField searchField;
+    private SearchField searchField;
     private JComboBox<String> filterComboBox;
+    private LazyTableModel<ProductWithCategory> productModel;
+    // IDs of the categories offered by the filter, by name
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    // Set while the category filter is repopulated so its selection events are ignored
+    private boolean populatingFilter;
     // Stock alert threshold
     private static final int LOW_STOCK_THRESHOLD = 10;
     
@@ -32,12 +49,30 @@ public class ProductPanel extends DashboardLayout {
     public ProductPanel() {
         super();
         this.productController = new ProductController();
+        this.categoryController = new CategoryController();
     }
     
     @Override
     public void render() {
         super.render();
         loadProducts();
+        
+        // Re-read the rows in view when other views change products or rename categories
+        listen(ProductChanged.class, event -> productModel.refresh());
+        listen(CategoryChanged.class, event -> {
+            if (event.getChange() != Change.CREATED) {
+                loadCategoryFilter();
+                productModel.refresh();
+            }
+        });
+    }
+    
+    @Override
+    public void onNavigatedAway() {
+        super.onNavigatedAway();
+        if (productModel != null) {
+            productModel.cancel();
+        }
     }
     
     @Override
@@ -94,7 +129,8 @@ public class ProductPanel extends DashboardLayout {
         JLabel searchIcon = new JLabel("\uD83D\uDD0D"); // Magnifying glass emoji
         searchIcon.setFont(new Font("Dialog", Font.PLAIN, 14));
         
-        searchField = new JTextField(15);
+        // Searches the in-memory index, so a short pause is enough
+        searchField = new SearchField(15, 150);
         searchField.setBorder(null);
         searchField.setFont(UIConstants.TABLE_CONTENT_FONT);
         
@@ -142,19 +178,20 @@ public class ProductPanel extends DashboardLayout {
         
         addButton.addActionListener(e -> Router.navigate("dashboard/products/add"));
         
-        // Add search functionality
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                String searchText = searchField.getText().trim();
-                filterProducts(searchText);
-            }
-        });
+        // Add search functionality; the table model is created with the table below
+        searchField.onSearch(this::filterProducts, window -> productModel.show(window), error -> JOptionPane.showMessageDialog(
+            this,
+            "Error searching products: " + error.getMessage(),
+            "Error",
+            JOptionPane.ERROR_MESSAGE
+        ));
         
         // Add filter functionality
         filterComboBox.addActionListener(e -> {
-            String searchText = searchField.getText().trim();
-            filterProducts(searchText);
+            if (populatingFilter) {
+                return;
+            }
+            searchField.searchNow();
         });
         
         actionsPanel.add(searchPanel);
@@ -193,6 +230,17 @@ public class ProductPanel extends DashboardLayout {
             new Dimension(productTable.getTableHeader().getPreferredSize().width, UIConstants.TABLE_HEADER_HEIGHT)
         );
         
+        // Rows are read a page at a time as the table scrolls, so the columns are set up once
+        productModel = createProductModel();
+        productModel.install(productTable);
+        productModel.setErrorHandler(error -> JOptionPane.showMessageDialog(
+            this,
+            "Error loading products: " + error.getMessage(),
+            "Error",
+            JOptionPane.ERROR_MESSAGE
+        ));
+        setUpColumns();
+        
         JScrollPane scrollPane = new JScrollPane(productTable);
         scrollPane.setBorder(BorderFactory.createLineBorder(UIConstants.BORDER_COLOR));
         tablePanel.add(scrollPane, BorderLayout.CENTER);
@@ -204,82 +252,140 @@ public class ProductPanel extends DashboardLayout {
     }
     
     /**
-     * Load all products.
+     * Load the category filter and the first page of products off the EDT.
      */
     private void loadProducts() {
-        List<ProductWithCategory> products = productController.getAllProductsWithCategories();
-        updateTableModel(products);
-        populateCategoryFilter();
+        loadCategoryFilter();
+        renderAsync(productTable, productModel.load(productsSource(null)), window -> {
+            // A search or filter chosen while the list was loading wins
+            Object selectedCategory = filterComboBox.getSelectedItem();
+            if (searchField.getText().isBlank() && (selectedCategory == null || selectedCategory.equals("All Categories"))) {
+                productModel.show(window);
+            }
+        });
+    }
+    
+    /**
+     * Load the category names into the filter dropdown off the EDT.
+     */
+    private void loadCategoryFilter() {
+        renderAsync(null, categoryController::getAllCategories, this::populateCategoryFilter);
     }
     
     /**
      * Populate the category filter dropdown.
+     * 
+     * @param categories The categories to offer
      */
-    private void populateCategoryFilter() {
-        filterComboBox.removeAllItems();
-        filterComboBox.addItem("All Categories");
-        
-        // Add unique category names
-        productController.getAllProductsWithCategories().stream()
-            .map(ProductWithCategory::getCategoryName)
-            .distinct()
-            .sorted()
-            .forEach(filterComboBox::addItem);
+    private void populateCategoryFilter(List<Category> categories) {
+        populatingFilter = true;
+        try {
+            filterComboBox.removeAllItems();
+            filterComboBox.addItem("All Categories");
+            categoryIds.clear();
+            for (Category category : categories) {
+                categoryIds.put(category.getName(), category.getId());
+            }
+            
+            // Add category names from the category table rather than scanning every product
+            categories.stream()
+                .map(Category::getName)
+                .sorted()
+                .forEach(filterComboBox::addItem);
+        } finally {
+            populatingFilter = false;
+        }
     }
     
     /**
-     * Filter products by search text and category.
+     * Build the search for products matching the search text and the selected category.
      * 
      * @param searchText The search text
+     * @return The search to run off the EDT
      */
-    private void filterProducts(String searchText) {
+    private Callable<LazyTableModel.Window<ProductWithCategory>> filterProducts(String searchText) {
         String selectedCategory = (String) filterComboBox.getSelectedItem();
-        List<ProductWithCategory> products;
         
-        // Get products by search text
+        // Without a search, read the category's products from the database as the table scrolls
         if (searchText.isEmpty()) {
-            products = productController.getAllProductsWithCategories();
-        } else {
-            products = productController.searchProducts(searchText);
-        }
-        
-        // Filter by category if not "All Categories"
-        if (selectedCategory != null && !selectedCategory.equals("All Categories")) {
-            products = products.stream()
-                .filter(p -> p.getCategoryName().equals(selectedCategory))
-                .toList();
+            return productModel.load(productsSource(categoryIds.get(selectedCategory)));
         }
         
-        updateTableModel(products);
+        return productModel.load(productModel.listSource(() -> {
+            // Get products by search text from the search index
+            List<ProductWithCategory> products = productController.searchProducts(searchText);
+            
+            // Filter by category if not "All Categories"
+            if (selectedCategory != null && !selectedCategory.equals("All Categories")) {
+                products = products.stream()
+                    .filter(p -> p.getCategoryName().equals(selectedCategory))
+                    .toList();
+            }
+            return products;
+        }));
     }
     
     /**
-     * Update the table model with the provided products.
+     * Read the products of a category from the database, a range at a time, in the order of the column
+     * header clicked last.
      * 
-     * @param products The list of products to display
+     * @param categoryId The category, or null for every product
+     * @return The source of the rows
      */
-    private void updateTableModel(List<ProductWithCategory> products) {
-        // Create table model
-        String[] columnNames = {"ID", "Name", "Price", "Stock", "Category", "Actions"};
-        Object[][] data = new Object[products.size()][columnNames.length];
-        
-        // Add the products to the table
-        for (int i = 0; i < products.size(); i++) {
-            ProductWithCategory productWithCategory = products.get(i);
-            Product product = productWithCategory.getProduct();
-            data[i][0] = product.getId();
-            data[i][1] = product.getName();
-            data[i][2] = product.getPrice();
-            data[i][3] = product.getStockQuantity();
-            data[i][4] = productWithCategory.getCategoryName();
-            data[i][5] = ""; // Will be filled with action buttons
-        }
-        
-        // Create a DefaultTableModel that is not editable
-        DefaultTableModel model = new DefaultTableModel(data, columnNames) {
+    private LazyTableModel.Source<ProductWithCategory> productsSource(Integer categoryId) {
+        return new LazyTableModel.Source<>() {
+            @Override
+            public int count() {
+                return productController.countProducts(categoryId);
+            }
+            
+            @Override
+            public List<ProductWithCategory> fetch(int offset, int limit, RowSorter.SortKey sortKey) {
+                if (sortKey == null) {
+                    return productController.getProductsWithCategoriesRange(categoryId, null, true, offset, limit);
+                }
+                
+                ProductSort sort = switch (sortKey.getColumn()) {
+                    case 0 -> ProductSort.ID;
+                    case 1 -> ProductSort.NAME;
+                    case 2 -> ProductSort.PRICE;
+                    case 3 -> ProductSort.STOCK;
+                    default -> ProductSort.CATEGORY;
+                };
+                boolean ascending = sortKey.getSortOrder() == SortOrder.ASCENDING;
+                return productController.getProductsWithCategoriesRange(categoryId, sort, ascending, offset, limit);
+            }
+        };
+    }
+    
+    /**
+     * Create the model of the product table.
+     * 
+     * @return The model
+     */
+    private LazyTableModel<ProductWithCategory> createProductModel() {
+        return new LazyTableModel<>("ID", "Name", "Price", "Stock", "Category", "Actions") {
+            @Override
+            protected Object getColumnValue(ProductWithCategory productWithCategory, int column) {
+                Product product = productWithCategory.getProduct();
+                return switch (column) {
+                    case 0 -> product.getId();
+                    case 1 -> product.getName();
+                    case 2 -> product.getPrice();
+                    case 3 -> product.getStockQuantity();
+                    case 4 -> productWithCategory.getCategoryName();
+                    default -> ""; // Will be filled with action buttons
+                };
+            }
+            
             @Override
             public boolean isCellEditable(int row, int column) {
-                return column == 5; // Only the actions column is editable
+                return column == 5 && isLoaded(row); // Only the actions column is editable
+            }
+            
+            @Override
+            public boolean isSortable(int column) {
+                return column != 5;
             }
             
             @Override
@@ -294,9 +400,12 @@ public class ProductPanel extends DashboardLayout {
                 return String.class;
             }
         };
-        
-        productTable.setModel(model);
-        
+    }
+    
+    /**
+     * Set the renderers, widths and editor of the product table's columns.
+     */
+    private void setUpColumns() {
         // Set up custom renderer for stock column that highlights low stock
         productTable.getColumnModel().getColumn(3).setCellRenderer(new StockLevelRenderer());
         
@@ -380,7 +489,6 @@ public class ProductPanel extends DashboardLayout {
                         "Success",
                         JOptionPane.INFORMATION_MESSAGE
                     );
-                    loadProducts();
                 } else {
                     JOptionPane.showMessageDialog(
                         this,
@@ -396,6 +504,13 @@ public class ProductPanel extends DashboardLayout {
                     "Error",
                     JOptionPane.ERROR_MESSAGE
                 );
+            } catch (DatabaseException ex) {
+                JOptionPane.showMessageDialog(
+                    this,
+                    "Error: Product could not be deleted. " + ex.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE
+                );
             }
         }
     }
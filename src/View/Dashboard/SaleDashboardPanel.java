@@ -1,6 +1,7 @@
 package View.Dashboard;
 
 import Controller.SaleController;
+import Model.SalesTotals;
 import Support.Router;
 import Support.UIConstants;
 import View.Layout.DashboardLayout;
@@ -11,10 +12,12 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import com.toedter.calendar.JDateChooser;
 
 /**
@@ -30,6 +33,10 @@ public class SaleDashboardPanel extends DashboardLayout {
     private JPanel customDatePanel;
     private JLabel totalAmountValueLabel;
     private JLabel totalSalesValueLabel;
+    private JLabel averageSaleValueLabel;
+    private JPanel cardsPanel;
+    // Totals still loading, dropped when another filter is applied
+    private CompletableFuture<SalesTotals> statisticsLoad;
 
     /**
      * Constructor for SaleDashboardPanel.
@@ -72,7 +79,7 @@ public class SaleDashboardPanel extends DashboardLayout {
         mainPanel.add(Box.createRigidArea(new Dimension(0, UIConstants.SECTION_SPACING)));
 
         // Add statistics cards
-        JPanel cardsPanel = createStatisticsCardsPanel();
+        cardsPanel = createStatisticsCardsPanel();
         mainPanel.add(cardsPanel);
 
         contentPanel.add(mainPanel, BorderLayout.CENTER);
@@ -258,7 +265,7 @@ public class SaleDashboardPanel extends DashboardLayout {
      * @return The statistics cards panel
      */
     private JPanel createStatisticsCardsPanel() {
-        JPanel cardsPanel = new JPanel(new GridLayout(1, 2, 20, 0));
+        JPanel cardsPanel = new JPanel(new GridLayout(1, 3, 20, 0));
         cardsPanel.setBackground(Color.WHITE);
         cardsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
 
@@ -270,8 +277,13 @@ public class SaleDashboardPanel extends DashboardLayout {
         JPanel totalSalesCard = createCard("Total Sales", "0", UIConstants.SUCCESS_COLOR);
         totalSalesValueLabel = (JLabel) ((JPanel) totalSalesCard.getComponent(1)).getComponent(0);
 
+        // Average Sale Card
+        JPanel averageSaleCard = createCard("Average Sale", "$0.00", UIConstants.ACCENT_COLOR);
+        averageSaleValueLabel = (JLabel) ((JPanel) averageSaleCard.getComponent(1)).getComponent(0);
+
         cardsPanel.add(totalAmountCard);
         cardsPanel.add(totalSalesCard);
+        cardsPanel.add(averageSaleCard);
 
         return cardsPanel;
     }
@@ -318,71 +330,52 @@ public class SaleDashboardPanel extends DashboardLayout {
 
     /**
      * Update the statistics based on the selected filter.
+     * Ranges are whole days, so the totals are read from the daily sales rollup.
      */
     private void updateStatistics() {
-        Date startDate = null;
-        Date endDate = null;
-        Calendar calendar = Calendar.getInstance();
+        LocalDate today = LocalDate.now();
+        LocalDate firstDay;
+        LocalDate lastDay;
 
         if (dailyRadioButton.isSelected()) {
-            // Set start date to beginning of today
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            startDate = calendar.getTime();
-
-            // Set end date to end of today
-            calendar.set(Calendar.HOUR_OF_DAY, 23);
-            calendar.set(Calendar.MINUTE, 59);
-            calendar.set(Calendar.SECOND, 59);
-            calendar.set(Calendar.MILLISECOND, 999);
-            endDate = calendar.getTime();
+            firstDay = today;
+            lastDay = today;
         } else if (monthlyRadioButton.isSelected()) {
-            // Set start date to beginning of current month
-            calendar.set(Calendar.DAY_OF_MONTH, 1);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            startDate = calendar.getTime();
-
-            // Set end date to end of current month
-            calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
-            calendar.set(Calendar.HOUR_OF_DAY, 23);
-            calendar.set(Calendar.MINUTE, 59);
-            calendar.set(Calendar.SECOND, 59);
-            calendar.set(Calendar.MILLISECOND, 999);
-            endDate = calendar.getTime();
+            firstDay = today.withDayOfMonth(1);
+            lastDay = today.with(TemporalAdjusters.lastDayOfMonth());
         } else {
             // Use custom date range
-            startDate = fromDateChooser.getDate();
-            
-            endDate = toDateChooser.getDate();
-            
-            // Set start date to beginning of day
-            calendar.setTime(startDate);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            startDate = calendar.getTime();
-            
-            // Set end date to end of day
-            calendar.setTime(endDate);
-            calendar.set(Calendar.HOUR_OF_DAY, 23);
-            calendar.set(Calendar.MINUTE, 59);
-            calendar.set(Calendar.SECOND, 59);
-            calendar.set(Calendar.MILLISECOND, 999);
-            endDate = calendar.getTime();
+            Date fromDate = fromDateChooser.getDate();
+            Date toDate = toDateChooser.getDate();
+            if (fromDate == null || toDate == null || fromDate.after(toDate)) {
+                JOptionPane.showMessageDialog(this, "Please select a valid date range", "Invalid Range", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            firstDay = toLocalDate(fromDate);
+            lastDay = toLocalDate(toDate);
+        }
+
+        if (statisticsLoad != null) {
+            statisticsLoad.cancel(true);
         }
 
-        // Fetch sales data from the controller
-        BigDecimal totalAmount = saleController.getTotalSalesAmount(startDate, endDate);
-        int totalSales = saleController.getTotalSalesCount(startDate, endDate);
+        // Fetch the range totals from the controller off the EDT
+        statisticsLoad = renderAsync(cardsPanel, () -> saleController.getSalesTotals(firstDay, lastDay), totals -> {
+            // Update the UI
+            totalAmountValueLabel.setText("$" + totals.getRevenue().toString());
+            totalSalesValueLabel.setText(String.valueOf(totals.getSaleCount()));
+            averageSaleValueLabel.setText("$" + totals.getAverage().toString());
+        });
+    }
 
-        // Update the UI
-        totalAmountValueLabel.setText("$" + totalAmount.toString());
-        totalSalesValueLabel.setText(String.valueOf(totalSales));
+    /**
+     * Get the local day of a date chosen in the date picker.
+     *
+     * @param date The chosen date
+     * @return The date in the system time zone
+     */
+    private LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
-} 
\ No newline at end of file
+}
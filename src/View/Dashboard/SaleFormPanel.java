@@ -45,6 +45,17 @@ public class SaleFormPanel extends DashboardLayout {
     @Override
     public void render() {
         super.render();
+        loadProducts();
+    }
+
+    /**
+     * Load the products into the dropdown off the EDT.
+     */
+    private void loadProducts() {
+        renderAsync(productComboBox, productController::getAllProductsWithCategories, products -> {
+            productComboBox.removeAllItems();
+            products.forEach(productComboBox::addItem);
+        });
     }
     
     @Override
@@ -186,11 +197,8 @@ public class SaleFormPanel extends DashboardLayout {
         JLabel productLabel = new JLabel("Select Product:");
         productLabel.setFont(UIConstants.TABLE_CONTENT_FONT);
         
-        // Load products
-        List<ProductWithCategory> products = productController.getAllProductsWithCategories();
-        
-        // Create a custom renderer for the product dropdown
-        productComboBox = new JComboBox<>(products.toArray(new ProductWithCategory[0]));
+        // Create a custom renderer for the product dropdown, filled once the products have loaded
+        productComboBox = new JComboBox<>();
         productComboBox.setRenderer(new DefaultListCellRenderer() {
             @Override
             public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
@@ -1,20 +1,24 @@
 package View.Dashboard;
 
 import Controller.SaleController;
+import Event.SaleChanged;
 import Model.SaleWithStaff;
+import Repository.SaleRepository.SaleSort;
 import Support.Router;
 import Support.SessionManager;
 import Support.UIConstants;
+import View.LazyTableModel;
 import View.Layout.DashboardLayout;
 import View.NavigatePanel;
+import View.SearchField;
 
 import java.awt.*;
 import java.awt.event.*;
 import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.concurrent.Callable;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 
 /**
  * Panel for viewing and managing sales.
@@ -22,8 +26,9 @@ import javax.swing.table.DefaultTableModel;
 public class SalePanel extends DashboardLayout {
     private final SaleController saleController;
     private JTable saleTable;
-    private JTextField searchField;
+    private SearchField searchField;
     private JComboBox<String> durationComboBox;
+    private LazyTableModel<SaleWithStaff> saleModel;
     private final SimpleDateFormat dateFormat;
 
     /**
@@ -39,6 +44,17 @@ public class SalePanel extends DashboardLayout {
     public void render() {
         super.render();
         loadSales();
+
+        // Re-read the rows in view when sales are made or deleted elsewhere
+        listen(SaleChanged.class, event -> saleModel.refresh());
+    }
+
+    @Override
+    public void onNavigatedAway() {
+        super.onNavigatedAway();
+        if (saleModel != null) {
+            saleModel.cancel();
+        }
     }
 
     @Override
@@ -122,7 +138,7 @@ public class SalePanel extends DashboardLayout {
         searchIcon.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         searchIcon.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
 
-        searchField = new JTextField(15);
+        searchField = new SearchField(15);
         searchField.setBorder(null);
         searchField.setFont(UIConstants.TABLE_CONTENT_FONT);
 
@@ -226,6 +242,13 @@ public class SalePanel extends DashboardLayout {
                 new Dimension(saleTable.getTableHeader().getPreferredSize().width, UIConstants.TABLE_HEADER_HEIGHT)
         );
 
+        // Rows are read a page at a time as the table scrolls, so the columns are set up once
+        saleModel = createSaleModel();
+        saleModel.install(saleTable);
+        saleModel.setErrorHandler(error -> JOptionPane.showMessageDialog(
+                null, "Error loading sales: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+        setUpColumns();
+
         JScrollPane scrollPane = new JScrollPane(saleTable);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
         scrollPane.getViewport().setBackground(Color.WHITE);
@@ -235,83 +258,108 @@ public class SalePanel extends DashboardLayout {
         saleContent.add(tablePanel, BorderLayout.CENTER);
 
         // Add search and filter listeners
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                filterSales();
-            }
-        });
+        searchField.onSearch(this::filterSales, saleModel::show, error -> JOptionPane.showMessageDialog(
+                null, "Error searching sales: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
 
-        durationComboBox.addActionListener(e -> filterSales());
+        durationComboBox.addActionListener(e -> searchField.searchNow());
 
         return saleContent;
     }
 
     /**
-     * Load and display all sales.
+     * Load and display the first page of sales, reading it off the EDT.
      */
     private void loadSales() {
-        List<SaleWithStaff> saleList = saleController.getAllSalesWithStaff();
-        updateTableModel(saleList);
+        renderAsync(saleTable, saleModel.load(salesSource("")), window -> {
+            // A search typed while the list was loading wins
+            if (searchField.getText().isBlank()) {
+                saleModel.show(window);
+            }
+        });
     }
 
     /**
-     * Filter sales based on search term and selected duration.
+     * Build the search for sales matching the search term and the selected duration.
+     *
+     * @param searchTerm The search term
+     * @return The search to run off the EDT
      */
-    private void filterSales() {
-        String searchTerm = searchField.getText();
+    private Callable<LazyTableModel.Window<SaleWithStaff>> filterSales(String searchTerm) {
         String duration = (String) durationComboBox.getSelectedItem();
 
-        List<SaleWithStaff> filteredSales;
-        
-        if (searchTerm != null && !searchTerm.isEmpty()) {
-            filteredSales = saleController.searchSales(searchTerm);
-        } else {
-            filteredSales = saleController.getAllSalesWithStaff();
-        }
-
         // TODO: Implement date filtering based on selected duration
 
-        updateTableModel(filteredSales);
+        return saleModel.load(salesSource(searchTerm));
     }
 
     /**
-     * Update the table model with the provided sale list.
-     * 
-     * @param saleList The list of sales to display
+     * Read the sales matching a search term from the database, a range at a time, in the order of the
+     * column header clicked last.
+     *
+     * @param searchTerm The search term, or empty for every sale
+     * @return The source of the rows
      */
-    private void updateTableModel(List<SaleWithStaff> saleList) {
-        // Create table model
-        DefaultTableModel model = new DefaultTableModel() {
+    private LazyTableModel.Source<SaleWithStaff> salesSource(String searchTerm) {
+        String term = searchTerm.isEmpty() ? null : searchTerm;
+        return new LazyTableModel.Source<>() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 5; // Only the Actions column is editable
+            public int count() {
+                return saleController.countSales(term);
+            }
+
+            @Override
+            public List<SaleWithStaff> fetch(int offset, int limit, RowSorter.SortKey sortKey) {
+                if (sortKey == null) {
+                    return saleController.getSalesWithStaffRange(term, null, false, offset, limit);
+                }
+
+                SaleSort sort = switch (sortKey.getColumn()) {
+                    case 0 -> SaleSort.ID;
+                    case 1 -> SaleSort.DATE;
+                    default -> SaleSort.TOTAL;
+                };
+                boolean ascending = sortKey.getSortOrder() == SortOrder.ASCENDING;
+                return saleController.getSalesWithStaffRange(term, sort, ascending, offset, limit);
             }
         };
+    }
 
-        // Add columns
-        model.addColumn("ID");
-        model.addColumn("Date");
-        model.addColumn("Staff");
-        model.addColumn("Items");
-        model.addColumn("Total");
-        model.addColumn("Actions");
-
-        // Add rows
-        for (SaleWithStaff sale : saleList) {
-            model.addRow(new Object[]{
-                sale.getSale().getId(),
-                dateFormat.format(sale.getSale().getDate()),
-                sale.getStaffName(),
-                "View Details", // Placeholder, we would need to fetch details for this
-                "$" + sale.getSale().getTotal(),
-                "Actions" // Placeholder for the buttons
-            });
-        }
+    /**
+     * Create the model of the sale table.
+     *
+     * @return The model
+     */
+    private LazyTableModel<SaleWithStaff> createSaleModel() {
+        return new LazyTableModel<>("ID", "Date", "Staff", "Items", "Total", "Actions") {
+            @Override
+            protected Object getColumnValue(SaleWithStaff sale, int column) {
+                return switch (column) {
+                    case 0 -> sale.getSale().getId();
+                    case 1 -> dateFormat.format(sale.getSale().getDate());
+                    case 2 -> sale.getStaffName();
+                    case 3 -> "View Details"; // Placeholder, we would need to fetch details for this
+                    case 4 -> "$" + sale.getSale().getTotal();
+                    default -> "Actions"; // Placeholder for the buttons
+                };
+            }
 
-        // Set the model
-        saleTable.setModel(model);
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == 5 && isLoaded(row); // Only the Actions column is editable
+            }
+
+            @Override
+            public boolean isSortable(int column) {
+                // The columns with an index to read them in order
+                return column == 0 || column == 1 || column == 4;
+            }
+        };
+    }
 
+    /**
+     * Set the widths, renderers and editor of the sale table's columns.
+     */
+    private void setUpColumns() {
         // Set column widths
         saleTable.getColumnModel().getColumn(0).setPreferredWidth(50); // ID
         saleTable.getColumnModel().getColumn(1).setPreferredWidth(150); // Date
@@ -349,7 +397,6 @@ public class SalePanel extends DashboardLayout {
         if (confirm == JOptionPane.YES_OPTION) {
             saleController.deleteSale(saleId);
             JOptionPane.showMessageDialog(null, "Sale deleted successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
-            loadSales();
         }
     }
 
@@ -8,6 +8,7 @@ import Support.Router;
 import Support.UIConstants;
 import View.Layout.DashboardLayout;
 import View.NavigatePanel;
+import View.Skeleton;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
@@ -62,114 +63,123 @@ public class StaffDetailsPanel extends DashboardLayout {
             UIConstants.CONTENT_PADDING
         ));
         
-        // Add a loading indicator initially
-        JLabel loadingLabel = new JLabel("Loading staff data...", JLabel.CENTER);
-        loadingLabel.setFont(UIConstants.SUBTITLE_FONT);
-        loadingLabel.setForeground(UIConstants.LIGHT_TEXT_COLOR);
-        mainPanel.add(loadingLabel, BorderLayout.CENTER);
-        
         contentPanel.add(mainPanel, BorderLayout.CENTER);
         
         return contentPanel;
     }
 
     /**
-     * Load the staff data and update the panel.
+     * Load the staff data off the EDT, with a skeleton in its place, and update the panel.
      */
     private void loadStaffData() {
         if (contentPanel == null || mainPanel == null) {
             return; // Not initialized yet
         }
         
-        try {
-            StaffWithExpenses staffWithExpenses = 
-                staffController.getStaffWithExpensesById(staff.getId())
-                .orElseThrow(() -> new IllegalArgumentException("Staff not found"));
-            
-            // Clear the main panel
-            mainPanel.removeAll();
-            
-            // Create the staff info panel
-            JPanel staffInfoPanel = setupStaffDetailsPanel(staffWithExpenses.getStaff());
-            mainPanel.add(staffInfoPanel, BorderLayout.NORTH);
-            
-            // Create expense table panel with title
-            expensePanel = new JPanel(new BorderLayout(10, 10));
-            expensePanel.setBackground(Color.WHITE);
-            expensePanel.setBorder(BorderFactory.createEmptyBorder(UIConstants.SECTION_SPACING, 0, 0, 0));
-            
-            // Create a title panel with heading and stats
-            JPanel expenseTitlePanel = new JPanel(new BorderLayout());
-            expenseTitlePanel.setBackground(Color.WHITE);
-            expenseTitlePanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 15, 0));
-            
-            JLabel expensesTitle = new JLabel("Expenses");
-            expensesTitle.setFont(new Font("Segoe UI", Font.BOLD, 18));
-            expensesTitle.setForeground(UIConstants.TEXT_COLOR);
-            
-            // Stats panel showing counts
-            JPanel statsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 0));
-            statsPanel.setBackground(Color.WHITE);
-            
-            JLabel totalCountLabel = new JLabel("Total: " + staffWithExpenses.getExpenseCount() + " expenses");
-            totalCountLabel.setFont(UIConstants.SUBTITLE_FONT);
-            totalCountLabel.setForeground(UIConstants.LIGHT_TEXT_COLOR);
-            
-            JLabel totalAmountLabel = new JLabel("Amount: $" + staffWithExpenses.getTotalExpenseAmount());
-            totalAmountLabel.setFont(UIConstants.BUTTON_FONT);
-            totalAmountLabel.setForeground(UIConstants.TEXT_COLOR);
-            
-            statsPanel.add(totalCountLabel);
-            statsPanel.add(totalAmountLabel);
-            
-            expenseTitlePanel.add(expensesTitle, BorderLayout.WEST);
-            expenseTitlePanel.add(statsPanel, BorderLayout.EAST);
-            
-            expensePanel.add(expenseTitlePanel, BorderLayout.NORTH);
-            
-            // Create the expense table
-            JTable expenseTable = createExpenseTable(staffWithExpenses);
-            JScrollPane scrollPane = new JScrollPane(expenseTable);
-            scrollPane.setBorder(BorderFactory.createEmptyBorder());
-            scrollPane.getViewport().setBackground(Color.WHITE);
-            
-            expensePanel.add(scrollPane, BorderLayout.CENTER);
-            
-            mainPanel.add(expensePanel, BorderLayout.CENTER);
-            
-            // Refresh the UI
-            contentPanel.revalidate();
-            contentPanel.repaint();
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            // Show error message
-            mainPanel.removeAll();
-            JPanel errorPanel = new JPanel(new BorderLayout());
-            errorPanel.setBackground(Color.WHITE);
-            
-            JLabel errorLabel = new JLabel("Error loading staff data: " + e.getMessage(), JLabel.CENTER);
-            errorLabel.setFont(UIConstants.SUBTITLE_FONT);
-            errorLabel.setForeground(UIConstants.DANGER_COLOR);
-            errorPanel.add(errorLabel, BorderLayout.CENTER);
-            
-            JButton retryButton = new JButton("Retry");
-            retryButton.setFont(UIConstants.BUTTON_FONT);
-            retryButton.setForeground(Color.WHITE);
-            retryButton.setBackground(UIConstants.PRIMARY_COLOR);
-            retryButton.addActionListener(evt -> loadStaffData());
-            
-            JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-            buttonPanel.setBackground(Color.WHITE);
-            buttonPanel.add(retryButton);
-            errorPanel.add(buttonPanel, BorderLayout.SOUTH);
-            
-            mainPanel.add(errorPanel, BorderLayout.CENTER);
-            
-            // Refresh the UI
-            contentPanel.revalidate();
-            contentPanel.repaint();
-        }
+        mainPanel.removeAll();
+        mainPanel.add(new Skeleton(mainPanel.getPreferredSize()), BorderLayout.CENTER);
+        mainPanel.revalidate();
+        
+        renderAsync(null, () -> staffController.getStaffWithExpensesById(staff.getId())
+                .orElseThrow(() -> new IllegalArgumentException("Staff not found")), this::showStaffData);
+    }
+
+    /**
+     * Show the staff member and their expenses.
+     *
+     * @param staffWithExpenses The staff member with their expenses
+     */
+    private void showStaffData(StaffWithExpenses staffWithExpenses) {
+        // Clear the main panel
+        mainPanel.removeAll();
+        
+        // Create the staff info panel
+        JPanel staffInfoPanel = setupStaffDetailsPanel(staffWithExpenses.getStaff());
+        mainPanel.add(staffInfoPanel, BorderLayout.NORTH);
+        
+        // Create expense table panel with title
+        expensePanel = new JPanel(new BorderLayout(10, 10));
+        expensePanel.setBackground(Color.WHITE);
+        expensePanel.setBorder(BorderFactory.createEmptyBorder(UIConstants.SECTION_SPACING, 0, 0, 0));
+        
+        // Create a title panel with heading and stats
+        JPanel expenseTitlePanel = new JPanel(new BorderLayout());
+        expenseTitlePanel.setBackground(Color.WHITE);
+        expenseTitlePanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 15, 0));
+        
+        JLabel expensesTitle = new JLabel("Expenses");
+        expensesTitle.setFont(new Font("Segoe UI", Font.BOLD, 18));
+        expensesTitle.setForeground(UIConstants.TEXT_COLOR);
+        
+        // Stats panel showing counts
+        JPanel statsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 0));
+        statsPanel.setBackground(Color.WHITE);
+        
+        JLabel totalCountLabel = new JLabel("Total: " + staffWithExpenses.getExpenseCount() + " expenses");
+        totalCountLabel.setFont(UIConstants.SUBTITLE_FONT);
+        totalCountLabel.setForeground(UIConstants.LIGHT_TEXT_COLOR);
+        
+        JLabel totalAmountLabel = new JLabel("Amount: $" + staffWithExpenses.getTotalExpenseAmount());
+        totalAmountLabel.setFont(UIConstants.BUTTON_FONT);
+        totalAmountLabel.setForeground(UIConstants.TEXT_COLOR);
+        
+        statsPanel.add(totalCountLabel);
+        statsPanel.add(totalAmountLabel);
+        
+        expenseTitlePanel.add(expensesTitle, BorderLayout.WEST);
+        expenseTitlePanel.add(statsPanel, BorderLayout.EAST);
+        
+        expensePanel.add(expenseTitlePanel, BorderLayout.NORTH);
+        
+        // Create the expense table
+        JTable expenseTable = createExpenseTable(staffWithExpenses);
+        JScrollPane scrollPane = new JScrollPane(expenseTable);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        scrollPane.getViewport().setBackground(Color.WHITE);
+        
+        expensePanel.add(scrollPane, BorderLayout.CENTER);
+        
+        mainPanel.add(expensePanel, BorderLayout.CENTER);
+        
+        // Refresh the UI
+        contentPanel.revalidate();
+        contentPanel.repaint();
+    }
+
+    /**
+     * Show a failure to load the staff data in place of the data, with a retry button.
+     *
+     * @param e The failure
+     */
+    @Override
+    protected void onLoadFailed(Throwable e) {
+        e.printStackTrace();
+        // Show error message
+        mainPanel.removeAll();
+        JPanel errorPanel = new JPanel(new BorderLayout());
+        errorPanel.setBackground(Color.WHITE);
+        
+        JLabel errorLabel = new JLabel("Error loading staff data: " + e.getMessage(), JLabel.CENTER);
+        errorLabel.setFont(UIConstants.SUBTITLE_FONT);
+        errorLabel.setForeground(UIConstants.DANGER_COLOR);
+        errorPanel.add(errorLabel, BorderLayout.CENTER);
+        
+        JButton retryButton = new JButton("Retry");
+        retryButton.setFont(UIConstants.BUTTON_FONT);
+        retryButton.setForeground(Color.WHITE);
+        retryButton.setBackground(UIConstants.PRIMARY_COLOR);
+        retryButton.addActionListener(evt -> loadStaffData());
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttonPanel.setBackground(Color.WHITE);
+        buttonPanel.add(retryButton);
+        errorPanel.add(buttonPanel, BorderLayout.SOUTH);
+        
+        mainPanel.add(errorPanel, BorderLayout.CENTER);
+        
+        // Refresh the UI
+        contentPanel.revalidate();
+        contentPanel.repaint();
     }
 
     /**
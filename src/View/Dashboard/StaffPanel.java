@@ -1,16 +1,24 @@
 package View.Dashboard;
 
 import Controller.StaffController;
+import Event.ChangeEvent.Change;
+import Event.StaffChanged;
+import Exception.DatabaseException;
 import Model.Staff;
+import Repository.Page;
 import Support.Router;
 import Support.SessionManager;
 import Support.UIConstants;
 import View.DashboardPanel;
 import View.Layout.DashboardLayout;
 import View.NavigatePanel;
+import View.SearchField;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
@@ -21,7 +29,13 @@ import javax.swing.table.DefaultTableModel;
 public class StaffPanel extends DashboardLayout {
     private final StaffController staffController;
     private JTable staffTable;
-    private JTextField searchField;
+    private SearchField searchField;
+    private JButton loadMoreButton;
+    private DefaultTableModel staffModel;
+    // Last staff member loaded, the cursor for the next page
+    private Staff lastStaff;
+    // The next page while it is loading, dropped when a search or reload replaces the rows
+    private CompletableFuture<Page<Staff>> nextPage;
 
 
     public StaffPanel() {
@@ -35,6 +49,25 @@ public class StaffPanel extends DashboardLayout {
     {
         super.render();
         loadStaff();
+
+        // Patch the rows other views change; new staff show up when the list is next opened
+        listen(StaffChanged.class, event -> {
+            if (event.getChange() == Change.DELETED) {
+                removeRows(staffModel, event.getIds());
+            } else if (event.getChange() == Change.UPDATED) {
+                for (int staffId : shownIds(staffModel, event.getIds())) {
+                    Optional<Staff> staff = staffController.getStaffById(staffId);
+                    if (staff.isPresent()) {
+                        int row = findRow(staffModel, staffId);
+                        staffModel.setValueAt(staff.get().getName(), row, 1);
+                        staffModel.setValueAt(staff.get().getPosition(), row, 2);
+                        staffModel.setValueAt(staff.get().getUserName(), row, 3);
+                    } else {
+                        removeRows(staffModel, List.of(staffId));
+                    }
+                }
+            }
+        });
     }
 
     @Override
@@ -94,7 +127,8 @@ public class StaffPanel extends DashboardLayout {
         searchIcon.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         searchIcon.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
 
-        searchField = new JTextField(15);
+        // Searches the in-memory index, so a short pause is enough
+        searchField = new SearchField(15, 150);
         searchField.setBorder(null);
         searchField.setFont(UIConstants.TABLE_CONTENT_FONT);
 
@@ -179,20 +213,14 @@ public class StaffPanel extends DashboardLayout {
 
         tablePanel.add(scrollPane, BorderLayout.CENTER);
 
+        loadMoreButton = createLoadMoreButton(this::loadMoreStaff);
+        tablePanel.add(loadMoreButton, BorderLayout.SOUTH);
+
         contentPanel.add(tablePanel, BorderLayout.CENTER);
 
         // Add search listener
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                String searchText = searchField.getText().trim();
-                if (searchText.isEmpty()) {
-                    loadStaff();
-                } else {
-                    searchStaff(searchText);
-                }
-            }
-        });
+        searchField.onSearch(this::searchStaff, this::showStaff, error -> JOptionPane.showMessageDialog(
+                this, "Error searching staff: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
         return contentPanel;
     }
 
@@ -256,7 +284,8 @@ public class StaffPanel extends DashboardLayout {
         searchIcon.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         searchIcon.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
 
-        searchField = new JTextField(15);
+        // Searches the in-memory index, so a short pause is enough
+        searchField = new SearchField(15, 150);
         searchField.setBorder(null);
         searchField.setFont(UIConstants.TABLE_CONTENT_FONT);
 
@@ -344,51 +373,75 @@ public class StaffPanel extends DashboardLayout {
         staffContent.add(tablePanel, BorderLayout.CENTER);
 
         // Add search listener
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                String searchText = searchField.getText().trim();
-                if (searchText.isEmpty()) {
-                    loadStaff();
-                } else {
-                    searchStaff(searchText);
-                }
-            }
-        });
+        searchField.onSearch(this::searchStaff, this::showStaff, error -> JOptionPane.showMessageDialog(
+                this, "Error searching staff: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
 
         return staffContent;
     }
 
     /**
-     * Load the staff from the database.
+     * Load the first page of staff from the database off the EDT.
      */
     private void loadStaff() {
-        List<Staff> staff = staffController.getAllStaff();
-        updateTableModel(staff);
+        renderAsync(staffTable, () -> staffController.getStaffPage(null), page -> {
+            // A search typed while the list was loading wins
+            if (searchField.getText().isBlank()) {
+                showStaff(page);
+            }
+        });
+    }
+
+    /**
+     * Show a page of staff, replacing the table contents.
+     *
+     * @param page The staff to show
+     */
+    private void showStaff(Page<Staff> page) {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+        }
+        updateTableModel(page.getItems());
+        showPage(page);
+    }
+
+    /**
+     * Read the next page of staff off the EDT and append it to the table.
+     */
+    private void loadMoreStaff() {
+        Staff after = lastStaff;
+        loadMoreButton.setEnabled(false);
+        nextPage = renderAsync(null, () -> staffController.getStaffPage(after), page -> {
+            addRows(page.getItems());
+            showPage(page);
+        });
+        nextPage.whenComplete((page, error) -> SwingUtilities.invokeLater(() -> loadMoreButton.setEnabled(true)));
+    }
+
+    /**
+     * Remember where a page ended and offer the next one if there is more.
+     *
+     * @param page The page just displayed
+     */
+    private void showPage(Page<Staff> page) {
+        if (page.getLast() != null) {
+            lastStaff = page.getLast();
+        }
+        loadMoreButton.setVisible(page.hasMore());
     }
 
     /**
-     * Search for staff matching the search text.
+     * Build the search for staff matching the search text.
      *
      * @param searchText The text to search for
+     * @return The search to run off the EDT
      */
-    private void searchStaff(String searchText) {
-        List<Staff> staffList = staffController.getAllStaff();
-
-        if (searchText != null && !searchText.trim().isEmpty()) {
-            String searchTerm = searchText.toLowerCase().trim();
-
-            // Filter the staff list based on the search term
-            staffList = staffList.stream()
-                    .filter(staff ->
-                            staff.getName().toLowerCase().contains(searchTerm) ||
-                                    staff.getPosition().toLowerCase().contains(searchTerm) ||
-                                    staff.getUserName().toLowerCase().contains(searchTerm) ||
-                                    staff.getRole().toLowerCase().contains(searchTerm))
-                    .toList();
+    private Callable<Page<Staff>> searchStaff(String searchText) {
+        if (searchText.isEmpty()) {
+            return () -> staffController.getStaffPage(null);
         }
 
-        updateTableModel(staffList);
+        // Match name, position, username and role through the search index
+        return () -> Page.all(staffController.searchStaff(searchText));
     }
 
     /**
@@ -399,26 +452,17 @@ public class StaffPanel extends DashboardLayout {
     private void updateTableModel(List<Staff> staffList) {
         // Create the table model
         String[] columnNames = {"ID", "Name", "Position", "Username", "Actions"};
-        Object[][] data = new Object[staffList.size()][columnNames.length];
-
-        // Populate the data
-        for (int i = 0; i < staffList.size(); i++) {
-            Staff staff = staffList.get(i);
-            data[i][0] = staff.getId();
-            data[i][1] = staff.getName();
-            data[i][2] = staff.getPosition();
-            data[i][3] = staff.getUserName();
-            data[i][4] = ""; // Will be replaced with buttons
-        }
 
-        DefaultTableModel model = new DefaultTableModel(data, columnNames) {
+        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return column == 4; // Only make the actions column editable
             }
         };
 
+        staffModel = model;
         staffTable.setModel(model);
+        addRows(staffList);
 
         // Set relative column widths as percentages
         int totalWidth = staffTable.getParent().getWidth();
@@ -440,6 +484,23 @@ public class StaffPanel extends DashboardLayout {
         staffTable.getColumnModel().getColumn(0).setCellRenderer(centerRenderer);
     }
 
+    /**
+     * Append staff to the current table model.
+     *
+     * @param staffList The staff to append
+     */
+    private void addRows(List<Staff> staffList) {
+        for (Staff staff : staffList) {
+            staffModel.addRow(new Object[]{
+                staff.getId(),
+                staff.getName(),
+                staff.getPosition(),
+                staff.getUserName(),
+                "" // Will be replaced with buttons
+            });
+        }
+    }
+
     /**
      * Delete a staff member.
      *
@@ -448,13 +509,13 @@ public class StaffPanel extends DashboardLayout {
     private void deleteStaff(int staffId) {
         try {
             boolean deleted = staffController.deleteStaff(staffId);
-            if (deleted) {
-                loadStaff();
-            } else {
+            if (!deleted) {
                 JOptionPane.showMessageDialog(this, "Error: Staff could not be deleted.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         } catch (IllegalArgumentException ex) {
             JOptionPane.showMessageDialog(this, "Invalid input: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (DatabaseException ex) {
+            JOptionPane.showMessageDialog(this, "Error: Staff could not be deleted. " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
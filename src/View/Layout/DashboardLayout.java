@@ -1,12 +1,18 @@
 package View.Layout;
 
 import Model.Staff;
+import Support.EventBus;
 import Support.Router;
 import Support.SessionManager;
 import Support.UIConstants;
 import View.NavigatePanel;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 
 public class DashboardLayout extends NavigatePanel {
     private final JButton btnStaff;
@@ -17,6 +23,8 @@ public class DashboardLayout extends NavigatePanel {
     private final JButton btnSaleDashboard;
     private final JButton btnEditProfile;
     private JButton currentSelectedButton;
+    // Change events the panel listens to while it is shown
+    private final List<EventBus.Subscription> subscriptions = new ArrayList<>();
 
     public DashboardLayout() {
         super();
@@ -137,8 +145,94 @@ public class DashboardLayout extends NavigatePanel {
         button.setPreferredSize(new Dimension(180, 40));
     }
 
+    /**
+     * Create the "Load more" button shown under a paginated table.
+     * The button starts hidden; panels show it while the last page they loaded reports more rows.
+     */
+    protected JButton createLoadMoreButton(Runnable loadMore) {
+        JButton button = new JButton("Load more");
+        button.setFont(UIConstants.BUTTON_FONT);
+        button.setForeground(UIConstants.PRIMARY_COLOR);
+        button.setBackground(UIConstants.SECONDARY_COLOR);
+        button.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(1, 0, 0, 0, UIConstants.BORDER_COLOR),
+                BorderFactory.createEmptyBorder(UIConstants.BUTTON_PADDING_V, 0, UIConstants.BUTTON_PADDING_V, 0)
+        ));
+        button.setFocusPainted(false);
+        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        button.setVisible(false);
+        button.addActionListener(e -> loadMore.run());
+        return button;
+    }
+
+    /**
+     * Listen for a change event on the event dispatch thread until the panel is navigated away from.
+     * Panels call this from render, so the table they patch is the one they are showing.
+     */
+    protected <E> void listen(Class<E> type, Consumer<? super E> handler) {
+        subscriptions.add(EventBus.subscribeOnEdt(type, handler));
+    }
+
+    @Override
+    public void onNavigatedAway() {
+        subscriptions.forEach(EventBus.Subscription::cancel);
+        subscriptions.clear();
+        super.onNavigatedAway();
+    }
+
+    /**
+     * Find the row showing a record, by the ID in the first column.
+     * The model is null until the panel's first load has been applied, and then shows nothing.
+     *
+     * @return The row index, or -1 if the record is not shown
+     */
+    protected static int findRow(DefaultTableModel model, int id) {
+        if (model == null) {
+            return -1;
+        }
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (model.getValueAt(row, 0) instanceof Integer rowId && rowId == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove the rows showing the given records, by the ID in the first column.
+     */
+    protected static void removeRows(DefaultTableModel model, Collection<Integer> ids) {
+        if (model == null) {
+            return;
+        }
+        for (int row = model.getRowCount() - 1; row >= 0; row--) {
+            if (model.getValueAt(row, 0) instanceof Integer rowId && ids.contains(rowId)) {
+                model.removeRow(row);
+            }
+        }
+    }
+
+    /**
+     * Get the IDs of the records shown among the given ones.
+     */
+    protected static List<Integer> shownIds(DefaultTableModel model, Collection<Integer> ids) {
+        List<Integer> shown = new ArrayList<>();
+        if (model == null) {
+            return shown;
+        }
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (model.getValueAt(row, 0) instanceof Integer rowId && ids.contains(rowId)) {
+                shown.add(rowId);
+            }
+        }
+        return shown;
+    }
+
     @Override
     public void render() {
+        // Drop the listeners and loads of an earlier render of this panel
+        onNavigatedAway();
+
         // Content panel
         NavigatePanel contentPanel = getContentPanel();
         contentPanel.setPreferredSize(new Dimension(1000, 1000));
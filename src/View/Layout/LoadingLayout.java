@@ -0,0 +1,63 @@
+package View.Layout;
+
+import Support.Router;
+import View.NavigatePanel;
+import View.Skeleton;
+import java.awt.*;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import javax.swing.*;
+
+/**
+ * Stand-in for a route that shows one record looked up by ID, such as a details page or an edit form.
+ * The dashboard paints straight away with a {@link Skeleton} for content while the record is read off the EDT,
+ * then the router swaps in the panel built from it.
+ *
+ * @param <T> The record type
+ */
+public class LoadingLayout<T> extends DashboardLayout {
+    private final Callable<Optional<T>> load;
+    private final Function<? super T, ? extends NavigatePanel> open;
+    private final String notFoundMessage;
+    private NavigatePanel contentPanel;
+
+    /**
+     * Create the stand-in for a route.
+     *
+     * @param load Reads the record; must not touch Swing components
+     * @param open Builds the route's panel from the record, on the EDT
+     * @param notFoundMessage Shown when there is no such record
+     */
+    public LoadingLayout(Callable<Optional<T>> load, Function<? super T, ? extends NavigatePanel> open,
+                         String notFoundMessage) {
+        super();
+        this.load = load;
+        this.open = open;
+        this.notFoundMessage = notFoundMessage;
+    }
+
+    @Override
+    public void render() {
+        super.render();
+        renderAsync(null, load, found -> {
+            if (found.isEmpty()) {
+                contentPanel.removeAll();
+                contentPanel.repaint();
+                JOptionPane.showMessageDialog(this, notFoundMessage, "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            Router.replace(this, open.apply(found.get()));
+        });
+    }
+
+    @Override
+    public NavigatePanel getContentPanel() {
+        contentPanel = new NavigatePanel();
+        contentPanel.setLayout(new BorderLayout());
+        contentPanel.setBackground(Color.WHITE);
+        contentPanel.add(new Skeleton(new Dimension(1000, 1000)), BorderLayout.CENTER);
+        return contentPanel;
+    }
+}
@@ -0,0 +1,532 @@
+package View;
+
+import Support.Async;
+import Support.CancellationScope;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model that reads its rows a page at a time as the table scrolls, for lists too long to load whole.
+ * Only the row count and the first page are read up front. A row the table paints before its page is loaded
+ * shows empty while the page is read off the EDT, and only the most recently used pages are kept, so the model
+ * holds a bounded number of rows however long the list is.
+ * <p>
+ * Ordering and filtering are left to the {@link Source}, normally a query. Clicking a sortable column header
+ * asks the source for the rows in that order through the model's {@link RowSorter}, which keeps the view in
+ * model order. Changing the rows never changes the columns, so the table keeps its renderers, editors and widths.
+ *
+ * @param <T> The row type
+ */
+public abstract class LazyTableModel<T> extends AbstractTableModel {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_PAGES = 20;
+    // Pages read at once; the rest wait, newest request first, since the older ones have likely scrolled away
+    private static final int MAX_CONCURRENT_FETCHES = 2;
+
+    /**
+     * Where the rows come from, such as a query with its filters bound. Both methods are called off the EDT.
+     *
+     * @param <T> The row type
+     */
+    public interface Source<T> {
+        /**
+         * Count the rows.
+         *
+         * @return The number of rows
+         * @throws Exception If the rows cannot be counted
+         */
+        int count() throws Exception;
+
+        /**
+         * Read a range of rows.
+         *
+         * @param offset The position of the first row
+         * @param limit The maximum number of rows
+         * @param sortKey The column and direction to order by, or null for the source's own order
+         * @return The rows, in order
+         * @throws Exception If the rows cannot be read
+         */
+        List<T> fetch(int offset, int limit, RowSorter.SortKey sortKey) throws Exception;
+    }
+
+    /**
+     * The row count and first pages of a source, read off the EDT by {@link #load(Source)} and shown on it
+     * by {@link #show(Window)}.
+     *
+     * @param <T> The row type
+     */
+    public static final class Window<T> {
+        private final Source<T> source;
+        private final RowSorter.SortKey sortKey;
+        private final int rowCount;
+        private final Map<Integer, List<T>> pages;
+
+        private Window(Source<T> source, RowSorter.SortKey sortKey, int rowCount, Map<Integer, List<T>> pages) {
+            this.source = source;
+            this.sortKey = sortKey;
+            this.rowCount = rowCount;
+            this.pages = pages;
+        }
+    }
+
+    private final String[] columnNames;
+    private final int pageSize;
+    private final int maxPages;
+    // Loaded pages by index, least recently used first
+    private final Map<Integer, List<T>> pages;
+    private final Map<Integer, CompletableFuture<?>> fetching = new HashMap<>();
+    // Pages asked for and waiting their turn, oldest request first
+    private final LinkedHashSet<Integer> queued = new LinkedHashSet<>();
+    // Pages that failed to load, not asked for again until the rows are reloaded
+    private final Set<Integer> failed = new HashSet<>();
+    private final Sorter sorter = new Sorter();
+    private Source<T> source;
+    private RowSorter.SortKey sortKey;
+    private int rowCount;
+    // Counts the windows shown, so pages read for an earlier one are dropped
+    private int generation;
+    private CompletableFuture<Window<T>> reload;
+    private Consumer<Throwable> errorHandler = error -> {};
+
+    /**
+     * Create a model with the default page size and window.
+     *
+     * @param columnNames The column names
+     */
+    protected LazyTableModel(String... columnNames) {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, columnNames);
+    }
+
+    /**
+     * Create a model.
+     *
+     * @param pageSize The number of rows read at once
+     * @param maxPages The number of pages kept loaded
+     * @param columnNames The column names
+     */
+    protected LazyTableModel(int pageSize, int maxPages, String... columnNames) {
+        this.columnNames = columnNames.clone();
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > LazyTableModel.this.maxPages;
+            }
+        };
+    }
+
+    /**
+     * Get the value of a column for a row. {@link #listSource} also calls this off the EDT to sort,
+     * so it must only read the row.
+     *
+     * @param row The row
+     * @param column The column index
+     * @return The value shown in the cell
+     */
+    protected abstract Object getColumnValue(T row, int column);
+
+    /**
+     * Check whether the rows can be ordered by a column. Only sortable columns react to header clicks.
+     *
+     * @param column The column index
+     * @return True if the source can order by the column
+     */
+    public boolean isSortable(int column) {
+        return false;
+    }
+
+    /**
+     * Show this model in a table, with the sorter that asks the source for the rows in header order.
+     *
+     * @param table The table
+     */
+    public void install(JTable table) {
+        table.setModel(this);
+        table.setRowSorter(sorter);
+    }
+
+    /**
+     * Set what is done with failures to read rows in the background, which are reported on the EDT.
+     *
+     * @param errorHandler Receives the failures
+     */
+    public void setErrorHandler(Consumer<Throwable> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Build the read of a new source's row count and first page, in the current order.
+     *
+     * @param source The source
+     * @return The read, to run off the EDT and pass to {@link #show(Window)}
+     */
+    public Callable<Window<T>> load(Source<T> source) {
+        return read(source, sortKey, List.of(0));
+    }
+
+    /**
+     * Replace the rows with a window read by {@link #load(Source)}. Reads still running for the old rows are
+     * cancelled.
+     *
+     * @param window The window
+     */
+    public void show(Window<T> window) {
+        cancel();
+        generation++;
+        failed.clear();
+        pages.clear();
+        pages.putAll(window.pages);
+
+        boolean sortChanged = !Objects.equals(sortKey, window.sortKey);
+        source = window.source;
+        sortKey = window.sortKey;
+        rowCount = window.rowCount;
+
+        fireTableDataChanged();
+        if (sortChanged) {
+            sorter.sortOrderChanged();
+        }
+    }
+
+    /**
+     * Read the row count and the loaded pages again, after the rows changed. The rows shown stay until the
+     * new ones arrive.
+     */
+    public void refresh() {
+        if (source != null) {
+            reload(source, sortKey, pages.isEmpty() ? List.of(0) : pages.keySet());
+        }
+    }
+
+    /**
+     * Stop the reads still running, for example when the table is no longer shown.
+     */
+    public void cancel() {
+        if (reload != null) {
+            reload.cancel(true);
+            reload = null;
+        }
+        for (CompletableFuture<?> fetch : fetching.values()) {
+            fetch.cancel(true);
+        }
+        fetching.clear();
+        queued.clear();
+    }
+
+    /**
+     * Get a row, asking for its page if it is not loaded.
+     *
+     * @param row The row index
+     * @return The row, or null until its page has been read
+     */
+    public T getRow(int row) {
+        int index = row / pageSize;
+        List<T> page = pages.get(index);
+        if (page == null) {
+            request(index);
+            return null;
+        }
+
+        int position = row % pageSize;
+        return position < page.size() ? page.get(position) : null;
+    }
+
+    /**
+     * Check whether a row is loaded, without asking for it.
+     *
+     * @param row The row index
+     * @return True if the row can be read
+     */
+    public boolean isLoaded(int row) {
+        List<T> page = pages.get(row / pageSize);
+        return page != null && row % pageSize < page.size();
+    }
+
+    /**
+     * Build a source over rows already found another way, such as an in-memory search. The rows are found again
+     * each time the model counts them, so {@link #refresh()} picks up changes, and sorted on the column values
+     * once per count and order, so each page is only a slice of the sorted rows.
+     *
+     * @param rows Finds the rows, off the EDT
+     * @return The source
+     */
+    public Source<T> listSource(Callable<List<T>> rows) {
+        return new Source<>() {
+            // Guarded by this; pages are fetched concurrently
+            private List<T> found = List.of();
+            private RowSorter.SortKey sortedBy;
+            private List<T> sorted = List.of();
+
+            @Override
+            public int count() throws Exception {
+                List<T> read = List.copyOf(rows.call());
+                synchronized (this) {
+                    found = read;
+                    sortedBy = null;
+                    sorted = read;
+                }
+                return read.size();
+            }
+
+            @Override
+            public List<T> fetch(int offset, int limit, RowSorter.SortKey sortKey) {
+                List<T> ordered;
+                synchronized (this) {
+                    if (!Objects.equals(sortedBy, sortKey)) {
+                        sorted = sort(found, sortKey);
+                        sortedBy = sortKey;
+                    }
+                    ordered = sorted;
+                }
+                return List.copyOf(ordered.subList(Math.min(offset, ordered.size()), Math.min(offset + limit, ordered.size())));
+            }
+        };
+    }
+
+    /**
+     * Sort rows on the values of a column.
+     *
+     * @param rows The rows
+     * @param sortKey The column and direction, or null to keep the rows in their order
+     * @return The sorted rows
+     */
+    private List<T> sort(List<T> rows, RowSorter.SortKey sortKey) {
+        if (sortKey == null) {
+            return rows;
+        }
+
+        List<T> sorted = new ArrayList<>(rows);
+        Comparator<T> order = Comparator.comparing(
+            row -> comparable(getColumnValue(row, sortKey.getColumn())),
+            Comparator.nullsFirst(Comparator.naturalOrder())
+        );
+        sorted.sort(sortKey.getSortOrder() == SortOrder.DESCENDING ? order.reversed() : order);
+        return sorted;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = getRow(rowIndex);
+        return row == null ? null : getColumnValue(row, columnIndex);
+    }
+
+    // Cell values are strings, numbers or null; anything else is ordered by its text
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        if (value == null || value instanceof Comparable<?>) {
+            return (Comparable<Object>) value;
+        }
+        return (Comparable<Object>) (Object) value.toString();
+    }
+
+    /**
+     * Read the rows again in another order, starting from the first page.
+     */
+    private void sortBy(RowSorter.SortKey key) {
+        if (source == null) {
+            boolean changed = !Objects.equals(sortKey, key);
+            sortKey = key;
+            if (changed) {
+                sorter.sortOrderChanged();
+            }
+            return;
+        }
+        reload(source, key, List.of(0));
+    }
+
+    private void reload(Source<T> source, RowSorter.SortKey key, Collection<Integer> indexes) {
+        if (reload != null) {
+            reload.cancel(true);
+        }
+
+        CompletableFuture<Window<T>> future = CancellationScope.supply(read(source, key, indexes));
+        reload = future;
+        Async.onEdt(future, window -> {
+            if (future == reload) {
+                reload = null;
+                show(window);
+            }
+        }, error -> {
+            if (future == reload) {
+                reload = null;
+                errorHandler.accept(error);
+            }
+        });
+    }
+
+    private Callable<Window<T>> read(Source<T> source, RowSorter.SortKey key, Collection<Integer> indexes) {
+        List<Integer> wanted = List.copyOf(indexes);
+        return () -> {
+            int count = source.count();
+            Map<Integer, List<T>> read = new HashMap<>();
+            for (int index : wanted) {
+                if (index * pageSize < count) {
+                    read.put(index, source.fetch(index * pageSize, pageSize, key));
+                }
+            }
+            return new Window<>(source, key, count, read);
+        };
+    }
+
+    /**
+     * Queue a page to be read, as the most recent request.
+     */
+    private void request(int index) {
+        if (source == null || fetching.containsKey(index) || failed.contains(index)) {
+            return;
+        }
+
+        queued.remove(index);
+        queued.add(index);
+        // A table shows a page or two, so requests older than a full window have scrolled out of view
+        while (queued.size() > maxPages) {
+            queued.removeFirst();
+        }
+        fetchQueued();
+    }
+
+    private void fetchQueued() {
+        while (fetching.size() < MAX_CONCURRENT_FETCHES && !queued.isEmpty()) {
+            fetch(queued.removeLast());
+        }
+    }
+
+    private void fetch(int index) {
+        Source<T> from = source;
+        RowSorter.SortKey key = sortKey;
+        int expected = generation;
+
+        CompletableFuture<List<T>> future = CancellationScope.supply(() -> from.fetch(index * pageSize, pageSize, key));
+        fetching.put(index, future);
+        Async.onEdt(future, rows -> {
+            if (generation != expected) {
+                return;
+            }
+            fetching.remove(index);
+            pages.put(index, rows);
+            if (!rows.isEmpty()) {
+                fireTableRowsUpdated(index * pageSize, index * pageSize + rows.size() - 1);
+            }
+            fetchQueued();
+        }, error -> {
+            if (generation != expected) {
+                return;
+            }
+            fetching.remove(index);
+            failed.add(index);
+            errorHandler.accept(error);
+            fetchQueued();
+        });
+    }
+
+    /**
+     * Sorter that leaves the rows in model order and passes header clicks on to the source.
+     */
+    private final class Sorter extends RowSorter<LazyTableModel<T>> {
+        @Override
+        public LazyTableModel<T> getModel() {
+            return LazyTableModel.this;
+        }
+
+        @Override
+        public void toggleSortOrder(int column) {
+            if (!isSortable(column)) {
+                return;
+            }
+
+            boolean ascending = sortKey != null && sortKey.getColumn() == column
+                && sortKey.getSortOrder() == SortOrder.ASCENDING;
+            sortBy(new RowSorter.SortKey(column, ascending ? SortOrder.DESCENDING : SortOrder.ASCENDING));
+        }
+
+        @Override
+        public int convertRowIndexToModel(int index) {
+            return index;
+        }
+
+        @Override
+        public int convertRowIndexToView(int index) {
+            return index;
+        }
+
+        @Override
+        public void setSortKeys(List<? extends SortKey> keys) {
+            sortBy(keys == null || keys.isEmpty() ? null : keys.get(0));
+        }
+
+        @Override
+        public List<? extends SortKey> getSortKeys() {
+            return sortKey == null ? List.of() : List.of(sortKey);
+        }
+
+        @Override
+        public int getViewRowCount() {
+            return getRowCount();
+        }
+
+        @Override
+        public int getModelRowCount() {
+            return getRowCount();
+        }
+
+        // The rows are already in the source's order, so changes to them need no sorting
+
+        @Override
+        public void modelStructureChanged() {
+        }
+
+        @Override
+        public void allRowsChanged() {
+        }
+
+        @Override
+        public void rowsInserted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsDeleted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow, int column) {
+        }
+
+        void sortOrderChanged() {
+            fireSortOrderChanged();
+        }
+    }
+}
@@ -1,8 +1,25 @@
 package View;
 
+import Support.Async;
+import Support.CancellationScope;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import javax.swing.*;
 
+/**
+ * Base class of the panels shown by the router.
+ * The router calls {@link #render()} on the EDT before showing the panel, so render should only build
+ * components and start loads with {@link #renderAsync}, which read the database off the EDT while a
+ * {@link Skeleton} stands in for the content. The panel then paints straight away however slow the queries are,
+ * and loads still running when the router moves on are cancelled.
+ */
 public class NavigatePanel extends JPanel {
+    // Loads still running, cancelled when the panel is navigated away from
+    private final List<CompletableFuture<?>> loads = new ArrayList<>();
 
     public NavigatePanel()
     {
@@ -14,4 +31,106 @@ public class NavigatePanel extends JPanel {
     {
     }
 
+    /**
+     * Called when the router replaces this panel with another one, to release what render set up.
+     */
+    public void onNavigatedAway()
+    {
+        cancelLoads();
+    }
+
+    /**
+     * Load data off the EDT, then apply it on the EDT.
+     * The load runs in a {@link CancellationScope}, so cancelling it stops its query.
+     *
+     * @param placeholderFor The component the data fills, replaced by a skeleton until the load ends, or null
+     * @param load Reads the data; must not touch Swing components
+     * @param apply Shows the data on the EDT
+     * @return The running load
+     */
+    protected <T> CompletableFuture<T> renderAsync(JComponent placeholderFor, Callable<T> load, Consumer<? super T> apply)
+    {
+        Runnable restore = placeholderFor == null ? () -> {} : showSkeleton(placeholderFor);
+        CompletableFuture<T> future = CancellationScope.supply(load);
+        loads.add(future);
+
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            loads.remove(future);
+            restore.run();
+            if (future.isCancelled()) {
+                return;
+            }
+
+            if (error == null) {
+                apply.accept(result);
+            } else {
+                onLoadFailed(Async.unwrap(error));
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * Cancel the loads still running, for example when a search replaces what they would show.
+     */
+    protected void cancelLoads()
+    {
+        for (CompletableFuture<?> load : List.copyOf(loads)) {
+            load.cancel(true);
+        }
+    }
+
+    /**
+     * Report a load that failed. Panels may override this to show the error in place.
+     *
+     * @param error The failure
+     */
+    protected void onLoadFailed(Throwable error)
+    {
+        JOptionPane.showMessageDialog(this, "Error loading data: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Put a skeleton where a component is shown, in its scroll pane or at its place in its parent.
+     *
+     * @return Puts the component back
+     */
+    private static Runnable showSkeleton(JComponent component)
+    {
+        Container parent = component.getParent();
+        if (parent == null) {
+            return () -> {};
+        }
+
+        Skeleton skeleton = new Skeleton(component.getPreferredSize());
+        skeleton.setAlignmentX(component.getAlignmentX());
+        if (parent instanceof JViewport viewport) {
+            viewport.setView(skeleton);
+            return () -> {
+                if (viewport.getView() == skeleton) {
+                    viewport.setView(component);
+                }
+            };
+        }
+
+        Object constraints = switch (parent.getLayout()) {
+            case BorderLayout border -> border.getConstraints(component);
+            case GridBagLayout gridBag -> gridBag.getConstraints(component);
+            case null, default -> null;
+        };
+        int index = parent.getComponentZOrder(component);
+        parent.remove(index);
+        parent.add(skeleton, constraints, index);
+        parent.revalidate();
+        return () -> {
+            int at = parent.getComponentZOrder(skeleton);
+            if (at >= 0) {
+                parent.remove(at);
+                parent.add(component, constraints, at);
+                parent.revalidate();
+                parent.repaint();
+            }
+        };
+    }
+
 }
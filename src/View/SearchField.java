@@ -0,0 +1,126 @@
+package View;
+
+import Support.Async;
+import Support.CancellationScope;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Text field that searches as the user types without running a query per keystroke.
+ * Edits restart a short delay, so a burst of typing becomes one search for the final text, and keys that do not
+ * change the text never search. The query runs off the EDT in a {@link CancellationScope}; a newer search, or the
+ * field leaving the screen, cancels the one still running, and only the latest result is applied.
+ */
+public class SearchField extends JTextField {
+    public static final int DEFAULT_DELAY_MILLIS = 250;
+
+    private final Timer timer;
+    private Consumer<String> search;
+    // Text of the last search started, so a delay ending on unchanged text does nothing
+    private String lastText = "";
+    private CompletableFuture<?> pending;
+
+    public SearchField(int columns) {
+        this(columns, DEFAULT_DELAY_MILLIS);
+    }
+
+    /**
+     * Create a search field.
+     *
+     * @param columns The width of the field in columns
+     * @param delayMillis How long typing must pause before a search starts
+     */
+    public SearchField(int columns, int delayMillis) {
+        super(columns);
+        timer = new Timer(delayMillis, e -> submit(false));
+        timer.setRepeats(false);
+
+        getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not change the text
+            }
+        });
+
+        // Enter searches without waiting for the delay
+        addActionListener(e -> searchNow());
+    }
+
+    /**
+     * Set the search run for the trimmed text.
+     *
+     * @param query Called on the EDT with the text, so it can read other filters, and returns the work to run off it
+     * @param apply Receives the result of the latest search on the EDT
+     * @param onError Receives the failure of the latest search on the EDT; cancelled searches are not reported
+     */
+    public <T> void onSearch(Function<String, Callable<T>> query, Consumer<? super T> apply,
+                             Consumer<Throwable> onError) {
+        search = text -> {
+            CompletableFuture<T> future = CancellationScope.supply(query.apply(text));
+            pending = future;
+            Async.onEdt(future, result -> {
+                if (future == pending) {
+                    pending = null;
+                    apply.accept(result);
+                }
+            }, error -> {
+                if (future == pending) {
+                    pending = null;
+                    onError.accept(error);
+                }
+            });
+        };
+    }
+
+    /**
+     * Search for the current text at once, for example after another filter changed.
+     */
+    public void searchNow() {
+        timer.stop();
+        submit(true);
+    }
+
+    /**
+     * Drop the waiting search and cancel the running one.
+     */
+    public void cancel() {
+        timer.stop();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        // The panel was navigated away from, nobody will see the result
+        cancel();
+        super.removeNotify();
+    }
+
+    private void submit(boolean force) {
+        String text = getText().trim();
+        if (search == null || (!force && text.equals(lastText))) {
+            return;
+        }
+        lastText = text;
+
+        cancel();
+        search.accept(text);
+    }
+}
@@ -0,0 +1,75 @@
+package View;
+
+import Support.UIConstants;
+import java.awt.*;
+import javax.swing.*;
+
+/**
+ * Placeholder shown where content is still loading: rows of grey bars the height of a table row.
+ * {@link NavigatePanel#renderAsync} puts it in place of the component it fills and swaps the component back
+ * once the data has arrived.
+ */
+public class Skeleton extends JComponent implements Scrollable {
+    // Bar widths of successive rows, as a share of the width, so the rows do not look like one block
+    private static final double[] BAR_WIDTHS = {0.9, 0.75, 0.85, 0.6};
+    private static final Color BAR_COLOR = UIConstants.BORDER_COLOR;
+
+    /**
+     * Create a placeholder the size of the component it stands in for.
+     *
+     * @param size The preferred size of that component
+     */
+    public Skeleton(Dimension size) {
+        setPreferredSize(size);
+        setOpaque(true);
+        setBackground(Color.WHITE);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return UIConstants.TABLE_ROW_HEIGHT;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return UIConstants.TABLE_ROW_HEIGHT;
+    }
+
+    // In a scroll pane the placeholder fills the viewport, whatever the size of the empty component it replaced
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return true;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(getBackground());
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(BAR_COLOR);
+
+            int rowHeight = UIConstants.TABLE_ROW_HEIGHT;
+            int barHeight = rowHeight / 3;
+            int padding = UIConstants.CONTENT_PADDING;
+            int available = Math.max(getWidth() - 2 * padding, 0);
+            for (int row = 0, y = (rowHeight - barHeight) / 2; y + barHeight <= getHeight(); row++, y += rowHeight) {
+                int width = (int) (available * BAR_WIDTHS[row % BAR_WIDTHS.length]);
+                g2.fillRoundRect(padding, y, width, barHeight, barHeight, barHeight);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+}